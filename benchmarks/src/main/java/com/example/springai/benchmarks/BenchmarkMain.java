@@ -0,0 +1,38 @@
+package com.example.springai.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}: the JMH command line, writing the results as JSON to
+ * {@code results/<timestamp>.json} unless {@code -rf}/{@code -rff} say otherwise, so that every
+ * run leaves a file to compare later runs against.
+ */
+public final class BenchmarkMain {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(List.of(args));
+        int format = options.indexOf("-rf");
+        String extension = format >= 0 && format + 1 < options.size() ? options.get(format + 1).toLowerCase() : "json";
+        if (format < 0) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        if (!options.contains("-rff")) {
+            Path results = Path.of(System.getProperty("benchmarks.results", "results"));
+            Files.createDirectories(results);
+            options.add(0, "-rff");
+            options.add(1, results.resolve(LocalDateTime.now().format(TIMESTAMP) + "." + extension).toString());
+        }
+        org.openjdk.jmh.Main.main(options.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.service.StreamingChunker;
+import com.example.springai.service.TextChunker;
+import com.example.springai.service.TokenCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Chunking of the bundled {@code test-documents}, repeated {@code copies} times to stand in
+ * for a large corpus: the original regex splitter against the token-aware chunker with each
+ * token counter, sequential and parallel.
+ *
+ * Run from {@code benchmarks/}, or point {@code -Dbenchmarks.documents} at another directory of .txt files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ChunkingBenchmark {
+
+    private static final int CHUNK_TOKENS = 256;
+    private static final int OVERLAP_TOKENS = 32;
+    /** What the regex splitter used, roughly CHUNK_TOKENS at four characters per token */
+    private static final int CHUNK_CHARS = 1024;
+
+    @Param({"1", "1000"})
+    public int copies;
+
+    private String text;
+    private TextChunker sequential;
+    private TextChunker parallel;
+    private TextChunker jtokkit;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path directory = Path.of(System.getProperty("benchmarks.documents", "../test-documents"));
+        String corpus;
+        try (var files = Files.list(directory)) {
+            corpus = files.filter(file -> file.toString().endsWith(".txt"))
+                .sorted()
+                .map(ChunkingBenchmark::read)
+                .collect(Collectors.joining("\n\n"));
+        }
+        text = corpus.repeat(copies);
+
+        sequential = new StreamingChunker(TokenCounter.approximate(), CHUNK_TOKENS, OVERLAP_TOKENS, Integer.MAX_VALUE);
+        parallel = new StreamingChunker(TokenCounter.approximate(), CHUNK_TOKENS, OVERLAP_TOKENS, 64 * 1024);
+        jtokkit = new StreamingChunker(TokenCounter.of(new JTokkitTokenCountEstimator()), CHUNK_TOKENS,
+            OVERLAP_TOKENS, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<String> regexSplit() {
+        return splitIntoChunks(text, CHUNK_CHARS);
+    }
+
+    @Benchmark
+    public void approximateSequential(Blackhole blackhole) {
+        sequential.chunk(text, blackhole::consume);
+    }
+
+    @Benchmark
+    public void approximateParallel(Blackhole blackhole) {
+        parallel.chunk(text, blackhole::consume);
+    }
+
+    @Benchmark
+    public void jtokkitSequential(Blackhole blackhole) {
+        jtokkit.chunk(text, blackhole::consume);
+    }
+
+    /**
+     * The splitter RagService used before the token-aware chunker, kept as the baseline
+     */
+    private static List<String> splitIntoChunks(String text, int chunkSize) {
+        List<String> chunks = new ArrayList<>();
+        String[] sentences = text.split("\\. ");
+
+        StringBuilder currentChunk = new StringBuilder();
+
+        for (String sentence : sentences) {
+            if (currentChunk.length() + sentence.length() > chunkSize) {
+                if (currentChunk.length() > 0) {
+                    chunks.add(currentChunk.toString().trim());
+                    currentChunk = new StringBuilder();
+                }
+            }
+            currentChunk.append(sentence).append(". ");
+        }
+
+        if (currentChunk.length() > 0) {
+            chunks.add(currentChunk.toString().trim());
+        }
+
+        return chunks;
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + file, e);
+        }
+    }
+}
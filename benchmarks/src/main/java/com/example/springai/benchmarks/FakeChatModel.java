@@ -0,0 +1,67 @@
+package com.example.springai.benchmarks;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers every prompt with the same text, at once or streamed one word per chunk, so that
+ * benchmarks of the RAG and prompt paths are not dominated by (or varying with) a real model.
+ * Counts the prompt characters it receives.
+ */
+public class FakeChatModel implements ChatModel {
+
+    private final String answer;
+    private final List<String> tokens;
+    private final LongAdder promptChars = new LongAdder();
+
+    public FakeChatModel(String answer) {
+        this.answer = answer;
+        this.tokens = split(answer);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        promptChars.add(prompt.getContents().length());
+        return response(answer);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        promptChars.add(prompt.getContents().length());
+        return Flux.fromIterable(tokens).map(FakeChatModel::response);
+    }
+
+    /**
+     * Characters of all prompts received so far
+     */
+    public long promptChars() {
+        return promptChars.sum();
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    /**
+     * Words with their leading whitespace, as models stream them
+     */
+    private static List<String> split(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || Character.isWhitespace(text.charAt(i)) && !Character.isWhitespace(text.charAt(i - 1))) {
+                tokens.add(text.substring(start, i));
+                start = i;
+            }
+        }
+        return tokens;
+    }
+}
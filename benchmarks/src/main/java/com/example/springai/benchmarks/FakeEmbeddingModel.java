@@ -0,0 +1,94 @@
+package com.example.springai.benchmarks;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embeds text by feature hashing its words: each word adds +1 or -1 at a few positions derived
+ * from its hash. The same text always gets the same vector, texts sharing words are similar,
+ * and embedding costs microseconds, so benchmarks measure the code around the model rather
+ * than the model.
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+    /** Positions each word contributes to */
+    private static final int PROBES = 4;
+
+    private final int dimensions;
+
+    public FakeEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(embed(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                add(vector, text, start, i);
+                start = -1;
+            }
+        }
+        // Blank text still needs a vector that can be normalized
+        if (isZero(vector)) {
+            vector[0] = 1;
+        }
+        return vector;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getContent());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private void add(float[] vector, String text, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ Character.toLowerCase(text.charAt(i))) * 0x100000001b3L;
+        }
+        for (int probe = 0; probe < PROBES; probe++) {
+            hash = mix(hash + probe);
+            vector[(int) Long.remainderUnsigned(hash, dimensions)] += (hash & 1L << 62) == 0 ? 1 : -1;
+        }
+    }
+
+    private static long mix(long value) {
+        value = (value ^ value >>> 33) * 0xff51afd7ed558ccdL;
+        value = (value ^ value >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return value ^ value >>> 33;
+    }
+
+    private static boolean isZero(float[] vector) {
+        for (float value : vector) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
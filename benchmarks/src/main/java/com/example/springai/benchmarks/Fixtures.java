@@ -0,0 +1,91 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.config.RagProperties;
+import com.example.springai.service.ContextPacker;
+import com.example.springai.service.PromptRegistry;
+import com.example.springai.service.RagService;
+import com.example.springai.service.StreamingChunker;
+import com.example.springai.service.TextChunker;
+import com.example.springai.service.TokenCounter;
+import com.example.springai.vectorstore.ExactVectorIndex;
+import com.example.springai.vectorstore.HnswVectorIndex;
+import com.example.springai.vectorstore.MappedVectorStore;
+import com.example.springai.vectorstore.QuantizedVectorIndex;
+import com.example.springai.vectorstore.VectorIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Pieces shared by the benchmarks that run the RAG service outside Spring
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * A RagService wired as {@code SpringAiConfig} wires it with the default {@link RagProperties}
+     */
+    static RagService ragService(ChatModel chatModel, MappedVectorStore store) {
+        RagProperties properties = new RagProperties();
+        RagProperties.Retrieval retrieval = properties.getRetrieval();
+        return new RagService(chatModel, store, chunker(),
+            new ContextPacker(TokenCounter.approximate(), retrieval.getTopK(), retrieval.getContextTokens(),
+                retrieval.getMmrLambda(), retrieval.getDuplicateSimilarity()),
+            properties, new PromptRegistry(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * The chunker with the default ingestion settings
+     */
+    static TextChunker chunker() {
+        RagProperties.Ingestion ingestion = new RagProperties().getIngestion();
+        return new StreamingChunker(TokenCounter.approximate(), ingestion.getChunkTokens(),
+            ingestion.getChunkOverlapTokens(), ingestion.getParallelChunkMinChars());
+    }
+
+    /**
+     * The index for a {@code @Param} value, configured like the application's defaults
+     */
+    static VectorIndex.Factory indexFactory(String type) {
+        RagProperties.Index index = new RagProperties().getIndex();
+        return switch (type) {
+            case "exact" -> (values, directory) -> new ExactVectorIndex(values);
+            case "hnsw" -> (values, directory) -> HnswVectorIndex.open(values, directory.resolve("hnsw.graph"),
+                index.getM(), index.getEfConstruction(), index.getEfSearch());
+            case "int8" -> (values, directory) -> QuantizedVectorIndex.openScalar(values,
+                directory.resolve("int8.codes"), index.getRescoreFactor());
+            default -> throw new IllegalArgumentException("Unknown index type " + type);
+        };
+    }
+
+    /**
+     * The bundled {@code test-documents}, joined; run from {@code benchmarks/} or point
+     * {@code -Dbenchmarks.documents} at another directory of .txt files
+     */
+    static String corpus() throws IOException {
+        Path directory = Path.of(System.getProperty("benchmarks.documents", "../test-documents"));
+        StringBuilder corpus = new StringBuilder();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".txt")).sorted().toList()) {
+                corpus.append(Files.readString(file)).append("\n\n");
+            }
+        }
+        return corpus.toString();
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+}
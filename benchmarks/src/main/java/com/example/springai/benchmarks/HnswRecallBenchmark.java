@@ -0,0 +1,123 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.vectorstore.ArrayVectorValues;
+import com.example.springai.vectorstore.ExactVectorIndex;
+import com.example.springai.vectorstore.HnswVectorIndex;
+import com.example.springai.vectorstore.VectorIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 HNSW search latency over {@code vectors} synthetic 768-dimension embeddings for a range of
+ * {@code efSearch} values, with the graph built as application.yml configures it (m 16,
+ * efConstruction 100). The vectors vary mostly along a few directions, as real embeddings do.
+ *
+ * Setup prints the recall@10 against the exact results for each efSearch, so the latency of a
+ * setting can be read together with the accuracy it buys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class HnswRecallBenchmark {
+
+    private static final int DIMENSIONS = 768;
+    private static final int LATENT = 32;
+    private static final float NOISE = 0.1f;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    @Param({"20000"})
+    public int vectors;
+
+    @Param({"16", "32", "64", "128", "256"})
+    public int efSearch;
+
+    private VectorIndex hnsw;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        float[][] basis = new float[LATENT][];
+        for (int j = 0; j < LATENT; j++) {
+            basis[j] = gaussian(random, 1.0f, null);
+        }
+        ArrayVectorValues values = new ArrayVectorValues(vectors, DIMENSIONS);
+        ExactVectorIndex exact = new ExactVectorIndex(values);
+        hnsw = new HnswVectorIndex(values, null, 16, 100, efSearch);
+        for (int i = 0; i < vectors; i++) {
+            float[] vector = gaussian(random, NOISE, null);
+            for (float[] direction : basis) {
+                float weight = (float) random.nextGaussian();
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    vector[d] += weight * direction[d];
+                }
+            }
+            int ordinal = values.append(normalize(vector));
+            exact.add(ordinal);
+            hnsw.add(ordinal);
+        }
+        queries = new float[QUERIES][];
+        float[] stored = new float[DIMENSIONS];
+        for (int q = 0; q < QUERIES; q++) {
+            values.get(random.nextInt(vectors), stored);
+            queries[q] = normalize(gaussian(random, 0.05f, stored.clone()));
+        }
+
+        int found = 0;
+        for (float[] query : queries) {
+            int[] truth = exact.search(query, K).ordinals();
+            for (int ordinal : hnsw.search(query, K).ordinals()) {
+                for (int expected : truth) {
+                    if (ordinal == expected) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+        }
+        System.out.printf("%nefSearch %d: recall@%d %.3f%n", efSearch, K, (double) found / (QUERIES * K));
+    }
+
+    @Benchmark
+    public VectorIndex.Hits search() {
+        next = (next + 1) % QUERIES;
+        return hnsw.search(queries[next], K);
+    }
+
+    private static float[] gaussian(Random random, float sigma, float[] mean) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (mean == null ? 0 : mean[i]) + (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.service.RagService;
+import com.example.springai.vectorstore.MappedVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing throughput into a fresh store per iteration, in documents per second:
+ * {@code indexDocument} runs the whole {@link RagService} path (chunking, embedding with
+ * {@link FakeEmbeddingModel}, appending to the segments and indexing), {@code appendEmbedded}
+ * only the store's part, with the chunks and their embeddings computed in setup.
+ *
+ * Setup prints how many chunks a document has, to turn the results into chunks per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class IndexingBenchmark {
+
+    private static final int DIMENSIONS = 384;
+
+    @Param({"exact", "hnsw"})
+    public String index;
+
+    private String document;
+    private List<Document> chunks;
+    private List<float[]> embeddings;
+    private FakeEmbeddingModel embeddingModel;
+    private Path directory;
+    private MappedVectorStore store;
+    private RagService ragService;
+    private int documents;
+
+    @Setup
+    public void setUp() throws IOException {
+        document = Fixtures.corpus();
+        embeddingModel = new FakeEmbeddingModel(DIMENSIONS);
+        List<String> texts = new ArrayList<>();
+        Fixtures.chunker().chunk(document, texts::add);
+        chunks = texts.stream().map(text -> new Document(text, Map.of("title", "corpus"))).toList();
+        embeddings = embeddingModel.embed(texts);
+        System.out.println("\nOne document is " + chunks.size() + " chunks");
+    }
+
+    @Setup(Level.Iteration)
+    public void openStore() throws IOException {
+        directory = Files.createTempDirectory("indexing-benchmark");
+        store = MappedVectorStore.open(embeddingModel, directory, 65536, Fixtures.indexFactory(index));
+        ragService = Fixtures.ragService(new FakeChatModel(""), store);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeStore() throws IOException {
+        store.close();
+        Fixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int indexDocument() {
+        return ragService.indexDocument("document-" + documents++, document);
+    }
+
+    @Benchmark
+    public int appendEmbedded() {
+        store.add(chunks, embeddings);
+        return store.size();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.model.BookRecommendation;
+import com.example.springai.model.RecipeResponse;
+import com.example.springai.model.WeatherResponse;
+import com.example.springai.service.PromptRegistry;
+import com.example.springai.service.PromptRegistry.OutputSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BeanOutputConverter} parsing of a model answer into each of the structured output
+ * records, with a converter created per request (as the controllers used to do it, schema
+ * generation included) against the one compiled at startup by {@link PromptRegistry}.
+ *
+ * The answers are wrapped in a markdown code fence, as models usually return them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutputParsingBenchmark {
+
+    private static final String WEATHER = """
+        ```json
+        {
+          "city": "Paris",
+          "temperature": 18.5,
+          "conditions": "Partly cloudy",
+          "humidity": 64,
+          "wind_speed": 12.3,
+          "unit": "celsius"
+        }
+        ```
+        """;
+
+    private static final String BOOKS = """
+        ```json
+        {
+          "genre": "science fiction",
+          "books": [
+            {"title": "Dune", "author": "Frank Herbert", "year": 1965,
+             "description": "A desert planet, a valuable spice and the noble family sent to rule it."},
+            {"title": "The Left Hand of Darkness", "author": "Ursula K. Le Guin", "year": 1969,
+             "description": "An envoy on a world whose people have no fixed sex."},
+            {"title": "Neuromancer", "author": "William Gibson", "year": 1984,
+             "description": "A washed-up hacker hired for one last job in cyberspace."}
+          ]
+        }
+        ```
+        """;
+
+    private static final String RECIPE = """
+        ```json
+        {
+          "name": "Pasta carbonara",
+          "prep_time": "10 minutes",
+          "cook_time": "15 minutes",
+          "servings": 4,
+          "ingredients": ["400 g spaghetti", "150 g guanciale", "4 egg yolks", "1 egg",
+                          "50 g pecorino romano", "black pepper", "salt"],
+          "instructions": ["Boil the spaghetti in salted water.", "Fry the guanciale until crisp.",
+                           "Whisk the yolks, egg and pecorino with plenty of pepper.",
+                           "Toss the drained pasta with the guanciale off the heat.",
+                           "Stir in the egg mixture, loosening with pasta water, and serve at once."]
+        }
+        ```
+        """;
+
+    @Param({"weather", "books", "recipe"})
+    public String record;
+
+    private Class<?> type;
+    private String answer;
+    private OutputSchema<?> schema;
+
+    @Setup
+    public void setUp() {
+        switch (record) {
+            case "weather" -> {
+                type = WeatherResponse.class;
+                answer = WEATHER;
+            }
+            case "books" -> {
+                type = BookRecommendation.class;
+                answer = BOOKS;
+            }
+            case "recipe" -> {
+                type = RecipeResponse.class;
+                answer = RECIPE;
+            }
+            default -> throw new IllegalArgumentException("Unknown record " + record);
+        }
+        schema = new PromptRegistry().output(type);
+    }
+
+    @Benchmark
+    public Object perRequest() {
+        return new BeanOutputConverter<>(type).convert(answer);
+    }
+
+    @Benchmark
+    public Object registry() {
+        return schema.convert(answer);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.model.RecipeResponse;
+import com.example.springai.service.CompiledTemplate;
+import com.example.springai.service.PromptRegistry;
+import com.example.springai.service.PromptRegistry.OutputSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request prompt construction (as the controllers used to do it) against the
+ * startup-compiled {@link PromptRegistry} path.
+ *
+ * Run with {@code -prof gc} to compare allocation per operation as well as time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptConstructionBenchmark {
+
+    private static final String RECIPE_TEMPLATE = """
+        Provide a detailed recipe for {dish}.
+        Include ingredients with measurements and step-by-step cooking instructions.
+        Also include prep time, cook time, and servings.
+        
+        {format}
+        """;
+
+    private static final String RAG_FORMAT = """
+        Answer the following question based on the provided context.
+        If the answer cannot be found in the context, say so.
+        
+        Context:
+        %s
+        
+        Question: %s
+        
+        Answer:
+        """;
+
+    private static final String RAG_TEMPLATE = """
+        Answer the following question based on the provided context.
+        If the answer cannot be found in the context, say so.
+        
+        Context:
+        {context}
+        
+        Question: {question}
+        
+        Answer:
+        """;
+
+    private static final String DISH = "pasta carbonara";
+    private static final String QUESTION = "How does dependency injection work in Spring?";
+
+    private CompiledTemplate recipeTemplate;
+    private OutputSchema<RecipeResponse> recipeOutput;
+    private CompiledTemplate ragTemplate;
+    private String context;
+
+    @Setup
+    public void setUp() {
+        PromptRegistry registry = new PromptRegistry();
+        recipeTemplate = registry.template("structured.recipe", RECIPE_TEMPLATE);
+        recipeOutput = registry.output(RecipeResponse.class);
+        ragTemplate = registry.template("rag.answer", RAG_TEMPLATE);
+        // Roughly what four retrieved chunks of 500 characters add up to
+        context = "Spring manages beans and wires their dependencies. ".repeat(40);
+    }
+
+    @Benchmark
+    public Prompt structuredPerRequest() {
+        BeanOutputConverter<RecipeResponse> outputConverter = new BeanOutputConverter<>(RecipeResponse.class);
+        String format = outputConverter.getFormat();
+        return new PromptTemplate(RECIPE_TEMPLATE).create(Map.of("dish", DISH, "format", format));
+    }
+
+    @Benchmark
+    public Prompt structuredRegistry() {
+        return recipeTemplate.prompt(DISH, recipeOutput.format());
+    }
+
+    @Benchmark
+    public String ragPerRequest() {
+        return String.format(RAG_FORMAT, context, QUESTION);
+    }
+
+    @Benchmark
+    public String ragRegistry() {
+        return ragTemplate.render(context, QUESTION);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.vectorstore.ArrayVectorValues;
+import com.example.springai.vectorstore.ExactVectorIndex;
+import com.example.springai.vectorstore.QuantizedVectorIndex;
+import com.example.springai.vectorstore.VectorIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 search over {@code vectors} synthetic 768-dimension embeddings (clustered, like real
+ * ones), with the float32 scan against the int8 and product-quantized scans that rescore their
+ * best candidates at full precision.
+ *
+ * Setup prints each index's heap footprint next to the float32 vectors and its recall@10
+ * against the exact results, so the speed numbers can be read together with what they cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class QuantizationBenchmark {
+
+    private static final int DIMENSIONS = 768;
+    private static final int CLUSTERS = 64;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    @Param({"20000"})
+    public int vectors;
+
+    @Param({"8"})
+    public int rescoreFactor;
+
+    private VectorIndex exact;
+    private QuantizedVectorIndex int8;
+    private QuantizedVectorIndex pq;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        float[][] centers = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centers[c] = gaussian(random, 1.0f, null);
+        }
+        ArrayVectorValues values = new ArrayVectorValues(vectors, DIMENSIONS);
+        for (int i = 0; i < vectors; i++) {
+            values.append(normalize(gaussian(random, 0.6f, centers[random.nextInt(CLUSTERS)])));
+        }
+        queries = new float[QUERIES][];
+        float[] stored = new float[DIMENSIONS];
+        for (int q = 0; q < QUERIES; q++) {
+            values.get(random.nextInt(vectors), stored);
+            queries[q] = normalize(gaussian(random, 0.3f, stored.clone()));
+        }
+
+        exact = new ExactVectorIndex(values);
+        int8 = QuantizedVectorIndex.openScalar(values, null, rescoreFactor);
+        pq = QuantizedVectorIndex.openProduct(values, null, 96, 4096, rescoreFactor);
+        for (int i = 0; i < vectors; i++) {
+            int8.add(i);
+            pq.add(i);
+        }
+
+        long floatBytes = (long) vectors * DIMENSIONS * Float.BYTES;
+        System.out.printf("%nfloat32 vectors: %,d bytes%n", floatBytes);
+        report("int8", int8, floatBytes);
+        report("pq", pq, floatBytes);
+    }
+
+    @Benchmark
+    public VectorIndex.Hits exactSearch() {
+        return exact.search(nextQuery(), K);
+    }
+
+    @Benchmark
+    public VectorIndex.Hits int8Search() {
+        return int8.search(nextQuery(), K);
+    }
+
+    @Benchmark
+    public VectorIndex.Hits pqSearch() {
+        return pq.search(nextQuery(), K);
+    }
+
+    private float[] nextQuery() {
+        next = (next + 1) % QUERIES;
+        return queries[next];
+    }
+
+    private void report(String name, QuantizedVectorIndex index, long floatBytes) {
+        int found = 0;
+        for (float[] query : queries) {
+            int[] truth = exact.search(query, K).ordinals();
+            int[] approximate = index.search(query, K).ordinals();
+            for (int ordinal : approximate) {
+                for (int expected : truth) {
+                    if (ordinal == expected) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+        }
+        System.out.printf("%s: %,d bytes on heap (%.1fx smaller), recall@%d %.3f%n", name, index.memoryBytes(),
+            (double) floatBytes / index.memoryBytes(), K, (double) found / (QUERIES * K));
+    }
+
+    private static float[] gaussian(Random random, float sigma, float[] mean) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (mean == null ? 0 : mean[i]) + (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.service.ContextPacker;
+import com.example.springai.service.RagService;
+import com.example.springai.vectorstore.MappedVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link RagService} itself adds to a question, with {@link FakeEmbeddingModel} and
+ * {@link FakeChatModel} standing in for the models: hybrid retrieval and context packing alone,
+ * then the whole answer path including prompt rendering.
+ *
+ * The store holds the bundled {@code test-documents} indexed {@code copies} times under
+ * different titles, so packing has near-duplicates to drop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class RagQueryBenchmark {
+
+    private static final int DIMENSIONS = 384;
+    private static final String[] QUESTIONS = {
+        "How does dependency injection work in Spring?",
+        "What is the difference between narrow and general AI?",
+        "Who created the Spring Framework and when was it released?",
+        "How is machine learning related to artificial intelligence?"
+    };
+
+    @Param({"1", "100"})
+    public int copies;
+
+    private Path directory;
+    private MappedVectorStore store;
+    private RagService ragService;
+    private RagService.Weights weights;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rag-query-benchmark");
+        store = MappedVectorStore.open(new FakeEmbeddingModel(DIMENSIONS), directory, 65536,
+            Fixtures.indexFactory("hnsw"));
+        ragService = Fixtures.ragService(new FakeChatModel("Spring creates the beans and injects their "
+            + "dependencies through constructors, setters or fields, as the context describes."), store);
+        String corpus = Fixtures.corpus();
+        for (int copy = 0; copy < copies; copy++) {
+            ragService.indexDocument("corpus-" + copy, corpus);
+        }
+        weights = ragService.defaultWeights();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        Fixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public ContextPacker.Packed retrieveContext() {
+        return ragService.retrieveContext(QUESTIONS[next++ % QUESTIONS.length], weights, null);
+    }
+
+    @Benchmark
+    public String queryDocuments() {
+        return ragService.queryDocuments(QUESTIONS[next++ % QUESTIONS.length], weights);
+    }
+}
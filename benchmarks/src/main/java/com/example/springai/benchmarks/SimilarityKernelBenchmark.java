@@ -0,0 +1,135 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.vectorstore.SimilarityKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against SIMD similarity kernels at common embedding sizes: single dot products on
+ * the heap and off it (a direct buffer standing in for a mapped segment), cosine, L2, and
+ * scoring one query against {@code BATCH} vectors the way a flat scan does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SimilarityKernelBenchmark {
+
+    private static final int BATCH = 1024;
+
+    @Param({"384", "768", "1024"})
+    public int dimensions;
+
+    private SimilarityKernels scalar;
+    private SimilarityKernels simd;
+    private float[] query;
+    private float[] vector;
+    private float[] matrix;
+    private ByteBuffer offHeap;
+    private float[] scores;
+
+    @Setup
+    public void setUp() {
+        scalar = SimilarityKernels.scalar();
+        simd = SimilarityKernels.simd()
+            .orElseThrow(() -> new IllegalStateException("Run with --add-modules jdk.incubator.vector"));
+        Random random = new Random(42);
+        query = randomVector(random);
+        vector = randomVector(random);
+        matrix = new float[BATCH * dimensions];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = random.nextFloat() * 2 - 1;
+        }
+        offHeap = ByteBuffer.allocateDirect(matrix.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        offHeap.asFloatBuffer().put(matrix);
+        scores = new float[BATCH];
+    }
+
+    @Benchmark
+    public float dotScalar() {
+        return scalar.dot(query, vector);
+    }
+
+    @Benchmark
+    public float dotSimd() {
+        return simd.dot(query, vector);
+    }
+
+    @Benchmark
+    public float dotOffHeapScalar() {
+        return scalar.dot(query, offHeap, 0);
+    }
+
+    @Benchmark
+    public float dotOffHeapSimd() {
+        return simd.dot(query, offHeap, 0);
+    }
+
+    @Benchmark
+    public float cosineScalar() {
+        return scalar.cosine(query, vector);
+    }
+
+    @Benchmark
+    public float cosineSimd() {
+        return simd.cosine(query, vector);
+    }
+
+    @Benchmark
+    public float l2Scalar() {
+        return scalar.l2Squared(query, vector);
+    }
+
+    @Benchmark
+    public float l2Simd() {
+        return simd.l2Squared(query, vector);
+    }
+
+    @Benchmark
+    public float[] batchScalar() {
+        scalar.dotBatch(query, matrix, 0, BATCH, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] batchSimd() {
+        simd.dotBatch(query, matrix, 0, BATCH, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] batchOffHeapScalar() {
+        scalar.dotBatch(query, offHeap, 0, BATCH, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] batchOffHeapSimd() {
+        simd.dotBatch(query, offHeap, 0, BATCH, scores);
+        return scores;
+    }
+
+    private float[] randomVector(Random random) {
+        float[] result = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            result[i] = random.nextFloat() * 2 - 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.springai.benchmarks;
+
+import com.example.springai.vectorstore.MappedVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MappedVectorStore#similaritySearch} latency over {@code chunks} synthetic chunks, with
+ * each index type, unfiltered and restricted to one document by a metadata filter. Includes
+ * embedding the query with {@link FakeEmbeddingModel}, which takes microseconds.
+ *
+ * Sampled, so the results have percentiles as well as the mean. Setup writes the store to a
+ * temporary directory (about 1.5 GB at a million 384-dimension chunks) and deletes it afterwards;
+ * building the HNSW graph over a million chunks takes a while, so start with
+ * {@code -p chunks=10000} when trying things out.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SimilaritySearchBenchmark {
+
+    private static final int DIMENSIONS = 384;
+    private static final int VOCABULARY = 20_000;
+    private static final int WORDS_PER_CHUNK = 24;
+    private static final int CHUNKS_PER_DOCUMENT = 100;
+    private static final int BATCH = 4096;
+    private static final int QUERIES = 256;
+    private static final int TOP_K = 4;
+
+    @Param({"10000", "100000", "1000000"})
+    public int chunks;
+
+    @Param({"exact", "hnsw", "int8"})
+    public String index;
+
+    private Path directory;
+    private MappedVectorStore store;
+    private String[] queries;
+    private Filter.Expression[] filters;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("similarity-benchmark");
+        store = MappedVectorStore.open(new FakeEmbeddingModel(DIMENSIONS), directory, 65536,
+            Fixtures.indexFactory(index));
+
+        Random random = new Random(42);
+        List<Document> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < chunks; i++) {
+            batch.add(new Document(text(random, WORDS_PER_CHUNK),
+                Map.of("title", "document-" + i / CHUNKS_PER_DOCUMENT, "chunk", i % CHUNKS_PER_DOCUMENT)));
+            if (batch.size() == BATCH || i == chunks - 1) {
+                store.add(batch);
+                batch.clear();
+            }
+        }
+
+        FilterExpressionBuilder builder = new FilterExpressionBuilder();
+        queries = new String[QUERIES];
+        filters = new Filter.Expression[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = text(random, 6);
+            filters[q] = builder.eq("title", "document-" + random.nextInt(Math.max(1, chunks / CHUNKS_PER_DOCUMENT)))
+                .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        Fixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public List<Document> search() {
+        return store.similaritySearch(SearchRequest.query(queries[next++ & QUERIES - 1]).withTopK(TOP_K));
+    }
+
+    @Benchmark
+    public List<Document> filteredSearch() {
+        int q = next++ & QUERIES - 1;
+        return store.similaritySearch(SearchRequest.query(queries[q]).withTopK(TOP_K).withFilterExpression(filters[q]));
+    }
+
+    /**
+     * Words drawn with a skewed distribution, so that common words are shared by many chunks
+     * and rare ones by few, as in real text
+     */
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                text.append(' ');
+            }
+            text.append("term").append(random.nextInt(random.nextInt(VOCABULARY) + 1));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.springai.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code --name=value} command line options; durations are written as in application.yml
+ * ({@code 20ms}, {@code 30s})
+ */
+final class Arguments {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Arguments(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    String string(String name, String fallback) {
+        return values.getOrDefault(name, fallback);
+    }
+
+    int integer(String name, int fallback) {
+        String value = values.get(name);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    double decimal(String name, double fallback) {
+        String value = values.get(name);
+        return value == null ? fallback : Double.parseDouble(value);
+    }
+
+    Duration duration(String name, Duration fallback) {
+        String value = values.get(name);
+        return value == null ? fallback : DurationStyle.detectAndParse(value);
+    }
+}
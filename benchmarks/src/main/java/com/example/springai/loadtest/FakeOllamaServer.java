@@ -0,0 +1,437 @@
+package com.example.springai.loadtest;
+
+import com.example.springai.benchmarks.FakeEmbeddingModel;
+import com.example.springai.service.TokenCounter;
+import com.example.springai.vectorstore.MappedVectorStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An HTTP server answering like Ollama, for measuring the application's own throughput and
+ * overhead without a model behind it. Point {@code spring.ai.ollama.base-url} at it.
+ *
+ * Implements {@code POST /api/chat} (streamed as NDJSON unless {@code "stream": false}),
+ * {@code POST /api/embed}, {@code POST /api/embeddings} and {@code GET /api/tags}.
+ * Answers are made of words picked by a hash of the prompt; prompts carrying a JSON schema (as
+ * {@code BeanOutputConverter} format instructions do) get a JSON instance of that schema, so the
+ * structured output endpoints parse them. Embeddings are those of {@link FakeEmbeddingModel},
+ * normalized: the same input always gets the same vector.
+ *
+ * Latency is simulated per call: {@code firstTokenDelay} before the first token, then
+ * {@code tokenDelay} per token, and {@code embedDelay} per embedding call. Faults are injected
+ * into the chat and embedding endpoints: a share {@code errorRate} of calls fails with HTTP 500,
+ * and a share {@code stallRate} is held for an extra {@code stall} first.
+ *
+ * Run standalone with
+ * {@code java -cp target/benchmarks.jar com.example.springai.loadtest.FakeOllamaServer --port=11434
+ * --token-delay=20ms --error-rate=0.01}, or embed it with {@link #start(int, Settings)}.
+ */
+public class FakeOllamaServer implements AutoCloseable {
+
+    private static final String[] WORDS = {
+        "the", "model", "answer", "spring", "context", "bean", "vector", "token", "search", "document",
+        "request", "stream", "latency", "service", "embedding", "prompt", "chunk", "index", "query", "result",
+        "is", "and", "of", "to", "with", "for", "each", "when", "which", "returns"
+    };
+    /** Marks BeanOutputConverter format instructions; the schema follows it */
+    private static final String SCHEMA_MARKER = "JSON Schema";
+    private static final TokenCounter TOKENS = TokenCounter.approximate();
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle's algorithm on, each
+        // response then waits out the client's delayed ACK, some 40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * @param firstTokenDelay time before the first token of a chat answer
+     * @param tokenDelay      time per further token
+     * @param answerTokens    words in a plain text answer
+     * @param embedDelay      time per embedding call, whatever the number of inputs
+     * @param dimensions      embedding dimensions (nomic-embed-text has 768)
+     * @param errorRate       share of chat and embedding calls failing with HTTP 500
+     * @param stallRate       share of chat and embedding calls held for an extra {@code stall}
+     * @param stall           extra time of stalled calls
+     * @param seed            seed of the fault injection
+     */
+    public record Settings(Duration firstTokenDelay, Duration tokenDelay, int answerTokens, Duration embedDelay,
+            int dimensions, double errorRate, double stallRate, Duration stall, long seed) {
+
+        public static Settings defaults() {
+            return new Settings(Duration.ofMillis(200), Duration.ofMillis(20), 64, Duration.ofMillis(5), 768, 0, 0,
+                Duration.ofSeconds(2), 42);
+        }
+
+        static Settings from(Arguments arguments) {
+            Settings defaults = defaults();
+            return new Settings(
+                arguments.duration("first-token-delay", defaults.firstTokenDelay()),
+                arguments.duration("token-delay", defaults.tokenDelay()),
+                arguments.integer("answer-tokens", defaults.answerTokens()),
+                arguments.duration("embed-delay", defaults.embedDelay()),
+                arguments.integer("dimensions", defaults.dimensions()),
+                arguments.decimal("error-rate", defaults.errorRate()),
+                arguments.decimal("stall-rate", defaults.stallRate()),
+                arguments.duration("stall", defaults.stall()),
+                arguments.integer("seed", (int) defaults.seed()));
+        }
+    }
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FakeEmbeddingModel embeddingModel;
+    private final Random faults;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+
+    private FakeOllamaServer(HttpServer server, Settings settings) {
+        this.settings = settings;
+        this.server = server;
+        this.embeddingModel = new FakeEmbeddingModel(settings.dimensions());
+        this.faults = new Random(settings.seed());
+        // Streams hold their thread while they sleep between tokens, so threads are not pooled to a limit
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-ollama");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Start a server on {@code port} (0 for any free port)
+     */
+    public static FakeOllamaServer start(int port, Settings settings) throws IOException {
+        FakeOllamaServer fake = new FakeOllamaServer(HttpServer.create(new InetSocketAddress(port), 1024), settings);
+        fake.server.start();
+        return fake;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        Settings settings = Settings.from(arguments);
+        FakeOllamaServer server = start(arguments.integer("port", 11434), settings);
+        System.out.println("Fake Ollama listening on " + server.baseUrl() + " with " + settings);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    /**
+     * Requests received so far
+     */
+    public long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * Calls failed on purpose so far
+     */
+    public long injectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    /**
+     * Calls stalled on purpose so far
+     */
+    public long stalls() {
+        return stalls.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) {
+        requests.increment();
+        try {
+            String route = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            switch (route) {
+                case "GET /" -> send(exchange, 200, "text/plain", "Ollama is running");
+                case "GET /api/tags" -> send(exchange, 200, tags());
+                case "POST /api/chat" -> chat(exchange);
+                case "POST /api/embed" -> embed(exchange, false);
+                case "POST /api/embeddings" -> embed(exchange, true);
+                default -> send(exchange, 404, error("404 page not found"));
+            }
+        } catch (IOException e) {
+            // The client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void chat(HttpExchange exchange) throws IOException, InterruptedException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        if (injectFault(exchange)) {
+            return;
+        }
+        String model = request.path("model").asText("llama3.2");
+        StringBuilder prompt = new StringBuilder();
+        for (JsonNode message : request.path("messages")) {
+            prompt.append(message.path("content").asText()).append('\n');
+        }
+        List<String> tokens = tokens(answer(prompt.toString()));
+        int promptTokens = TOKENS.count(prompt);
+
+        long start = System.nanoTime();
+        sleep(settings.firstTokenDelay());
+        long firstToken = System.nanoTime();
+        if (!request.path("stream").asBoolean(true)) {
+            sleep(settings.tokenDelay().multipliedBy(Math.max(0, tokens.size() - 1)));
+            ObjectNode response = chunk(model, String.join("", tokens));
+            done(response, start, firstToken, promptTokens, tokens.size());
+            send(exchange, 200, response);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                sleep(settings.tokenDelay());
+            }
+            writeLine(out, chunk(model, tokens.get(i)));
+        }
+        writeLine(out, done(chunk(model, ""), start, firstToken, promptTokens, tokens.size()));
+    }
+
+    private void embed(HttpExchange exchange, boolean legacy) throws IOException, InterruptedException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        if (injectFault(exchange)) {
+            return;
+        }
+        List<String> inputs = new ArrayList<>();
+        JsonNode input = legacy ? request.path("prompt") : request.path("input");
+        if (input.isArray()) {
+            input.forEach(text -> inputs.add(text.asText()));
+        } else {
+            inputs.add(input.asText());
+        }
+        long start = System.nanoTime();
+        sleep(settings.embedDelay());
+
+        ObjectNode response = objectMapper.createObjectNode();
+        if (legacy) {
+            vector(response.putArray("embedding"), inputs.get(0));
+        } else {
+            response.put("model", request.path("model").asText("nomic-embed-text"));
+            ArrayNode embeddings = response.putArray("embeddings");
+            for (String text : inputs) {
+                vector(embeddings.addArray(), text);
+            }
+            response.put("total_duration", System.nanoTime() - start);
+            response.put("load_duration", 0);
+            response.put("prompt_eval_count", inputs.stream().mapToInt(TOKENS::count).sum());
+        }
+        send(exchange, 200, response);
+    }
+
+    /**
+     * Fail or stall the call as configured; true if it was answered with an error
+     */
+    private boolean injectFault(HttpExchange exchange) throws IOException, InterruptedException {
+        double roll;
+        synchronized (faults) {
+            roll = faults.nextDouble();
+        }
+        if (roll < settings.errorRate()) {
+            injectedErrors.increment();
+            send(exchange, 500, error("injected failure"));
+            return true;
+        }
+        if (roll < settings.errorRate() + settings.stallRate()) {
+            stalls.increment();
+            sleep(settings.stall());
+        }
+        return false;
+    }
+
+    private String answer(String prompt) {
+        int schema = prompt.indexOf(SCHEMA_MARKER);
+        int open = schema < 0 ? -1 : prompt.indexOf('{', schema);
+        if (open >= 0) {
+            try {
+                // Trailing text after the schema (the closing code fence) is ignored
+                JsonNode instance = instance(objectMapper.readTree(prompt.substring(open)), 0);
+                return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(instance);
+            } catch (IOException e) {
+                // Not a schema after all; answer in words
+            }
+        }
+        Random random = new Random(prompt.hashCode());
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < settings.answerTokens(); i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            answer.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+        }
+        return answer.append('.').toString();
+    }
+
+    /**
+     * A small instance of a JSON schema: two elements per array, fixed values per type
+     */
+    private JsonNode instance(JsonNode schema, int depth) {
+        if (schema.has("enum") && schema.get("enum").size() > 0) {
+            return schema.get("enum").get(0);
+        }
+        JsonNode type = schema.path("type");
+        String name = type.isArray() ? type.get(0).asText() : type.asText();
+        switch (name) {
+            case "object" -> {
+                ObjectNode object = objectMapper.createObjectNode();
+                if (depth < 8) {
+                    Iterator<Map.Entry<String, JsonNode>> properties = schema.path("properties").fields();
+                    while (properties.hasNext()) {
+                        Map.Entry<String, JsonNode> property = properties.next();
+                        object.set(property.getKey(), instance(property.getValue(), depth + 1));
+                    }
+                }
+                return object;
+            }
+            case "array" -> {
+                ArrayNode array = objectMapper.createArrayNode();
+                if (depth < 8) {
+                    array.add(instance(schema.path("items"), depth + 1));
+                    array.add(instance(schema.path("items"), depth + 1));
+                }
+                return array;
+            }
+            case "integer" -> {
+                return objectMapper.getNodeFactory().numberNode(3);
+            }
+            case "number" -> {
+                return objectMapper.getNodeFactory().numberNode(21.5);
+            }
+            case "boolean" -> {
+                return objectMapper.getNodeFactory().booleanNode(true);
+            }
+            case "string" -> {
+                return objectMapper.getNodeFactory().textNode("sample text");
+            }
+            default -> {
+                return objectMapper.getNodeFactory().nullNode();
+            }
+        }
+    }
+
+    private void vector(ArrayNode array, String text) {
+        for (float value : MappedVectorStore.normalize(embeddingModel.embed(text))) {
+            array.add(value);
+        }
+    }
+
+    private ObjectNode chunk(String model, String content) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("model", model);
+        chunk.put("created_at", Instant.now().toString());
+        ObjectNode message = chunk.putObject("message");
+        message.put("role", "assistant");
+        message.put("content", content);
+        chunk.put("done", false);
+        return chunk;
+    }
+
+    private static ObjectNode done(ObjectNode chunk, long start, long firstToken, int promptTokens, int tokens) {
+        long end = System.nanoTime();
+        chunk.put("done_reason", "stop");
+        chunk.put("done", true);
+        chunk.put("total_duration", end - start);
+        chunk.put("load_duration", 0);
+        chunk.put("prompt_eval_count", promptTokens);
+        chunk.put("prompt_eval_duration", firstToken - start);
+        chunk.put("eval_count", tokens);
+        chunk.put("eval_duration", end - firstToken);
+        return chunk;
+    }
+
+    private ObjectNode tags() {
+        ObjectNode tags = objectMapper.createObjectNode();
+        ArrayNode models = tags.putArray("models");
+        for (String name : List.of("llama3.2:latest", "nomic-embed-text:latest")) {
+            ObjectNode model = models.addObject();
+            model.put("name", name);
+            model.put("model", name);
+            model.put("modified_at", "2024-01-01T00:00:00Z");
+            model.put("size", 0);
+            model.put("digest", Integer.toHexString(name.hashCode()));
+        }
+        return tags;
+    }
+
+    private ObjectNode error(String message) {
+        return objectMapper.createObjectNode().put("error", message);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        send(exchange, status, "application/json", objectMapper.writeValueAsString(body));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void writeLine(OutputStream out, JsonNode line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Words with their leading whitespace, as models stream them
+     */
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || Character.isWhitespace(text.charAt(i)) && !Character.isWhitespace(text.charAt(i - 1))) {
+                tokens.add(text.substring(start, i));
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static void sleep(Duration duration) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+    }
+}
@@ -0,0 +1,490 @@
+package com.example.springai.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Closed-loop load on every {@code /api/*} endpoint of a running application: {@code concurrency}
+ * workers each send one request after another, going round the endpoints, for {@code duration}
+ * after a {@code warmup} whose requests are not counted. Reports requests per second and p50,
+ * p99 and p999 latency per endpoint (plus time to first byte for the streaming ones), printed
+ * as a table and optionally written as JSON.
+ *
+ * Run the application against {@link FakeOllamaServer} to measure the application alone:
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.springai.loadtest.LoadGenerator --fake-ollama-port=11434 \
+ *     --token-delay=10ms --url=http://localhost:8080 --concurrency=32 --duration=60s --json=results/load.json
+ * </pre>
+ * starts the fake in the same JVM (taking the same options as {@code FakeOllamaServer}); leave
+ * out {@code --fake-ollama-port} to drive an application backed by a real model.
+ * {@code --endpoints=<regex>} restricts the load to the matching endpoint names. Before the load
+ * starts, the {@code .txt} files in {@code --documents} (default {@code ../test-documents}) are
+ * added to the knowledge base so RAG queries have something to find. {@code DELETE /api/rag/clear}
+ * is left out, since it would empty the knowledge base under the other requests.
+ */
+public class LoadGenerator {
+
+    private static final String[] QUESTIONS = {
+        "What is dependency injection in Spring?",
+        "What is the difference between narrow and general AI?",
+        "Who created the Spring Framework?",
+        "How does machine learning relate to AI?"
+    };
+    private static final String[] CITIES = {"Paris", "Tokyo", "London", "New York"};
+    private static final String[] DISHES = {"pasta carbonara", "pad thai", "ratatouille", "shakshuka"};
+    private static final String CONTENT = "Spring Boot auto-configures beans from the classpath. "
+        + "Starters bundle the dependencies of one feature. Actuator exposes health and metrics endpoints.";
+    private static final String ERROR_STATUS = "\"status\":\"error\"";
+    private static final String ERROR_EVENT = "event:error";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * @param baseUrl     the application, e.g. {@code http://localhost:8080}
+     * @param concurrency requests in flight at a time
+     * @param duration    time measured, after the warmup
+     * @param warmup      time the load runs before requests are counted
+     * @param endpoints   names of the endpoints to drive
+     * @param timeout     time after which a request counts as failed
+     */
+    public record Settings(URI baseUrl, int concurrency, Duration duration, Duration warmup, Pattern endpoints,
+            Duration timeout) {
+
+        static Settings from(Arguments arguments) {
+            return new Settings(
+                URI.create(arguments.string("url", "http://localhost:8080")),
+                arguments.integer("concurrency", 16),
+                arguments.duration("duration", Duration.ofSeconds(60)),
+                arguments.duration("warmup", Duration.ofSeconds(10)),
+                Pattern.compile(arguments.string("endpoints", ".*")),
+                arguments.duration("timeout", Duration.ofSeconds(60)));
+        }
+    }
+
+    /**
+     * One endpoint under load; {@code request} builds the request for a sequence number, which
+     * picks the question, title and so on, and {@code response} (if any) sees each successful
+     * response body
+     */
+    public record Endpoint(String name, boolean streaming, LongFunction<HttpRequest> request,
+            Consumer<String> response) {
+
+        public Endpoint(String name, boolean streaming, LongFunction<HttpRequest> request) {
+            this(name, streaming, request, null);
+        }
+    }
+
+    /**
+     * Measured results of one endpoint; latencies in milliseconds, first byte only for streams
+     */
+    public record Result(String endpoint, long requests, long errors, double requestsPerSecond, double p50,
+            double p99, double p999, double max, Double firstByteP50, Double firstByteP99) {}
+
+    private final Settings settings;
+    private final List<Endpoint> endpoints;
+    private final HttpClient client;
+    /** Id of the latest bulk ingestion job, which the rag.job endpoint polls */
+    private final AtomicReference<String> bulkJob = new AtomicReference<>();
+
+    public LoadGenerator(Settings settings) {
+        this.settings = settings;
+        this.endpoints = endpoints(settings.baseUrl()).stream()
+            .filter(endpoint -> settings.endpoints().matcher(endpoint.name()).matches())
+            .toList();
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("No endpoint matches " + settings.endpoints());
+        }
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        FakeOllamaServer fake = null;
+        if (arguments.has("fake-ollama-port")) {
+            fake = FakeOllamaServer.start(arguments.integer("fake-ollama-port", 11434),
+                FakeOllamaServer.Settings.from(arguments));
+            System.out.println("Fake Ollama listening on " + fake.baseUrl());
+        }
+        try {
+            LoadGenerator generator = new LoadGenerator(Settings.from(arguments));
+            generator.seed(Path.of(arguments.string("documents", "../test-documents")));
+            List<Result> results = generator.run();
+            print(results);
+            if (fake != null) {
+                System.out.printf("Fake Ollama: %d requests, %d failed and %d stalled on purpose%n",
+                    fake.requests(), fake.injectedErrors(), fake.stalls());
+            }
+            if (arguments.has("json")) {
+                write(Path.of(arguments.string("json", "")), generator.settings, results);
+            }
+        } finally {
+            if (fake != null) {
+                fake.close();
+            }
+        }
+    }
+
+    /**
+     * Add the {@code .txt} files of {@code directory} to the knowledge base, if it exists
+     */
+    public void seed(Path directory) throws IOException, InterruptedException {
+        if (!Files.isDirectory(directory)) {
+            System.out.println("No documents in " + directory + ", RAG queries will find nothing");
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.toString().endsWith(".txt")).sorted().toList();
+        }
+        for (Path file : files) {
+            HttpResponse<String> response = client.send(
+                json(settings.baseUrl().resolve("/api/rag/add"), "POST", new ObjectMapper().createObjectNode()
+                    .put("title", file.getFileName().toString())
+                    .put("content", Files.readString(file))),
+                HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 400 || response.body().contains(ERROR_STATUS)) {
+                throw new IOException("Adding " + file + " failed: " + response.statusCode() + " " + response.body());
+            }
+        }
+        System.out.println("Added " + files.size() + " documents from " + directory);
+
+        // Give rag.job a real job to poll even when rag.bulk is not part of the run
+        HttpResponse<String> response = client.send(bulkRequest(settings.baseUrl()), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400 || response.body().contains(ERROR_STATUS)) {
+            throw new IOException("Starting a bulk job failed: " + response.statusCode() + " " + response.body());
+        }
+        rememberBulkJob(response.body());
+    }
+
+    /**
+     * Run the load and return the results per endpoint, in the order of {@link #endpoints(URI)}
+     */
+    public List<Result> run() throws InterruptedException {
+        int workers = settings.concurrency();
+        Recorder[][] recorders = new Recorder[workers][endpoints.size()];
+        AtomicLong sequence = new AtomicLong();
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+        System.out.printf(Locale.ROOT, "Driving %d endpoints with %d workers: %.1fs warmup, %.1fs measured%n",
+            endpoints.size(), workers, settings.warmup().toMillis() / 1e3, settings.duration().toMillis() / 1e3);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        CountDownLatch done = new CountDownLatch(workers);
+        for (int w = 0; w < workers; w++) {
+            Recorder[] own = recorders[w];
+            for (int e = 0; e < own.length; e++) {
+                own[e] = new Recorder();
+            }
+            // Workers start at different endpoints so that all of them are busy at once
+            int first = w;
+            executor.execute(() -> {
+                try {
+                    for (int i = first; System.nanoTime() < end; i++) {
+                        int index = i % endpoints.size();
+                        Endpoint endpoint = endpoints.get(index);
+                        long requestStart = System.nanoTime();
+                        Outcome outcome = send(endpoint, sequence.getAndIncrement());
+                        if (requestStart >= measureFrom && requestStart < end) {
+                            own[index].record(System.nanoTime() - requestStart, outcome);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+
+        double seconds = settings.duration().toNanos() / 1e9;
+        List<Result> results = new ArrayList<>(endpoints.size());
+        for (int e = 0; e < endpoints.size(); e++) {
+            Recorder merged = new Recorder();
+            for (Recorder[] own : recorders) {
+                merged.merge(own[e]);
+            }
+            results.add(merged.result(endpoints.get(e), seconds));
+        }
+        Recorder total = new Recorder();
+        for (Recorder[] own : recorders) {
+            for (Recorder recorder : own) {
+                total.merge(recorder);
+            }
+        }
+        results.add(total.result(new Endpoint("total", false, null), seconds));
+        return results;
+    }
+
+    private record Outcome(boolean ok, long firstByteNanos) {}
+
+    private Outcome send(Endpoint endpoint, long sequence) {
+        HttpRequest request = endpoint.request().apply(sequence);
+        long start = System.nanoTime();
+        try {
+            if (endpoint.streaming()) {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream in = response.body()) {
+                    int firstByte = in.read();
+                    long firstByteNanos = firstByte < 0 ? 0 : System.nanoTime() - start;
+                    String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                    return new Outcome(response.statusCode() < 400 && !body.contains(ERROR_EVENT), firstByteNanos);
+                }
+            }
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean ok = response.statusCode() < 400 && !response.body().contains(ERROR_STATUS);
+            if (ok && endpoint.response() != null) {
+                endpoint.response().accept(response.body());
+            }
+            return new Outcome(ok, 0);
+        } catch (IOException e) {
+            return new Outcome(false, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Outcome(false, 0);
+        }
+    }
+
+    /**
+     * Every {@code /api/*} endpoint except {@code DELETE /api/rag/clear}
+     */
+    List<Endpoint> endpoints(URI base) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Endpoint> endpoints = new ArrayList<>();
+
+        endpoints.add(get(base, "chat.simple", false, n -> "/api/chat/simple?message=" + question(n)));
+        endpoints.add(new Endpoint("chat.system", false, n -> json(base.resolve("/api/chat/system"), "POST",
+            objectMapper.createObjectNode().put("message", QUESTIONS[index(n, QUESTIONS)]))));
+        endpoints.add(get(base, "chat.stream", true, n -> "/api/chat/stream?message=" + question(n)));
+        endpoints.add(new Endpoint("chat.conversation", false, n -> {
+            ObjectNode body = objectMapper.createObjectNode();
+            body.putArray("messages").add("My name is Sam.").add(QUESTIONS[index(n, QUESTIONS)]);
+            return json(base.resolve("/api/chat/conversation"), "POST", body);
+        }));
+
+        for (String type : List.of("weather", "books", "recipe")) {
+            LongFunction<String> query = switch (type) {
+                case "weather" -> n -> "?city=" + encode(CITIES[index(n, CITIES)]);
+                case "books" -> n -> "?genre=" + encode(n % 2 == 0 ? "mystery" : "science fiction") + "&count=3";
+                default -> n -> "?dish=" + encode(DISHES[index(n, DISHES)]);
+            };
+            endpoints.add(get(base, "structured." + type, false, n -> "/api/structured/" + type + query.apply(n)));
+            endpoints.add(get(base, "structured." + type + ".stream", true,
+                n -> "/api/structured/" + type + "/stream" + query.apply(n)));
+        }
+
+        endpoints.add(get(base, "functions.weather", false,
+            n -> "/api/functions/weather?question=" + encode("What is the weather in " + CITIES[index(n, CITIES)] + "?")));
+        endpoints.add(get(base, "functions.assistant", false, n -> "/api/functions/assistant?question="
+            + encode(n % 2 == 0 ? "What is 15 times 23?" : "Is it raining in " + CITIES[index(n, CITIES)] + "?")));
+
+        endpoints.add(new Endpoint("rag.add", false, n -> json(base.resolve("/api/rag/add"), "POST",
+            objectMapper.createObjectNode().put("title", "load-test-" + n % 8).put("content", CONTENT))));
+        endpoints.add(new Endpoint("rag.upload", false, n -> multipart(base.resolve("/api/rag/upload"),
+            "load-test-upload-" + n % 8 + ".txt", CONTENT)));
+        endpoints.add(new Endpoint("rag.bulk", false, n -> bulkRequest(base), this::rememberBulkJob));
+        endpoints.add(get(base, "rag.jobs", false, n -> "/api/rag/jobs"));
+        endpoints.add(get(base, "rag.job", false, n -> "/api/rag/jobs/" + bulkJob.get()));
+        endpoints.add(get(base, "rag.query", false, n -> "/api/rag/query?question=" + question(n)));
+        endpoints.add(get(base, "rag.stream", true, n -> "/api/rag/stream?question=" + question(n)));
+        endpoints.add(new Endpoint("rag.delete", false, n -> HttpRequest.newBuilder(
+            base.resolve("/api/rag/documents?title=load-test-deleted")).DELETE().timeout(settings.timeout()).build()));
+
+        endpoints.add(get(base, "chatclient.ask", false, n -> "/api/chatclient/ask?question=" + question(n)));
+        endpoints.add(new Endpoint("chatclient.assistant", false, n -> json(base.resolve("/api/chatclient/assistant"),
+            "POST", objectMapper.createObjectNode().put("role", "a Java mentor")
+                .put("question", QUESTIONS[index(n, QUESTIONS)]))));
+        endpoints.add(new Endpoint("chatclient.conversation", false, n -> json(
+            base.resolve("/api/chatclient/conversation"), "POST", objectMapper.createObjectNode()
+                .put("conversationId", "load-test-" + n % 16).put("message", QUESTIONS[index(n, QUESTIONS)]))));
+        endpoints.add(new Endpoint("chatclient.clear", false, n -> HttpRequest.newBuilder(
+            base.resolve("/api/chatclient/conversation/load-test-" + n % 16)).DELETE().timeout(settings.timeout())
+            .build()));
+        endpoints.add(get(base, "chatclient.stream", true, n -> "/api/chatclient/stream?question=" + question(n)));
+        return endpoints;
+    }
+
+    private HttpRequest bulkRequest(URI base) {
+        StringBuilder jsonl = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            jsonl.append(JSON.createObjectNode().put("title", "load-test-bulk-" + i).put("content", CONTENT))
+                .append('\n');
+        }
+        return multipart(base.resolve("/api/rag/bulk"), "load-test.jsonl", jsonl.toString());
+    }
+
+    /**
+     * Keep the {@code jobId} of a bulk ingestion response for rag.job to poll; finished jobs
+     * are only retained for a while, so the latest one is polled
+     */
+    private void rememberBulkJob(String body) {
+        try {
+            String id = JSON.readTree(body).path("jobId").asText("");
+            if (!id.isEmpty()) {
+                bulkJob.set(id);
+            }
+        } catch (IOException e) {
+            // Not JSON; keep polling the previous job
+        }
+    }
+
+    private Endpoint get(URI base, String name, boolean streaming, LongFunction<String> path) {
+        return new Endpoint(name, streaming, n -> HttpRequest.newBuilder(base.resolve(path.apply(n)))
+            .GET().timeout(settings.timeout()).build());
+    }
+
+    private HttpRequest json(URI uri, String method, ObjectNode body) {
+        return HttpRequest.newBuilder(uri)
+            .header("Content-Type", "application/json")
+            .method(method, HttpRequest.BodyPublishers.ofString(body.toString()))
+            .timeout(settings.timeout())
+            .build();
+    }
+
+    private HttpRequest multipart(URI uri, String filename, String content) {
+        String boundary = "load-test-boundary";
+        String body = "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+            + "Content-Type: text/plain\r\n\r\n"
+            + content + "\r\n"
+            + "--" + boundary + "--\r\n";
+        return HttpRequest.newBuilder(uri)
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .timeout(settings.timeout())
+            .build();
+    }
+
+    private static String question(long n) {
+        return encode(QUESTIONS[index(n, QUESTIONS)]);
+    }
+
+    private static int index(long n, String[] values) {
+        return (int) (n % values.length);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void print(List<Result> results) {
+        System.out.printf("%n%-28s %9s %7s %9s %9s %9s %9s %9s %10s %10s%n", "endpoint", "requests", "errors",
+            "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "ttfb p50", "ttfb p99");
+        for (Result result : results) {
+            System.out.printf(Locale.ROOT, "%-28s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f %10s %10s%n",
+                result.endpoint(), result.requests(), result.errors(), result.requestsPerSecond(), result.p50(),
+                result.p99(), result.p999(), result.max(), format(result.firstByteP50()),
+                format(result.firstByteP99()));
+        }
+    }
+
+    private static String format(Double millis) {
+        return millis == null ? "" : String.format(Locale.ROOT, "%.1f", millis);
+    }
+
+    private static void write(Path file, Settings settings, List<Result> results) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("url", settings.baseUrl().toString());
+        report.put("concurrency", settings.concurrency());
+        report.put("durationSeconds", settings.duration().toSeconds());
+        report.put("warmupSeconds", settings.warmup().toSeconds());
+        ArrayNode endpoints = report.putArray("endpoints");
+        results.forEach(result -> endpoints.add(objectMapper.valueToTree(result)));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+        System.out.println("Results written to " + file);
+    }
+
+    /**
+     * Latencies of one endpoint as seen by one worker, kept in full for exact percentiles
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private long[] firstBytes = new long[0];
+        private int count;
+        private int firstByteCount;
+        private long errors;
+
+        void record(long nanos, Outcome outcome) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!outcome.ok()) {
+                errors++;
+            }
+            if (outcome.firstByteNanos() > 0) {
+                if (firstByteCount == firstBytes.length) {
+                    firstBytes = Arrays.copyOf(firstBytes, Math.max(1024, firstByteCount * 2));
+                }
+                firstBytes[firstByteCount++] = outcome.firstByteNanos();
+            }
+        }
+
+        void merge(Recorder other) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length, count + other.count));
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            firstBytes = Arrays.copyOf(firstBytes, firstByteCount + other.firstByteCount);
+            System.arraycopy(other.firstBytes, 0, firstBytes, firstByteCount, other.firstByteCount);
+            firstByteCount += other.firstByteCount;
+            errors += other.errors;
+        }
+
+        Result result(Endpoint endpoint, double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            long[] sortedFirstBytes = Arrays.copyOf(firstBytes, firstByteCount);
+            Arrays.sort(sortedFirstBytes);
+            boolean firstByte = endpoint.streaming() && firstByteCount > 0;
+            return new Result(endpoint.name(), count, errors, count / seconds,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                count == 0 ? 0 : sorted[count - 1] / 1e6,
+                firstByte ? percentile(sortedFirstBytes, 0.5) : null,
+                firstByte ? percentile(sortedFirstBytes, 0.99) : null);
+        }
+
+        /**
+         * Nearest-rank percentile in milliseconds
+         */
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.springai.config;
+
+import com.example.springai.service.ChatRequestContext.Priority;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the chat demos (prefix {@code chat})
+ */
+@ConfigurationProperties(prefix = "chat")
+public class ChatProperties {
+
+    private final SemanticCache semanticCache = new SemanticCache();
+    private final StructuredCache structuredCache = new StructuredCache();
+    private final Bulkhead bulkhead = new Bulkhead();
+    private final Memory memory = new Memory();
+
+    public SemanticCache getSemanticCache() {
+        return semanticCache;
+    }
+
+    public StructuredCache getStructuredCache() {
+        return structuredCache;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    /**
+     * Answers reused for questions that embed close to an earlier one
+     */
+    public static class SemanticCache {
+
+        /** Master switch; when off every request goes to the model */
+        private boolean enabled = false;
+
+        /** Most answers kept per endpoint; the oldest is evicted first */
+        private int maxEntries = 1000;
+
+        /** Per-endpoint policy, keyed by endpoint name (e.g. {@code chat-simple}) */
+        private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Map<String, Endpoint> getEndpoints() {
+            return endpoints;
+        }
+
+        public void setEndpoints(Map<String, Endpoint> endpoints) {
+            this.endpoints = endpoints;
+        }
+    }
+
+    /**
+     * Cache policy for one endpoint; endpoints without an entry are not cached
+     */
+    public static class Endpoint {
+
+        /** Whether this endpoint uses the cache */
+        private boolean enabled = true;
+
+        /** Minimum cosine similarity between questions for a hit */
+        private double threshold = 0.95;
+
+        /** How long an answer may be served from the cache */
+        private Duration ttl = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(double threshold) {
+            this.threshold = threshold;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * Coalescing and result cache for the structured output endpoints
+     */
+    public static class StructuredCache {
+
+        /** Most converted results kept; least recently used is evicted first */
+        private int maxEntries = 500;
+
+        /** How long a converted result is reused; zero only coalesces concurrent calls */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * Concurrency limit and fair scheduling in front of the chat model
+     */
+    public static class Bulkhead {
+
+        /** Whether chat model calls go through the bulkhead */
+        private boolean enabled = true;
+
+        /** Calls allowed to run against the model at once */
+        private int maxConcurrent = 4;
+
+        /** Calls allowed to wait for a slot; further calls are rejected with 503 */
+        private int maxWaiting = 1000;
+
+        /** Longest a call waits for a slot before it is rejected with 503 */
+        private Duration maxWait = Duration.ofSeconds(60);
+
+        /** Share of freed slots each priority class gets while several classes are waiting */
+        private Map<Priority, Integer> weights = new EnumMap<>(Map.of(
+            Priority.INTERACTIVE, 8, Priority.BATCH, 2, Priority.INGESTION, 1));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxWaiting() {
+            return maxWaiting;
+        }
+
+        public void setMaxWaiting(int maxWaiting) {
+            this.maxWaiting = maxWaiting;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Map<Priority, Integer> getWeights() {
+            return weights;
+        }
+
+        public void setWeights(Map<Priority, Integer> weights) {
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Conversation memory used by the ChatClient demo
+     */
+    public static class Memory {
+
+        /** Tokens of history kept per conversation; older messages are dropped first */
+        private int maxTokens = 4000;
+
+        /** How long an unused conversation stays in memory before it is moved to disk */
+        private Duration idleTimeout = Duration.ofMinutes(15);
+
+        /** Conversations kept in memory; the least recently used beyond this are moved to disk */
+        private int maxConversations = 10000;
+
+        /** Number of concurrent maps conversations are spread over */
+        private int stripes = 16;
+
+        /** Append-only file holding conversations moved out of memory */
+        private String logFile = "data/chat-memory.log";
+
+        /** Size past which the log is compacted */
+        private DataSize logMaxSize = DataSize.ofMegabytes(256);
+
+        /** How often idle conversations are looked for */
+        private Duration sweepInterval = Duration.ofMinutes(1);
+
+        private final Compaction compaction = new Compaction();
+
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        public void setMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public int getMaxConversations() {
+            return maxConversations;
+        }
+
+        public void setMaxConversations(int maxConversations) {
+            this.maxConversations = maxConversations;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public String getLogFile() {
+            return logFile;
+        }
+
+        public void setLogFile(String logFile) {
+            this.logFile = logFile;
+        }
+
+        public DataSize getLogMaxSize() {
+            return logMaxSize;
+        }
+
+        public void setLogMaxSize(DataSize logMaxSize) {
+            this.logMaxSize = logMaxSize;
+        }
+
+        public Duration getSweepInterval() {
+            return sweepInterval;
+        }
+
+        public void setSweepInterval(Duration sweepInterval) {
+            this.sweepInterval = sweepInterval;
+        }
+
+        public Compaction getCompaction() {
+            return compaction;
+        }
+    }
+
+    public static class Compaction {
+
+        /** Summarize older turns instead of replaying them verbatim */
+        private boolean enabled = true;
+
+        /** History size (tokens) that triggers a summary; keep it below {@code maxTokens} */
+        private int triggerTokens = 2000;
+
+        /** Most recent messages always kept verbatim */
+        private int keepMessages = 4;
+
+        /** Length the summary is asked to stay within */
+        private int summaryWords = 150;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getTriggerTokens() {
+            return triggerTokens;
+        }
+
+        public void setTriggerTokens(int triggerTokens) {
+            this.triggerTokens = triggerTokens;
+        }
+
+        public int getKeepMessages() {
+            return keepMessages;
+        }
+
+        public void setKeepMessages(int keepMessages) {
+            this.keepMessages = keepMessages;
+        }
+
+        public int getSummaryWords() {
+            return summaryWords;
+        }
+
+        public void setSummaryWords(int summaryWords) {
+            this.summaryWords = summaryWords;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.springai.config;
+
+import com.example.springai.service.ChatRequestContext;
+import com.example.springai.service.ChatRequestContext.Priority;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Binds a {@link ChatRequestContext} to each API request from its headers:
+ * {@code X-Chat-Priority} (interactive, batch or ingestion), {@code X-Client-Id} (fairness key,
+ * defaulting to the remote address) and {@code X-Request-Timeout} (milliseconds the caller
+ * is prepared to wait). Uploads default to the ingestion class, everything else to interactive.
+ */
+public class ChatSchedulingInterceptor implements AsyncHandlerInterceptor {
+
+    static final String PRIORITY_HEADER = "X-Chat-Priority";
+    static final String CLIENT_HEADER = "X-Client-Id";
+    static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Priority fallback = request.getRequestURI().startsWith("/api/rag/upload")
+            ? Priority.INGESTION
+            : Priority.INTERACTIVE;
+        Priority priority = Priority.parse(request.getHeader(PRIORITY_HEADER), fallback);
+
+        String client = request.getHeader(CLIENT_HEADER);
+        String key = client != null && !client.isBlank() ? "client:" + client : "addr:" + request.getRemoteAddr();
+
+        ChatRequestContext.set(ChatRequestContext.of(priority, key, parseTimeout(request.getHeader(TIMEOUT_HEADER))));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        ChatRequestContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        ChatRequestContext.clear();
+    }
+
+    private static Duration parseTimeout(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
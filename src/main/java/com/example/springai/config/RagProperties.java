@@ -0,0 +1,578 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for the RAG pipeline (prefix {@code rag})
+ */
+@ConfigurationProperties(prefix = "rag")
+public class RagProperties {
+
+    private final Store store = new Store();
+    private final Index index = new Index();
+    private final Embedding embedding = new Embedding();
+    private final Ingestion ingestion = new Ingestion();
+    private final Retrieval retrieval = new Retrieval();
+
+    public Store getStore() {
+        return store;
+    }
+
+    public Index getIndex() {
+        return index;
+    }
+
+    public Embedding getEmbedding() {
+        return embedding;
+    }
+
+    public Ingestion getIngestion() {
+        return ingestion;
+    }
+
+    public Retrieval getRetrieval() {
+        return retrieval;
+    }
+
+    /**
+     * Memory-mapped vector store settings
+     */
+    public static class Store {
+
+        /** Directory holding the vector segments and the chunk side file */
+        private String directory = "data/vector-store";
+
+        /** Number of vectors per memory-mapped segment file */
+        private int segmentCapacity = 65536;
+
+        /** Share of deleted chunks at which the store is compacted in the background */
+        private double compactionRatio = 0.2;
+
+        /** Deleted chunks needed before a compaction is worth it, whatever the ratio */
+        private int compactionMinDeleted = 1000;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentCapacity() {
+            return segmentCapacity;
+        }
+
+        public void setSegmentCapacity(int segmentCapacity) {
+            this.segmentCapacity = segmentCapacity;
+        }
+
+        public double getCompactionRatio() {
+            return compactionRatio;
+        }
+
+        public void setCompactionRatio(double compactionRatio) {
+            this.compactionRatio = compactionRatio;
+        }
+
+        public int getCompactionMinDeleted() {
+            return compactionMinDeleted;
+        }
+
+        public void setCompactionMinDeleted(int compactionMinDeleted) {
+            this.compactionMinDeleted = compactionMinDeleted;
+        }
+    }
+
+    /**
+     * Search index settings
+     */
+    public static class Index {
+
+        /** Index type used by the vector store */
+        private IndexType type = IndexType.HNSW;
+
+        /** Max links per node on upper layers (twice that on the bottom layer) */
+        private int m = 16;
+
+        /** Candidate list size while inserting; higher builds a better graph, slower */
+        private int efConstruction = 100;
+
+        /** Candidate list size while searching; higher improves recall, slower */
+        private int efSearch = 64;
+
+        /** Quantized indexes: candidates rescored against the full-precision vectors, per result */
+        private int rescoreFactor = 8;
+
+        /** Product quantization: bytes per vector (subspaces the dimensions are split into) */
+        private int pqSubspaces = 96;
+
+        /** Product quantization: vectors stored before the codebooks are learned from them */
+        private int pqTrainingSize = 4096;
+
+        public IndexType getType() {
+            return type;
+        }
+
+        public void setType(IndexType type) {
+            this.type = type;
+        }
+
+        public int getM() {
+            return m;
+        }
+
+        public void setM(int m) {
+            this.m = m;
+        }
+
+        public int getEfConstruction() {
+            return efConstruction;
+        }
+
+        public void setEfConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+        }
+
+        public int getEfSearch() {
+            return efSearch;
+        }
+
+        public void setEfSearch(int efSearch) {
+            this.efSearch = efSearch;
+        }
+
+        public int getRescoreFactor() {
+            return rescoreFactor;
+        }
+
+        public void setRescoreFactor(int rescoreFactor) {
+            this.rescoreFactor = rescoreFactor;
+        }
+
+        public int getPqSubspaces() {
+            return pqSubspaces;
+        }
+
+        public void setPqSubspaces(int pqSubspaces) {
+            this.pqSubspaces = pqSubspaces;
+        }
+
+        public int getPqTrainingSize() {
+            return pqTrainingSize;
+        }
+
+        public void setPqTrainingSize(int pqTrainingSize) {
+            this.pqTrainingSize = pqTrainingSize;
+        }
+    }
+
+    /**
+     * Embedding pipeline settings
+     */
+    public static class Embedding {
+
+        private final Batch batch = new Batch();
+        private final Cache cache = new Cache();
+
+        public Batch getBatch() {
+            return batch;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+    }
+
+    /**
+     * Content-addressed embedding cache
+     */
+    public static class Cache {
+
+        /** Off-heap memory for the LRU tier */
+        private DataSize memorySize = DataSize.ofMegabytes(64);
+
+        /** File for the on-disk tier; leave empty to keep the cache in memory only */
+        private String diskFile = "";
+
+        /** Size at which the on-disk tier is started over */
+        private DataSize diskSize = DataSize.ofGigabytes(1);
+
+        public DataSize getMemorySize() {
+            return memorySize;
+        }
+
+        public void setMemorySize(DataSize memorySize) {
+            this.memorySize = memorySize;
+        }
+
+        public String getDiskFile() {
+            return diskFile;
+        }
+
+        public void setDiskFile(String diskFile) {
+            this.diskFile = diskFile;
+        }
+
+        public DataSize getDiskSize() {
+            return diskSize;
+        }
+
+        public void setDiskSize(DataSize diskSize) {
+            this.diskSize = diskSize;
+        }
+    }
+
+    /**
+     * Micro-batching of embed calls from concurrent callers
+     */
+    public static class Batch {
+
+        /** Largest number of texts sent in one embed call */
+        private int maxBatchSize = 64;
+
+        /** How long the first text of a batch waits for company */
+        private Duration maxWait = Duration.ofMillis(5);
+
+        /** Batches allowed in flight at once */
+        private int concurrency = 2;
+
+        /** Texts allowed to wait for a batch before callers are blocked */
+        private int queueCapacity = 4096;
+
+        /** How long a caller blocks on a full queue before it is rejected */
+        private Duration enqueueTimeout = Duration.ofSeconds(30);
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getEnqueueTimeout() {
+            return enqueueTimeout;
+        }
+
+        public void setEnqueueTimeout(Duration enqueueTimeout) {
+            this.enqueueTimeout = enqueueTimeout;
+        }
+    }
+
+    /**
+     * Document ingestion settings
+     */
+    public static class Ingestion {
+
+        /** Largest chunk, in tokens */
+        private int chunkTokens = 256;
+
+        /** Tokens of trailing sentences repeated at the start of the next chunk */
+        private int chunkOverlapTokens = 32;
+
+        /** How chunk sizes are measured */
+        private Tokenizer tokenizer = Tokenizer.APPROXIMATE;
+
+        /** Text documents at least twice this many characters are chunked in parallel */
+        private int parallelChunkMinChars = 262144;
+
+        /** Chunks embedded and written to the store together while streaming a document */
+        private int indexBatchSize = 32;
+
+        /** PDF pages extracted in parallel */
+        private int pdfParallelism = Runtime.getRuntime().availableProcessors();
+
+        private final Bulk bulk = new Bulk();
+
+        public int getChunkTokens() {
+            return chunkTokens;
+        }
+
+        public void setChunkTokens(int chunkTokens) {
+            this.chunkTokens = chunkTokens;
+        }
+
+        public int getChunkOverlapTokens() {
+            return chunkOverlapTokens;
+        }
+
+        public void setChunkOverlapTokens(int chunkOverlapTokens) {
+            this.chunkOverlapTokens = chunkOverlapTokens;
+        }
+
+        public Tokenizer getTokenizer() {
+            return tokenizer;
+        }
+
+        public void setTokenizer(Tokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
+        public int getParallelChunkMinChars() {
+            return parallelChunkMinChars;
+        }
+
+        public void setParallelChunkMinChars(int parallelChunkMinChars) {
+            this.parallelChunkMinChars = parallelChunkMinChars;
+        }
+
+        public int getIndexBatchSize() {
+            return indexBatchSize;
+        }
+
+        public void setIndexBatchSize(int indexBatchSize) {
+            this.indexBatchSize = indexBatchSize;
+        }
+
+        public int getPdfParallelism() {
+            return pdfParallelism;
+        }
+
+        public void setPdfParallelism(int pdfParallelism) {
+            this.pdfParallelism = pdfParallelism;
+        }
+
+        public Bulk getBulk() {
+            return bulk;
+        }
+    }
+
+    /**
+     * Bulk ingestion jobs (zip, JSONL or server directory)
+     */
+    public static class Bulk {
+
+        /** Threads chunking documents in each job */
+        private int chunkWorkers = Runtime.getRuntime().availableProcessors();
+
+        /** Threads embedding chunk batches in each job */
+        private int embedWorkers = 4;
+
+        /** Documents or batches waiting between two stages before the earlier stage blocks */
+        private int queueCapacity = 64;
+
+        /** Jobs running at once; later ones wait */
+        private int maxConcurrentJobs = 2;
+
+        /** Finished jobs kept for the progress API */
+        private int retainedJobs = 100;
+
+        /** Most recent errors kept per job */
+        private int maxErrors = 100;
+
+        /** Server directories that may be ingested, with their subdirectories */
+        private List<String> allowedDirectories = new ArrayList<>(List.of("test-documents"));
+
+        public int getChunkWorkers() {
+            return chunkWorkers;
+        }
+
+        public void setChunkWorkers(int chunkWorkers) {
+            this.chunkWorkers = chunkWorkers;
+        }
+
+        public int getEmbedWorkers() {
+            return embedWorkers;
+        }
+
+        public void setEmbedWorkers(int embedWorkers) {
+            this.embedWorkers = embedWorkers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxConcurrentJobs() {
+            return maxConcurrentJobs;
+        }
+
+        public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+            this.maxConcurrentJobs = maxConcurrentJobs;
+        }
+
+        public int getRetainedJobs() {
+            return retainedJobs;
+        }
+
+        public void setRetainedJobs(int retainedJobs) {
+            this.retainedJobs = retainedJobs;
+        }
+
+        public int getMaxErrors() {
+            return maxErrors;
+        }
+
+        public void setMaxErrors(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        public List<String> getAllowedDirectories() {
+            return allowedDirectories;
+        }
+
+        public void setAllowedDirectories(List<String> allowedDirectories) {
+            this.allowedDirectories = allowedDirectories;
+        }
+    }
+
+    public enum Tokenizer {
+        /** Character-class heuristic, allocation-free */
+        APPROXIMATE,
+        /** Exact cl100k_base counts through JTokkit */
+        JTOKKIT
+    }
+
+    public enum IndexType {
+        /** Brute-force scan of every vector */
+        EXACT,
+        /** Approximate nearest neighbours over an HNSW graph */
+        HNSW,
+        /** Scan of int8 codes (4x smaller), top candidates rescored at full precision */
+        INT8,
+        /** Scan of product-quantized codes (e.g. 32x smaller), top candidates rescored at full precision */
+        PQ
+    }
+
+    /**
+     * Hybrid (vector + BM25) retrieval settings
+     */
+    public static class Retrieval {
+
+        /** Chunks passed to the model as context at most (before adjacent ones are merged) */
+        private int topK = 4;
+
+        /** Chunks fetched from each ranking before fusion */
+        private int candidates = 20;
+
+        /** Reciprocal-rank fusion constant; higher flattens the advantage of top ranks */
+        private int rrfK = 60;
+
+        /** Default weight of the vector ranking; 0 skips the vector search */
+        private double vectorWeight = 1.0;
+
+        /** Default weight of the BM25 ranking; 0 skips the lexical search */
+        private double lexicalWeight = 1.0;
+
+        /** Tokens of retrieved context allowed in a prompt, unless set for the chat model below */
+        private int contextTokens = 2048;
+
+        /** Context token budget per chat model name, for models with smaller or larger windows */
+        private Map<String, Integer> modelContextTokens = new LinkedHashMap<>();
+
+        /** Relevance against diversity when picking chunks (maximal marginal relevance): 1 is relevance only */
+        private double mmrLambda = 0.7;
+
+        /** Word overlap (Jaccard) from which a chunk is dropped as a near-duplicate of one already picked */
+        private double duplicateSimilarity = 0.9;
+
+        public int getTopK() {
+            return topK;
+        }
+
+        public void setTopK(int topK) {
+            this.topK = topK;
+        }
+
+        public int getCandidates() {
+            return candidates;
+        }
+
+        public void setCandidates(int candidates) {
+            this.candidates = candidates;
+        }
+
+        public int getRrfK() {
+            return rrfK;
+        }
+
+        public void setRrfK(int rrfK) {
+            this.rrfK = rrfK;
+        }
+
+        public double getVectorWeight() {
+            return vectorWeight;
+        }
+
+        public void setVectorWeight(double vectorWeight) {
+            this.vectorWeight = vectorWeight;
+        }
+
+        public double getLexicalWeight() {
+            return lexicalWeight;
+        }
+
+        public void setLexicalWeight(double lexicalWeight) {
+            this.lexicalWeight = lexicalWeight;
+        }
+
+        public int getContextTokens() {
+            return contextTokens;
+        }
+
+        public void setContextTokens(int contextTokens) {
+            this.contextTokens = contextTokens;
+        }
+
+        public Map<String, Integer> getModelContextTokens() {
+            return modelContextTokens;
+        }
+
+        public void setModelContextTokens(Map<String, Integer> modelContextTokens) {
+            this.modelContextTokens = modelContextTokens;
+        }
+
+        public double getMmrLambda() {
+            return mmrLambda;
+        }
+
+        public void setMmrLambda(double mmrLambda) {
+            this.mmrLambda = mmrLambda;
+        }
+
+        public double getDuplicateSimilarity() {
+            return duplicateSimilarity;
+        }
+
+        public void setDuplicateSimilarity(double duplicateSimilarity) {
+            this.duplicateSimilarity = duplicateSimilarity;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.springai.config;
+
+import com.example.springai.memory.BoundedChatMemory;
+import com.example.springai.memory.ConversationCompactionAdvisor;
+import com.example.springai.service.BatchingEmbeddingModel;
+import com.example.springai.service.BulkIngestionService;
+import com.example.springai.service.BulkheadChatModel;
+import com.example.springai.service.CachingEmbeddingModel;
+import com.example.springai.service.ChatScheduler;
+import com.example.springai.service.ContextPacker;
+import com.example.springai.service.MeteredChatModel;
+import com.example.springai.service.MeteredEmbeddingModel;
+import com.example.springai.service.PdfTextExtractor;
+import com.example.springai.service.PromptRegistry;
+import com.example.springai.service.RagService;
+import com.example.springai.service.SemanticResponseCache;
+import com.example.springai.service.SingleFlightCache;
+import com.example.springai.service.StreamMetrics;
+import com.example.springai.service.StreamingChunker;
+import com.example.springai.service.TextChunker;
+import com.example.springai.service.TokenCounter;
+import com.example.springai.vectorstore.ExactVectorIndex;
+import com.example.springai.vectorstore.HnswVectorIndex;
+import com.example.springai.vectorstore.MappedVectorStore;
+import com.example.springai.vectorstore.QuantizedVectorIndex;
+import com.example.springai.vectorstore.VectorIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AI configuration: wires the components shared by the demos
+ */
+@Configuration
+@EnableConfigurationProperties({RagProperties.class, ChatProperties.class})
+public class SpringAiConfig {
+
+    private final EmbeddingModel embeddingModel;
+    private final RagProperties ragProperties;
+    private final ChatProperties chatProperties;
+    private final MeterRegistry meterRegistry;
+    private final String embeddingModelName;
+    private final String chatModelName;
+
+    public SpringAiConfig(EmbeddingModel embeddingModel, RagProperties ragProperties, ChatProperties chatProperties,
+            MeterRegistry meterRegistry,
+            @Value("${spring.ai.ollama.embedding.options.model:}") String embeddingModelName,
+            @Value("${spring.ai.ollama.chat.options.model:}") String chatModelName) {
+        this.embeddingModel = embeddingModel;
+        this.ragProperties = ragProperties;
+        this.chatProperties = chatProperties;
+        this.meterRegistry = meterRegistry;
+        this.embeddingModelName = embeddingModelName;
+        this.chatModelName = chatModelName;
+    }
+
+    /**
+     * Chat model injected everywhere: the metered Ollama model behind a concurrency bulkhead
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "chat.bulkhead", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public BulkheadChatModel bulkheadChatModel(OllamaChatModel ollamaChatModel) {
+        return new BulkheadChatModel(metered(ollamaChatModel), chatScheduler());
+    }
+
+    /**
+     * Chat model injected everywhere when the bulkhead is disabled: the metered Ollama model
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "chat.bulkhead", name = "enabled", havingValue = "false")
+    public MeteredChatModel meteredChatModel(OllamaChatModel ollamaChatModel) {
+        return metered(ollamaChatModel);
+    }
+
+    private MeteredChatModel metered(ChatModel chatModel) {
+        return new MeteredChatModel(chatModel, meterRegistry, modelTag(chatModelName));
+    }
+
+    /**
+     * Time to first token, duration and token rate of the streaming endpoints
+     */
+    @Bean
+    public StreamMetrics streamMetrics() {
+        return new StreamMetrics(meterRegistry);
+    }
+
+    /**
+     * Decides which waiting chat model call runs next (priority, fairness key, deadline)
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "chat.bulkhead", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ChatScheduler chatScheduler() {
+        ChatProperties.Bulkhead bulkhead = chatProperties.getBulkhead();
+        ChatScheduler scheduler = new ChatScheduler(bulkhead.getMaxConcurrent(), bulkhead.getMaxWaiting(),
+            bulkhead.getMaxWait(), bulkhead.getWeights(), meterRegistry);
+
+        Gauge.builder("chat.bulkhead.active", scheduler, ChatScheduler::active).register(meterRegistry);
+        Gauge.builder("chat.bulkhead.waiting", scheduler, ChatScheduler::waiting).register(meterRegistry);
+        return scheduler;
+    }
+
+    /**
+     * Batches embed calls from concurrent requests.
+     * Not an autowire candidate, so injecting {@link EmbeddingModel} elsewhere still gets the raw model.
+     */
+    @Bean(destroyMethod = "close", autowireCandidate = false)
+    public BatchingEmbeddingModel embeddingBatcher() {
+        RagProperties.Batch batch = ragProperties.getEmbedding().getBatch();
+        MeteredEmbeddingModel metered = new MeteredEmbeddingModel(embeddingModel, meterRegistry,
+            modelTag(embeddingModelName));
+        return new BatchingEmbeddingModel(metered, batch.getMaxBatchSize(), batch.getMaxWait(),
+            batch.getConcurrency(), batch.getQueueCapacity(), batch.getEnqueueTimeout());
+    }
+
+    /**
+     * Embedding model used for RAG: cache first, then the batcher
+     */
+    @Bean(destroyMethod = "close", autowireCandidate = false)
+    public CachingEmbeddingModel ragEmbeddingModel() throws IOException {
+        RagProperties.Cache cache = ragProperties.getEmbedding().getCache();
+        BatchingEmbeddingModel batcher = embeddingBatcher();
+        // Cache keys include the model so switching models never serves stale vectors
+        String model = embeddingModel.getClass().getName() + "/" + embeddingModelName;
+        CachingEmbeddingModel caching = cache.getDiskFile().isBlank()
+            ? CachingEmbeddingModel.inMemory(batcher, model, cache.getMemorySize().toBytes())
+            : CachingEmbeddingModel.withDisk(batcher, model, cache.getMemorySize().toBytes(),
+                Path.of(cache.getDiskFile()), cache.getDiskSize().toBytes());
+
+        FunctionCounter.builder("rag.embedding.cache.lookups", caching, CachingEmbeddingModel::memoryHits)
+            .tags("result", "hit", "tier", "memory").register(meterRegistry);
+        FunctionCounter.builder("rag.embedding.cache.lookups", caching, CachingEmbeddingModel::diskHits)
+            .tags("result", "hit", "tier", "disk").register(meterRegistry);
+        FunctionCounter.builder("rag.embedding.cache.lookups", caching, CachingEmbeddingModel::misses)
+            .tags("result", "miss", "tier", "none").register(meterRegistry);
+        Gauge.builder("rag.embedding.cache.entries", caching, CachingEmbeddingModel::memoryEntries)
+            .tag("tier", "memory").register(meterRegistry);
+        Gauge.builder("rag.embedding.cache.hit.ratio", caching, CachingEmbeddingModel::hitRatio)
+            .register(meterRegistry);
+        return caching;
+    }
+
+    /**
+     * Token counts for chunking and context budgets, per {@code rag.ingestion.tokenizer}
+     */
+    @Bean
+    public TokenCounter tokenCounter() {
+        return switch (ragProperties.getIngestion().getTokenizer()) {
+            case APPROXIMATE -> TokenCounter.approximate();
+            case JTOKKIT -> TokenCounter.of(new JTokkitTokenCountEstimator());
+        };
+    }
+
+    /**
+     * Splits documents into token-sized, overlapping chunks before they are embedded
+     */
+    @Bean
+    public TextChunker textChunker() {
+        RagProperties.Ingestion ingestion = ragProperties.getIngestion();
+        return new StreamingChunker(tokenCounter(), ingestion.getChunkTokens(), ingestion.getChunkOverlapTokens(),
+            ingestion.getParallelChunkMinChars());
+    }
+
+    /**
+     * Fits retrieved chunks into the RAG prompt's token budget for the configured chat model
+     */
+    @Bean
+    public ContextPacker contextPacker() {
+        RagProperties.Retrieval retrieval = ragProperties.getRetrieval();
+        int budget = retrieval.getModelContextTokens().getOrDefault(chatModelName, retrieval.getContextTokens());
+        ContextPacker packer = new ContextPacker(tokenCounter(), retrieval.getTopK(), budget, retrieval.getMmrLambda(),
+            retrieval.getDuplicateSimilarity());
+
+        FunctionCounter.builder("rag.context.tokens", packer, ContextPacker::packedTokens)
+            .tag("result", "sent").register(meterRegistry);
+        FunctionCounter.builder("rag.context.tokens", packer, ContextPacker::savedTokens)
+            .tag("result", "saved").register(meterRegistry);
+        FunctionCounter.builder("rag.context.duplicates", packer, ContextPacker::duplicates).register(meterRegistry);
+        return packer;
+    }
+
+    /**
+     * Persistent vector store used by the RAG demo
+     */
+    @Bean(destroyMethod = "close")
+    public MappedVectorStore vectorStore() throws IOException {
+        RagProperties.Store store = ragProperties.getStore();
+        MappedVectorStore vectorStore = MappedVectorStore.open(ragEmbeddingModel(), Path.of(store.getDirectory()),
+            store.getSegmentCapacity(), indexFactory(ragProperties.getIndex()), store.getCompactionRatio(),
+            store.getCompactionMinDeleted());
+
+        Gauge.builder("rag.store.chunks", vectorStore, MappedVectorStore::size)
+            .tag("state", "live").register(meterRegistry);
+        Gauge.builder("rag.store.chunks", vectorStore, MappedVectorStore::deleted)
+            .tag("state", "deleted").register(meterRegistry);
+        return vectorStore;
+    }
+
+    /**
+     * Background bulk ingestion jobs, embedding through the same cached model as single uploads
+     */
+    @Bean(destroyMethod = "close")
+    public BulkIngestionService bulkIngestionService(RagService ragService, ObjectMapper objectMapper)
+            throws IOException {
+        RagProperties.Ingestion ingestion = ragProperties.getIngestion();
+        RagProperties.Bulk bulk = ingestion.getBulk();
+        List<Path> allowedDirectories = bulk.getAllowedDirectories().stream().map(Path::of).toList();
+        return new BulkIngestionService(ragService, textChunker(), vectorStore(), ragEmbeddingModel(),
+            new PdfTextExtractor(ingestion.getPdfParallelism()), objectMapper,
+            new BulkIngestionService.Settings(bulk.getChunkWorkers(), bulk.getEmbedWorkers(),
+                bulk.getQueueCapacity(), ingestion.getIndexBatchSize(), bulk.getMaxConcurrentJobs(),
+                bulk.getRetainedJobs(), bulk.getMaxErrors(), allowedDirectories));
+    }
+
+    /**
+     * Semantic answer cache for the simple chat endpoints (no endpoint is cached unless enabled)
+     */
+    @Bean
+    public SemanticResponseCache semanticResponseCache() throws IOException {
+        ChatProperties.SemanticCache cache = chatProperties.getSemanticCache();
+        Map<String, SemanticResponseCache.Policy> policies = new HashMap<>();
+        if (cache.isEnabled()) {
+            cache.getEndpoints().forEach((name, endpoint) -> {
+                if (endpoint.isEnabled()) {
+                    policies.put(name, new SemanticResponseCache.Policy(endpoint.getThreshold(), endpoint.getTtl()));
+                }
+            });
+        }
+        return new SemanticResponseCache(ragEmbeddingModel(), policies, cache.getMaxEntries(), meterRegistry);
+    }
+
+    /**
+     * Shares model calls between identical structured output requests
+     */
+    @Bean
+    public SingleFlightCache structuredOutputCache() {
+        ChatProperties.StructuredCache cache = chatProperties.getStructuredCache();
+        return new SingleFlightCache(cache.getMaxEntries(), cache.getTtl(), meterRegistry, "chat.structured");
+    }
+
+    /**
+     * Conversation memory: token-capped per conversation, idle conversations moved to disk
+     */
+    @Bean(destroyMethod = "close")
+    public BoundedChatMemory chatMemory() throws IOException {
+        ChatProperties.Memory memory = chatProperties.getMemory();
+        BoundedChatMemory chatMemory = new BoundedChatMemory(new JTokkitTokenCountEstimator(), memory.getStripes(),
+            memory.getMaxTokens(), memory.getIdleTimeout(), memory.getMaxConversations(),
+            Path.of(memory.getLogFile()), memory.getLogMaxSize().toBytes(), memory.getSweepInterval());
+
+        Gauge.builder("chat.memory.conversations", chatMemory, BoundedChatMemory::residentConversations)
+            .tag("tier", "memory").register(meterRegistry);
+        Gauge.builder("chat.memory.conversations", chatMemory, BoundedChatMemory::storedConversations)
+            .tag("tier", "disk").register(meterRegistry);
+        FunctionCounter.builder("chat.memory.evictions.failed", chatMemory, BoundedChatMemory::failedEvictions)
+            .register(meterRegistry);
+        return chatMemory;
+    }
+
+    /**
+     * Summarizes older turns of long conversations in the background
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "chat.memory.compaction", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+    public ConversationCompactionAdvisor conversationCompactionAdvisor(ChatModel chatModel, PromptRegistry prompts)
+            throws IOException {
+        ChatProperties.Compaction compaction = chatProperties.getMemory().getCompaction();
+        ConversationCompactionAdvisor advisor = new ConversationCompactionAdvisor(chatMemory(), chatModel, prompts,
+            compaction.getTriggerTokens(), compaction.getKeepMessages(), compaction.getSummaryWords());
+
+        FunctionCounter.builder("chat.memory.compactions", advisor, ConversationCompactionAdvisor::compactions)
+            .register(meterRegistry);
+        FunctionCounter.builder("chat.memory.compactions.failed", advisor,
+                ConversationCompactionAdvisor::failedCompactions)
+            .register(meterRegistry);
+        return advisor;
+    }
+
+    private VectorIndex.Factory indexFactory(RagProperties.Index index) {
+        return switch (index.getType()) {
+            case EXACT -> (values, directory) -> new ExactVectorIndex(values);
+            case HNSW -> (values, directory) -> HnswVectorIndex.open(values, directory.resolve("hnsw.graph"),
+                index.getM(), index.getEfConstruction(), index.getEfSearch());
+            case INT8 -> (values, directory) -> QuantizedVectorIndex.openScalar(values,
+                directory.resolve("int8.codes"), index.getRescoreFactor());
+            case PQ -> (values, directory) -> QuantizedVectorIndex.openProduct(values, directory.resolve("pq.codes"),
+                index.getPqSubspaces(), index.getPqTrainingSize(), index.getRescoreFactor());
+        };
+    }
+
+    private static String modelTag(String model) {
+        return model.isBlank() ? "default" : model;
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.springai.controller;
 
+import com.example.springai.memory.ConversationCompactionAdvisor;
+import com.example.springai.service.ChatRequestContext;
+import com.example.springai.service.SemanticResponseCache;
+import com.example.springai.service.StreamMetrics;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,29 +24,39 @@ public class ChatClientController {
 
     private final ChatClient chatClient;
     private final ChatMemory chatMemory;
+    private final SemanticResponseCache responseCache;
+    private final StreamMetrics streamMetrics;
 
-    public ChatClientController(ChatClient.Builder chatClientBuilder) {
-        this.chatMemory = new InMemoryChatMemory();
-        this.chatClient = chatClientBuilder
-            .defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory))
-            .build();
+    public ChatClientController(ChatClient.Builder chatClientBuilder, ChatMemory chatMemory,
+            SemanticResponseCache responseCache, ObjectProvider<ConversationCompactionAdvisor> compaction,
+            StreamMetrics streamMetrics) {
+        this.responseCache = responseCache;
+        this.streamMetrics = streamMetrics;
+        this.chatMemory = chatMemory;
+        chatClientBuilder.defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory));
+        // Long conversations are summarized rather than replayed in full (chat.memory.compaction)
+        compaction.ifAvailable(chatClientBuilder::defaultAdvisors);
+        this.chatClient = chatClientBuilder.build();
     }
 
     /**
      * Simple chat using ChatClient fluent API
+     * Answers may come from the semantic cache (policy {@code chatclient-ask})
      * Example: GET /api/chatclient/ask?question=What is Java?
      */
     @GetMapping("/ask")
     public Map<String, String> ask(@RequestParam String question) {
-        String response = chatClient.prompt()
-            .user(question)
-            .call()
-            .content();
+        SemanticResponseCache.Answer answer = responseCache.answer("chatclient-ask", question,
+            q -> chatClient.prompt()
+                .user(q)
+                .call()
+                .content());
 
-        return Map.of(
-            "question", question,
-            "answer", response
-        );
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("question", question);
+        result.put("answer", answer.text());
+        result.putAll(answer.metadata());
+        return result;
     }
 
     /**
@@ -78,6 +93,9 @@ public class ChatClientController {
         String conversationId = request.getOrDefault("conversationId", UUID.randomUUID().toString());
         String message = request.get("message");
 
+        // Queue fairly per conversation so one busy conversation cannot starve the others
+        ChatRequestContext.set(ChatRequestContext.current().withFairnessKey("conversation:" + conversationId));
+
         String response = chatClient.prompt()
             .user(message)
             .advisors(advisor -> advisor
@@ -112,9 +130,9 @@ public class ChatClientController {
      */
     @GetMapping(value = "/stream", produces = "text/event-stream")
     public reactor.core.publisher.Flux<String> stream(@RequestParam String question) {
-        return chatClient.prompt()
+        return streamMetrics.timed("chatclient", chatClient.prompt()
             .user(question)
             .stream()
-            .content();
+            .content());
     }
 }
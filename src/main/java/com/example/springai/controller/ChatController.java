@@ -1,5 +1,7 @@
 package com.example.springai.controller;
 
+import com.example.springai.service.SemanticResponseCache;
+import com.example.springai.service.StreamMetrics;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
@@ -8,6 +10,7 @@ import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,22 +23,28 @@ import java.util.Map;
 public class ChatController {
 
     private final ChatModel chatModel;
+    private final SemanticResponseCache responseCache;
+    private final StreamMetrics streamMetrics;
 
-    public ChatController(ChatModel chatModel) {
+    public ChatController(ChatModel chatModel, SemanticResponseCache responseCache, StreamMetrics streamMetrics) {
         this.chatModel = chatModel;
+        this.responseCache = responseCache;
+        this.streamMetrics = streamMetrics;
     }
 
     /**
      * Simple chat endpoint
+     * Answers may come from the semantic cache (policy {@code chat-simple})
      * Example: GET /api/chat/simple?message=Tell me a joke
      */
     @GetMapping("/simple")
     public Map<String, String> simpleChat(@RequestParam String message) {
-        String response = chatModel.call(message);
-        return Map.of(
-            "question", message,
-            "answer", response
-        );
+        SemanticResponseCache.Answer answer = responseCache.answer("chat-simple", message, chatModel::call);
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("question", message);
+        result.put("answer", answer.text());
+        result.putAll(answer.metadata());
+        return result;
     }
 
     /**
@@ -73,8 +82,8 @@ public class ChatController {
     @GetMapping(value = "/stream", produces = "text/event-stream")
     public Flux<String> streamChat(@RequestParam String message) {
         Prompt prompt = new Prompt(message);
-        return chatModel.stream(prompt)
-            .map(chatResponse -> chatResponse.getResult().getOutput().getContent());
+        return streamMetrics.timed("chat", chatModel.stream(prompt)
+            .map(chatResponse -> chatResponse.getResult().getOutput().getContent()));
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.example.springai.controller;
 
+import com.example.springai.service.CompiledTemplate;
+import com.example.springai.service.PromptRegistry;
 import com.example.springai.service.WeatherService;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.web.bind.annotation.*;
@@ -18,10 +20,17 @@ public class FunctionCallingController {
 
     private final ChatModel chatModel;
     private final WeatherService weatherService;
+    private final CompiledTemplate weatherTemplate;
+    private final CompiledTemplate calculationTemplate;
 
-    public FunctionCallingController(ChatModel chatModel, WeatherService weatherService) {
+    public FunctionCallingController(ChatModel chatModel, WeatherService weatherService, PromptRegistry prompts) {
         this.chatModel = chatModel;
         this.weatherService = weatherService;
+        this.weatherTemplate = prompts.template("functions.weather",
+            "Context: {weather}\n\nQuestion: {question}\n\nAnswer based on the context above.");
+        this.calculationTemplate = prompts.template("functions.calculation",
+            "The calculation result is: {result}\n\nQuestion: {question}\n\n"
+                + "Provide a natural response using this result.");
     }
 
     /**
@@ -44,8 +53,7 @@ public class FunctionCallingController {
         // Create a prompt with the weather information as context
         String prompt = weatherInfo.isEmpty() 
             ? question 
-            : String.format("Context: %s\n\nQuestion: %s\n\nAnswer based on the context above.", 
-                weatherInfo, question);
+            : weatherTemplate.render(weatherInfo, question);
 
         String response = chatModel.call(prompt);
 
@@ -71,10 +79,7 @@ public class FunctionCallingController {
             String calculation = extractCalculation(question);
             if (!calculation.isEmpty()) {
                 String result = calculate(new CalculateRequest(calculation));
-                String prompt = String.format(
-                    "The calculation result is: %s\n\nQuestion: %s\n\nProvide a natural response using this result.",
-                    result, question
-                );
+                String prompt = calculationTemplate.render(result, question);
                 String response = chatModel.call(prompt);
                 return Map.of(
                     "question", question,
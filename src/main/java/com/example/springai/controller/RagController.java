@@ -1,11 +1,29 @@
 package com.example.springai.controller;
 
+import com.example.springai.service.BulkIngestionService;
+import com.example.springai.service.ChatRequestContext;
+import com.example.springai.service.IngestionJob;
 import com.example.springai.service.RagService;
+import com.example.springai.service.StreamMetrics;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Demo 4: RAG (Retrieval Augmented Generation)
@@ -16,25 +34,45 @@ import java.util.Map;
 public class RagController {
 
     private final RagService ragService;
+    private final BulkIngestionService bulkIngestion;
+    private final StreamMetrics streamMetrics;
 
-    public RagController(RagService ragService) {
+    public RagController(RagService ragService, BulkIngestionService bulkIngestion, StreamMetrics streamMetrics) {
         this.ragService = ragService;
+        this.bulkIngestion = bulkIngestion;
+        this.streamMetrics = streamMetrics;
     }
 
     /**
-     * Upload and index a text document
+     * Upload and index a text or PDF document
+     * The upload is streamed: text is decoded and chunked as it is read, PDFs are
+     * extracted page by page, so large files never sit on the heap in full.
      * Example: POST /api/rag/upload (with file in form-data)
      */
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public Map<String, String> uploadDocument(@RequestParam("file") MultipartFile file) {
         try {
-            String content = new String(file.getBytes());
-            ragService.indexDocument(file.getOriginalFilename(), content);
+            String filename = file.getOriginalFilename();
+            int chunks;
+            if (isPdf(file)) {
+                Path pdf = Files.createTempFile("rag-upload-", ".pdf");
+                try {
+                    file.transferTo(pdf);
+                    chunks = ragService.indexPdf(filename, pdf);
+                } finally {
+                    Files.deleteIfExists(pdf);
+                }
+            } else {
+                try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+                    chunks = ragService.indexStream(filename, reader);
+                }
+            }
             
             return Map.of(
                 "status", "success",
                 "message", "Document indexed successfully",
-                "filename", file.getOriginalFilename()
+                "filename", filename,
+                "chunks", String.valueOf(chunks)
             );
         } catch (Exception e) {
             return Map.of(
@@ -54,22 +92,112 @@ public class RagController {
         String title = request.get("title");
         String content = request.get("content");
         
-        ragService.indexDocument(title, content);
+        int chunks = ragService.indexDocument(title, content);
         
         return Map.of(
             "status", "success",
             "message", "Content indexed successfully",
-            "title", title
+            "title", title,
+            "chunks", String.valueOf(chunks)
         );
     }
 
+    /**
+     * Start a bulk ingestion job and return its id at once
+     * Accepts a .zip of .txt/.md/.pdf files, a .jsonl file of {"title", "content"} lines,
+     * or a server directory listed under rag.ingestion.bulk.allowed-directories.
+     * Example: POST /api/rag/bulk (with file in form-data) or POST /api/rag/bulk?directory=test-documents
+     */
+    @PostMapping("/bulk")
+    public Map<String, Object> bulkIngest(@RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(required = false) String directory) {
+        try {
+            IngestionJob job;
+            if (file != null) {
+                String filename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload";
+                String lower = filename.toLowerCase();
+                if (!lower.endsWith(".zip") && !lower.endsWith(".jsonl")) {
+                    return Map.of(
+                        "status", "error",
+                        "message", "Expected a .zip or .jsonl file"
+                    );
+                }
+                // The request's copy is gone once we return, so the job works from its own
+                Path upload = Files.createTempFile("rag-bulk-", lower.endsWith(".zip") ? ".zip" : ".jsonl");
+                file.transferTo(upload);
+                job = lower.endsWith(".zip")
+                    ? bulkIngestion.submitZip(upload, filename)
+                    : bulkIngestion.submitJsonl(upload, filename);
+            } else if (directory != null) {
+                job = bulkIngestion.submitDirectory(directory);
+            } else {
+                return Map.of(
+                    "status", "error",
+                    "message", "Give a file or a directory"
+                );
+            }
+            return Map.of(
+                "status", "accepted",
+                "message", "Ingestion started",
+                "jobId", job.id()
+            );
+        } catch (Exception e) {
+            return Map.of(
+                "status", "error",
+                "message", String.valueOf(e.getMessage())
+            );
+        }
+    }
+
+    /**
+     * Progress, throughput and recent errors of a bulk ingestion job
+     * Example: GET /api/rag/jobs/{id}
+     */
+    @GetMapping("/jobs/{id}")
+    public Map<String, Object> job(@PathVariable String id) {
+        return bulkIngestion.job(id)
+            .<Map<String, Object>>map(job -> Map.of(
+                "status", "success",
+                "job", job.progress()
+            ))
+            .orElseGet(() -> Map.of(
+                "status", "not_found",
+                "message", "No job " + id
+            ));
+    }
+
+    /**
+     * Running and recently finished bulk ingestion jobs
+     * Example: GET /api/rag/jobs
+     */
+    @GetMapping("/jobs")
+    public List<IngestionJob.Progress> jobs() {
+        return bulkIngestion.jobs().stream().map(IngestionJob::progress).toList();
+    }
+
     /**
      * Query the knowledge base
-     * Example: GET /api/rag/query?question=What is Spring Boot?
+     * Retrieval merges vector and keyword (BM25) matches; either weight can be overridden, 0 disables it
+     * Either can be restricted to some documents (title, repeatable) and/or by a metadata filter expression
+     * Example: GET /api/rag/query?question=What is Spring Boot?&lexicalWeight=2
+     * Example: GET /api/rag/query?question=What is a bean?&title=spring-framework.txt&filter=chunk in ['0','1']
      */
     @GetMapping("/query")
-    public Map<String, Object> query(@RequestParam String question) {
-        String answer = ragService.queryDocuments(question);
+    public Map<String, Object> query(@RequestParam String question,
+            @RequestParam(required = false) Double vectorWeight,
+            @RequestParam(required = false) Double lexicalWeight,
+            @RequestParam(required = false) String filter,
+            @RequestParam(required = false) List<String> title) {
+        String answer;
+        try {
+            answer = ragService.queryDocuments(question, weights(vectorWeight, lexicalWeight),
+                ragService.filter(filter, title));
+        } catch (IllegalArgumentException e) {
+            return Map.of(
+                "status", "error",
+                "message", String.valueOf(e.getMessage())
+            );
+        }
         
         return Map.of(
             "question", question,
@@ -78,7 +206,95 @@ public class RagController {
     }
 
     /**
-     * Clear the knowledge base
+     * Streaming query: a "sources" event with the retrieved chunks as soon as retrieval is done,
+     * one "token" event per piece of the answer as the model generates it, then a "done" event
+     * with the request's timings (time to first token included) and context token counts.
+     * Takes the same parameters as /query.
+     * Example: GET /api/rag/stream?question=What is Spring Boot?
+     * Returns: Server-Sent Events (SSE) stream
+     */
+    @GetMapping(value = "/stream", produces = "text/event-stream")
+    public Flux<ServerSentEvent<Object>> stream(@RequestParam String question,
+            @RequestParam(required = false) Double vectorWeight,
+            @RequestParam(required = false) Double lexicalWeight,
+            @RequestParam(required = false) String filter,
+            @RequestParam(required = false) List<String> title) {
+        RagService.Weights weights = weights(vectorWeight, lexicalWeight);
+        Filter.Expression expression;
+        try {
+            expression = ragService.filter(filter, title);
+        } catch (IllegalArgumentException e) {
+            return Flux.just(errorEvent(e));
+        }
+        // Bound to this thread only; the chat stream is created on a retrieval thread
+        ChatRequestContext context = ChatRequestContext.current();
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong retrieved = new AtomicLong();
+            AtomicLong firstToken = new AtomicLong();
+            AtomicInteger tokens = new AtomicInteger();
+            return ragService.retrieveContextAsync(question, weights, expression).flatMapMany(packed -> {
+                retrieved.set(System.nanoTime());
+                List<Document> documents = packed.documents();
+                ServerSentEvent<Object> sources = ServerSentEvent.<Object>builder(
+                        documents.stream().map(RagController::citation).toList())
+                    .event("sources")
+                    .build();
+                Flux<String> answer;
+                ChatRequestContext.set(context);
+                try {
+                    answer = ragService.streamAnswer(question, documents);
+                } finally {
+                    ChatRequestContext.clear();
+                }
+                Flux<ServerSentEvent<Object>> answerTokens = answer
+                    .doOnNext(token -> {
+                        firstToken.compareAndSet(0, System.nanoTime());
+                        tokens.incrementAndGet();
+                    })
+                    .map(token -> ServerSentEvent.<Object>builder(token).event("token").build());
+                Mono<ServerSentEvent<Object>> done = Mono.fromSupplier(() -> {
+                    long end = System.nanoTime();
+                    streamMetrics.record("rag", start, firstToken.get(), end, tokens.get());
+                    Map<String, Object> timings = new LinkedHashMap<>();
+                    timings.put("retrievalMs", millis(start, retrieved.get()));
+                    timings.put("timeToFirstTokenMs", firstToken.get() == 0 ? null : millis(start, firstToken.get()));
+                    timings.put("totalMs", millis(start, end));
+                    timings.put("tokens", tokens.get());
+                    timings.put("contextTokens", packed.tokens());
+                    timings.put("contextTokensSaved", packed.tokensSaved());
+                    return ServerSentEvent.<Object>builder(timings).event("done").build();
+                });
+                return Flux.just(sources).concatWith(answerTokens).concatWith(done);
+            }).onErrorResume(IllegalArgumentException.class, e -> Flux.just(errorEvent(e)));
+        });
+    }
+
+    /**
+     * Delete a document (all chunks with that title) or a single chunk by id
+     * Example: DELETE /api/rag/documents?title=spring-framework.txt
+     */
+    @DeleteMapping("/documents")
+    public Map<String, String> deleteDocument(@RequestParam(required = false) String title,
+            @RequestParam(required = false) String id) {
+        if (title == null && id == null) {
+            return Map.of(
+                "status", "error",
+                "message", "Give a title or an id"
+            );
+        }
+        int deleted = title != null
+            ? ragService.deleteDocument(title)
+            : (ragService.deleteChunks(List.of(id)) ? 1 : 0);
+        return Map.of(
+            "status", deleted > 0 ? "success" : "not_found",
+            "message", deleted + " chunks deleted",
+            "chunks", String.valueOf(deleted)
+        );
+    }
+
+    /**
+     * Clear the knowledge base: every chunk and the files behind the store
      * Example: DELETE /api/rag/clear
      */
     @DeleteMapping("/clear")
@@ -89,4 +305,40 @@ public class RagController {
             "message", "Knowledge base cleared"
         );
     }
+
+    private RagService.Weights weights(Double vectorWeight, Double lexicalWeight) {
+        RagService.Weights defaults = ragService.defaultWeights();
+        return new RagService.Weights(
+            vectorWeight != null ? vectorWeight : defaults.vector(),
+            lexicalWeight != null ? lexicalWeight : defaults.lexical());
+    }
+
+    private static ServerSentEvent<Object> errorEvent(Exception e) {
+        return ServerSentEvent.<Object>builder(Map.of(
+            "status", "error",
+            "message", String.valueOf(e.getMessage())
+        )).event("error").build();
+    }
+
+    /**
+     * What a client needs to cite a retrieved chunk
+     */
+    private static Map<String, Object> citation(Document document) {
+        Map<String, Object> citation = new LinkedHashMap<>();
+        citation.put("id", document.getId());
+        citation.put("title", document.getMetadata().get("title"));
+        citation.put("chunk", document.getMetadata().get("chunk"));
+        citation.put("score", document.getMetadata().get("rrfScore"));
+        return citation;
+    }
+
+    private static double millis(long from, long to) {
+        return (to - from) / 1_000_000.0;
+    }
+
+    private boolean isPdf(MultipartFile file) {
+        String filename = file.getOriginalFilename();
+        return MediaType.APPLICATION_PDF_VALUE.equals(file.getContentType())
+            || (filename != null && filename.toLowerCase().endsWith(".pdf"));
+    }
 }
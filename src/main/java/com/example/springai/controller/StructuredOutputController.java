@@ -3,13 +3,20 @@ package com.example.springai.controller;
 import com.example.springai.model.BookRecommendation;
 import com.example.springai.model.RecipeResponse;
 import com.example.springai.model.WeatherResponse;
+import com.example.springai.service.CompiledTemplate;
+import com.example.springai.service.IncrementalJsonParser;
+import com.example.springai.service.PromptRegistry;
+import com.example.springai.service.PromptRegistry.OutputSchema;
+import com.example.springai.service.SingleFlightCache;
+import com.example.springai.service.StreamMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Demo 2: Structured Output
@@ -19,38 +26,65 @@ import java.util.Map;
 @RequestMapping("/api/structured")
 public class StructuredOutputController {
 
-    private final ChatModel chatModel;
+    private static final String WEATHER_TEMPLATE = """
+        Provide current weather information for {city}.
+        Include temperature, conditions, humidity, and wind speed.
+        Make realistic estimates based on typical weather patterns.
+        
+        {format}
+        """;
 
-    public StructuredOutputController(ChatModel chatModel) {
+    private static final String BOOKS_TEMPLATE = """
+        Recommend {count} popular {genre} books.
+        Include title, author, year published, and a brief description for each.
+        
+        {format}
+        """;
+
+    private static final String RECIPE_TEMPLATE = """
+        Provide a detailed recipe for {dish}.
+        Include ingredients with measurements and step-by-step cooking instructions.
+        Also include prep time, cook time, and servings.
+        
+        {format}
+        """;
+
+    private final ChatModel chatModel;
+    private final SingleFlightCache cache;
+    private final ObjectMapper objectMapper;
+    private final StreamMetrics streamMetrics;
+
+    // Compiled once at startup; see PromptRegistry
+    private final CompiledTemplate weatherTemplate;
+    private final CompiledTemplate booksTemplate;
+    private final CompiledTemplate recipeTemplate;
+    private final OutputSchema<WeatherResponse> weatherOutput;
+    private final OutputSchema<BookRecommendation> booksOutput;
+    private final OutputSchema<RecipeResponse> recipeOutput;
+
+    public StructuredOutputController(ChatModel chatModel, SingleFlightCache cache, ObjectMapper objectMapper,
+            PromptRegistry prompts, StreamMetrics streamMetrics) {
         this.chatModel = chatModel;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.streamMetrics = streamMetrics;
+        this.weatherTemplate = prompts.template("structured.weather", WEATHER_TEMPLATE);
+        this.booksTemplate = prompts.template("structured.books", BOOKS_TEMPLATE);
+        this.recipeTemplate = prompts.template("structured.recipe", RECIPE_TEMPLATE);
+        this.weatherOutput = prompts.output(WeatherResponse.class);
+        this.booksOutput = prompts.output(BookRecommendation.class);
+        this.recipeOutput = prompts.output(RecipeResponse.class);
     }
 
     /**
      * Get weather information as structured data
+     * Concurrent identical requests share one model call and results are cached briefly
      * Example: GET /api/structured/weather?city=San Francisco
      */
     @GetMapping("/weather")
     public WeatherResponse getWeather(@RequestParam String city) {
-        BeanOutputConverter<WeatherResponse> outputConverter = 
-            new BeanOutputConverter<>(WeatherResponse.class);
-
-        String format = outputConverter.getFormat();
-        
-        String template = """
-            Provide current weather information for {city}.
-            Include temperature, conditions, humidity, and wind speed.
-            Make realistic estimates based on typical weather patterns.
-            
-            {format}
-            """;
-
-        PromptTemplate promptTemplate = new PromptTemplate(template);
-        Prompt prompt = promptTemplate.create(
-            Map.of("city", city, "format", format)
-        );
-
-        String response = chatModel.call(prompt).getResult().getOutput().getContent();
-        return outputConverter.convert(response);
+        return cache.get("weather", () -> call(weatherOutput, weatherTemplate.prompt(city, weatherOutput.format())),
+            city);
     }
 
     /**
@@ -61,26 +95,8 @@ public class StructuredOutputController {
     public BookRecommendation getBookRecommendations(
             @RequestParam String genre,
             @RequestParam(defaultValue = "3") int count) {
-        
-        BeanOutputConverter<BookRecommendation> outputConverter = 
-            new BeanOutputConverter<>(BookRecommendation.class);
-
-        String format = outputConverter.getFormat();
-        
-        String template = """
-            Recommend {count} popular {genre} books.
-            Include title, author, year published, and a brief description for each.
-            
-            {format}
-            """;
-
-        PromptTemplate promptTemplate = new PromptTemplate(template);
-        Prompt prompt = promptTemplate.create(
-            Map.of("genre", genre, "count", String.valueOf(count), "format", format)
-        );
-
-        String response = chatModel.call(prompt).getResult().getOutput().getContent();
-        return outputConverter.convert(response);
+        return cache.get("books", () -> call(booksOutput, booksTemplate.prompt(count, genre, booksOutput.format())),
+            genre, count);
     }
 
     /**
@@ -89,25 +105,74 @@ public class StructuredOutputController {
      */
     @GetMapping("/recipe")
     public RecipeResponse getRecipe(@RequestParam String dish) {
-        BeanOutputConverter<RecipeResponse> outputConverter = 
-            new BeanOutputConverter<>(RecipeResponse.class);
+        return cache.get("recipe", () -> call(recipeOutput, recipeTemplate.prompt(dish, recipeOutput.format())),
+            dish);
+    }
 
-        String format = outputConverter.getFormat();
-        
-        String template = """
-            Provide a detailed recipe for {dish}.
-            Include ingredients with measurements and step-by-step cooking instructions.
-            Also include prep time, cook time, and servings.
-            
-            {format}
-            """;
-
-        PromptTemplate promptTemplate = new PromptTemplate(template);
-        Prompt prompt = promptTemplate.create(
-            Map.of("dish", dish, "format", format)
-        );
+    /**
+     * Streaming weather information; only the final record is sent since it has no arrays
+     * Example: GET /api/structured/weather/stream?city=San Francisco
+     * Returns: Server-Sent Events (SSE) stream
+     */
+    @GetMapping(value = "/weather/stream", produces = "text/event-stream")
+    public Flux<ServerSentEvent<Object>> streamWeather(@RequestParam String city) {
+        return stream(weatherOutput, weatherTemplate.prompt(city, weatherOutput.format()));
+    }
+
+    /**
+     * Streaming book recommendations: one "books" event per book as soon as it is complete,
+     * then a "result" event with the full record
+     * Example: GET /api/structured/books/stream?genre=science fiction&count=3
+     * Returns: Server-Sent Events (SSE) stream
+     */
+    @GetMapping(value = "/books/stream", produces = "text/event-stream")
+    public Flux<ServerSentEvent<Object>> streamBookRecommendations(
+            @RequestParam String genre,
+            @RequestParam(defaultValue = "3") int count) {
+        return stream(booksOutput, booksTemplate.prompt(count, genre, booksOutput.format()));
+    }
 
+    /**
+     * Streaming recipe: "ingredients" and "instructions" events per item as they arrive,
+     * then a "result" event with the full record
+     * Example: GET /api/structured/recipe/stream?dish=pasta carbonara
+     * Returns: Server-Sent Events (SSE) stream
+     */
+    @GetMapping(value = "/recipe/stream", produces = "text/event-stream")
+    public Flux<ServerSentEvent<Object>> streamRecipe(@RequestParam String dish) {
+        return stream(recipeOutput, recipeTemplate.prompt(dish, recipeOutput.format()));
+    }
+
+    private <T> T call(OutputSchema<T> output, Prompt prompt) {
         String response = chatModel.call(prompt).getResult().getOutput().getContent();
-        return outputConverter.convert(response);
+        return output.convert(response);
+    }
+
+    /**
+     * Emit each completed top-level array element while the model streams,
+     * then the record converted from the whole completion
+     */
+    private <T> Flux<ServerSentEvent<Object>> stream(OutputSchema<T> output, Prompt prompt) {
+        return Flux.defer(() -> {
+            IncrementalJsonParser parser = new IncrementalJsonParser(objectMapper);
+            StringBuilder completion = new StringBuilder();
+            Flux<ServerSentEvent<Object>> elements = streamMetrics.timed("structured", chatModel.stream(prompt))
+                .filter(chatResponse -> chatResponse.getResult() != null
+                    && chatResponse.getResult().getOutput().getContent() != null)
+                .map(chatResponse -> chatResponse.getResult().getOutput().getContent())
+                .concatMap(token -> {
+                    completion.append(token);
+                    return Flux.fromIterable(parser.feed(token));
+                })
+                .map(element -> ServerSentEvent.<Object>builder(element.value())
+                    .event(element.field())
+                    .id(element.field() + "/" + element.index())
+                    .build());
+            Mono<ServerSentEvent<Object>> result = Mono.fromCallable(() -> ServerSentEvent
+                .<Object>builder(output.convert(completion.toString()))
+                .event("result")
+                .build());
+            return elements.concatWith(result);
+        });
     }
 }
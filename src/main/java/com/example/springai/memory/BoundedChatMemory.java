@@ -0,0 +1,340 @@
+package com.example.springai.memory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chat memory with a bounded footprint, replacing {@code InMemoryChatMemory}.
+ *
+ * <ul>
+ *   <li>Conversations are spread over several concurrent maps (stripes) by id.</li>
+ *   <li>Each conversation keeps at most {@code maxTokens} tokens of history; the oldest
+ *       messages are dropped first, but the latest message is always kept.</li>
+ *   <li>Conversations idle for {@code idleTimeout}, or the least recently used ones beyond
+ *       {@code maxConversations}, are moved to an append-only {@link ConversationLog} by a
+ *       background sweep and reloaded from it the next time they are used.</li>
+ *   <li>Resident conversations are written to the log on {@link #close()}, so history
+ *       survives restarts.</li>
+ * </ul>
+ */
+public class BoundedChatMemory implements ChatMemory, AutoCloseable {
+
+    private final Map<String, Conversation>[] stripes;
+    private final TokenCountEstimator tokenEstimator;
+    private final int maxTokens;
+    private final long idleTimeoutNanos;
+    private final int maxConversations;
+    private final ConversationLog log;
+    private final ScheduledExecutorService sweeper;
+    private final LongAdder failedEvictions = new LongAdder();
+
+    /**
+     * @param stripes          number of concurrent maps conversations are spread over
+     * @param maxTokens        history kept per conversation
+     * @param idleTimeout      how long a conversation stays in memory without being used
+     * @param maxConversations conversations kept in memory before the least recently used are evicted
+     * @param logFile          where evicted conversations are written
+     * @param logMaxBytes      size past which the log is compacted
+     * @param sweepInterval    how often idle conversations are looked for
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedChatMemory(TokenCountEstimator tokenEstimator, int stripes, int maxTokens, Duration idleTimeout,
+            int maxConversations, Path logFile, long logMaxBytes, Duration sweepInterval) throws IOException {
+        this.stripes = new Map[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.tokenEstimator = tokenEstimator;
+        this.maxTokens = maxTokens;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maxConversations = maxConversations;
+        this.log = ConversationLog.open(logFile, logMaxBytes);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-memory-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = sweepInterval.toMillis();
+        this.sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        while (true) {
+            Conversation conversation = resident(conversationId);
+            synchronized (conversation) {
+                if (conversation.evicted) {
+                    continue;
+                }
+                for (Message message : messages) {
+                    conversation.append(message, tokenEstimator.estimate(message.getContent()));
+                }
+                conversation.trimTo(maxTokens);
+                conversation.touch();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        Map<String, Conversation> stripe = stripe(conversationId);
+        Conversation conversation = stripe.get(conversationId);
+        if (conversation == null && !log.contains(conversationId)) {
+            // Avoid creating entries for conversations that never existed
+            return List.of();
+        }
+        while (true) {
+            conversation = resident(conversationId);
+            synchronized (conversation) {
+                if (conversation.evicted) {
+                    continue;
+                }
+                conversation.touch();
+                return conversation.last(lastN);
+            }
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Conversation conversation = stripe(conversationId).remove(conversationId);
+        if (conversation != null) {
+            synchronized (conversation) {
+                conversation.evicted = true;
+            }
+        }
+        try {
+            log.remove(conversationId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear conversation " + conversationId, e);
+        }
+    }
+
+    /**
+     * Replace the oldest messages of a conversation with {@code replacement} (e.g. a summary of them).
+     * Only messages of {@code replaced} still at the head of the history are removed, so messages
+     * added or trimmed in the meantime are handled; nothing changes if none of them remain.
+     *
+     * @return whether the history was changed
+     */
+    public boolean replaceOldest(String conversationId, List<Message> replaced, Message replacement) {
+        Conversation conversation = stripe(conversationId).get(conversationId);
+        if (conversation == null) {
+            return false;
+        }
+        Set<Message> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+        stale.addAll(replaced);
+        synchronized (conversation) {
+            if (conversation.evicted || conversation.entries.isEmpty()
+                    || !stale.contains(conversation.entries.peekFirst().message())) {
+                return false;
+            }
+            while (!conversation.entries.isEmpty() && stale.contains(conversation.entries.peekFirst().message())) {
+                conversation.tokens -= conversation.entries.removeFirst().tokens();
+            }
+            int tokens = tokenEstimator.estimate(replacement.getContent());
+            conversation.entries.addFirst(new Entry(replacement, tokens));
+            conversation.tokens += tokens;
+            conversation.dirty = true;
+            return true;
+        }
+    }
+
+    /**
+     * Tokens currently held for {@code conversationId}, maintained incrementally (0 if not in memory)
+     */
+    public int tokenCount(String conversationId) {
+        Conversation conversation = stripe(conversationId).get(conversationId);
+        if (conversation == null) {
+            return 0;
+        }
+        synchronized (conversation) {
+            return conversation.tokens;
+        }
+    }
+
+    /**
+     * Conversations currently held in memory
+     */
+    public int residentConversations() {
+        int count = 0;
+        for (Map<String, Conversation> stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    /**
+     * Conversations the sweep failed to move to disk (they stay in memory and are retried on the
+     * next sweep), plus sweeps whose writes could not be forced to disk
+     */
+    public long failedEvictions() {
+        return failedEvictions.sum();
+    }
+
+    /**
+     * Conversations with a snapshot on disk
+     */
+    public int storedConversations() {
+        return log.size();
+    }
+
+    /**
+     * Write every resident conversation to the log and stop the sweeper
+     */
+    @Override
+    public void close() throws IOException {
+        sweeper.shutdownNow();
+        for (Map<String, Conversation> stripe : stripes) {
+            for (Map.Entry<String, Conversation> entry : stripe.entrySet()) {
+                evict(stripe, entry.getKey(), entry.getValue());
+            }
+        }
+        log.close();
+    }
+
+    /**
+     * Move idle conversations, and the least recently used beyond the cap, to disk
+     */
+    void sweep() {
+        long now = System.nanoTime();
+        List<Map.Entry<String, Conversation>> active = new ArrayList<>();
+        for (Map<String, Conversation> stripe : stripes) {
+            for (Map.Entry<String, Conversation> entry : stripe.entrySet()) {
+                if (now - entry.getValue().lastAccess > idleTimeoutNanos) {
+                    tryEvict(stripe, entry.getKey(), entry.getValue());
+                } else {
+                    active.add(entry);
+                }
+            }
+        }
+        int excess = active.size() - maxConversations;
+        if (excess > 0) {
+            active.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            for (int i = 0; i < excess; i++) {
+                Map.Entry<String, Conversation> entry = active.get(i);
+                tryEvict(stripe(entry.getKey()), entry.getKey(), entry.getValue());
+            }
+        }
+        try {
+            log.force();
+        } catch (IOException | RuntimeException e) {
+            failedEvictions.increment();
+        }
+    }
+
+    /**
+     * Evict one conversation for the sweep; a failure keeps it in memory for the next sweep
+     * and is counted, without holding up the other evictions
+     */
+    private void tryEvict(Map<String, Conversation> stripe, String conversationId, Conversation conversation) {
+        try {
+            evict(stripe, conversationId, conversation);
+        } catch (IOException | RuntimeException e) {
+            failedEvictions.increment();
+        }
+    }
+
+    private void evict(Map<String, Conversation> stripe, String conversationId, Conversation conversation)
+            throws IOException {
+        synchronized (conversation) {
+            if (conversation.evicted) {
+                return;
+            }
+            if (conversation.dirty) {
+                log.write(conversationId, conversation.last(Integer.MAX_VALUE));
+            }
+            conversation.evicted = true;
+            stripe.remove(conversationId, conversation);
+        }
+    }
+
+    /**
+     * The in-memory conversation for {@code conversationId}, reloading it from the log if it was evicted
+     */
+    private Conversation resident(String conversationId) {
+        return stripe(conversationId).computeIfAbsent(conversationId, id -> {
+            Conversation conversation = new Conversation();
+            try {
+                List<Message> stored = log.read(id);
+                if (stored != null) {
+                    for (Message message : stored) {
+                        conversation.append(message, tokenEstimator.estimate(message.getContent()));
+                    }
+                    conversation.dirty = false;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to reload conversation " + id, e);
+            }
+            return conversation;
+        });
+    }
+
+    private Map<String, Conversation> stripe(String conversationId) {
+        int hash = conversationId.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private record Entry(Message message, int tokens) {}
+
+    /**
+     * History of one conversation; guarded by its own monitor
+     */
+    private static final class Conversation {
+
+        final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        int tokens;
+        boolean dirty;
+        boolean evicted;
+        volatile long lastAccess = System.nanoTime();
+
+        void append(Message message, int messageTokens) {
+            entries.addLast(new Entry(message, messageTokens));
+            tokens += messageTokens;
+            dirty = true;
+        }
+
+        void trimTo(int maxTokens) {
+            while (tokens > maxTokens && entries.size() > 1) {
+                tokens -= entries.removeFirst().tokens();
+            }
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+        List<Message> last(int n) {
+            int skip = Math.max(0, entries.size() - n);
+            List<Message> messages = new ArrayList<>(entries.size() - skip);
+            for (Entry entry : entries) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    messages.add(entry.message());
+                }
+            }
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.springai.memory;
+
+import com.example.springai.service.ChatRequestContext;
+import com.example.springai.service.ChatRequestContext.Priority;
+import com.example.springai.service.CompiledTemplate;
+import com.example.springai.service.PromptRegistry;
+import org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the replayed history short by folding older turns into a running summary.
+ *
+ * After each exchange it checks the conversation's token count, which
+ * {@link BoundedChatMemory} maintains incrementally. Past {@code triggerTokens}, everything
+ * but the last {@code keepMessages} messages is summarized (together with the previous
+ * summary, which is itself the oldest message) and replaced by one system message. The
+ * summary is produced on a background thread at batch priority, so the request that crossed
+ * the threshold is not slowed down; at most one compaction per conversation runs at a time.
+ * After a failed summary the conversation is left alone for a while, doubling up to
+ * {@code MAX_BACKOFF} while the failures continue, so a failing model is not called on every turn.
+ *
+ * Runs outside {@code MessageChatMemoryAdvisor}, so the exchange has been stored by the time
+ * it looks at the history.
+ */
+public class ConversationCompactionAdvisor implements CallAroundAdvisor, StreamAroundAdvisor, AutoCloseable {
+
+    static final String SUMMARY_PREFIX = "Summary of the earlier conversation: ";
+
+    private static final String SUMMARY_TEMPLATE = """
+        Summarize the following conversation so it can replace it as context for later turns.
+        Keep names, facts, decisions, open questions and anything the user asked to remember.
+        If it starts with an earlier summary, merge that summary into the new one.
+        Answer with the summary only, in at most {words} words.
+        
+        {conversation}
+        """;
+
+    private static final long INITIAL_BACKOFF = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toNanos(30);
+
+    private final BoundedChatMemory chatMemory;
+    private final ChatModel chatModel;
+    private final CompiledTemplate summaryTemplate;
+    private final int triggerTokens;
+    private final int keepMessages;
+    private final int summaryWords;
+    private final ExecutorService executor;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Map<String, Backoff> backoffs = new ConcurrentHashMap<>();
+    private final LongAdder compactions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param triggerTokens history size that triggers a compaction
+     * @param keepMessages  most recent messages always kept verbatim
+     * @param summaryWords  length the summary is asked to stay within
+     */
+    public ConversationCompactionAdvisor(BoundedChatMemory chatMemory, ChatModel chatModel, PromptRegistry prompts,
+            int triggerTokens, int keepMessages, int summaryWords) {
+        this.chatMemory = chatMemory;
+        this.chatModel = chatModel;
+        this.summaryTemplate = prompts.template("memory.summary", SUMMARY_TEMPLATE);
+        this.triggerTokens = triggerTokens;
+        this.keepMessages = keepMessages;
+        this.summaryWords = summaryWords;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-memory-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        // Wrap the memory advisor so its after-step has stored the reply before we run
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER - 1;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        AdvisedResponse response = chain.nextAroundCall(advisedRequest);
+        maybeCompact(conversationId(advisedRequest));
+        return response;
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        String conversationId = conversationId(advisedRequest);
+        return chain.nextAroundStream(advisedRequest).doOnComplete(() -> maybeCompact(conversationId));
+    }
+
+    /**
+     * Compactions completed so far
+     */
+    public long compactions() {
+        return compactions.sum();
+    }
+
+    /**
+     * Compactions whose summary could not be produced or stored
+     */
+    public long failedCompactions() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    void maybeCompact(String conversationId) {
+        if (chatMemory.tokenCount(conversationId) < triggerTokens || backingOff(conversationId)
+                || !running.add(conversationId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    compact(conversationId);
+                } finally {
+                    running.remove(conversationId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.remove(conversationId);
+        }
+    }
+
+    private void compact(String conversationId) {
+        List<Message> history = chatMemory.get(conversationId, Integer.MAX_VALUE);
+        if (history.size() <= keepMessages) {
+            return;
+        }
+        List<Message> older = List.copyOf(history.subList(0, history.size() - keepMessages));
+        String transcript = older.stream()
+            .map(message -> message.getMessageType().name().toLowerCase() + ": " + message.getContent())
+            .collect(Collectors.joining("\n"));
+
+        ChatRequestContext.set(ChatRequestContext.of(Priority.BATCH, "compaction:" + conversationId, null));
+        try {
+            String summary = chatModel.call(summaryTemplate.render(summaryWords, transcript));
+            if (chatMemory.replaceOldest(conversationId, older, new SystemMessage(SUMMARY_PREFIX + summary))) {
+                compactions.increment();
+            }
+            backoffs.remove(conversationId);
+        } catch (RuntimeException e) {
+            // Keep the full history; an exchange after the backoff will try again
+            failures.increment();
+            backoffs.compute(conversationId, (id, previous) -> Backoff.after(previous));
+        } finally {
+            ChatRequestContext.clear();
+        }
+    }
+
+    private boolean backingOff(String conversationId) {
+        Backoff backoff = backoffs.get(conversationId);
+        return backoff != null && System.nanoTime() - backoff.retryAt() < 0;
+    }
+
+    private static String conversationId(AdvisedRequest advisedRequest) {
+        Object id = advisedRequest.adviseContext().get(AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY);
+        return id != null ? id.toString() : AbstractChatMemoryAdvisor.DEFAULT_CHAT_MEMORY_CONVERSATION_ID;
+    }
+
+    private record Backoff(long delay, long retryAt) {
+
+        static Backoff after(Backoff previous) {
+            long delay = previous == null ? INITIAL_BACKOFF : Math.min(previous.delay() * 2, MAX_BACKOFF);
+            return new Backoff(delay, System.nanoTime() + delay);
+        }
+    }
+}
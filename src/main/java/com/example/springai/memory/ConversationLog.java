@@ -0,0 +1,273 @@
+package com.example.springai.memory;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of conversation snapshots, written when a conversation is evicted from
+ * memory and read back when it is next used.
+ *
+ * Each record holds the full message list of one conversation (or a tombstone when it is
+ * cleared); the latest record for an id wins. Records are length-prefixed and checksummed,
+ * so a torn tail is dropped on open. Once the file outgrows {@code maxBytes} it is rewritten
+ * with only the latest snapshot of each conversation.
+ */
+final class ConversationLog implements AutoCloseable {
+
+    private static final int TOMBSTONE = -1;
+
+    private final Path path;
+    private final long maxBytes;
+    private final Map<String, Long> offsets = new HashMap<>();
+    private FileChannel channel;
+    private long end;
+    private long liveBytes;
+
+    private ConversationLog(Path path, long maxBytes) {
+        this.path = path;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Open (or create) the log, indexing the latest snapshot of every conversation
+     */
+    static ConversationLog open(Path path, long maxBytes) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        ConversationLog log = new ConversationLog(path, maxBytes);
+        log.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        log.replay();
+        return log;
+    }
+
+    /**
+     * Append a snapshot of {@code messages} as the current state of {@code conversationId}
+     */
+    synchronized void write(String conversationId, List<Message> messages) throws IOException {
+        long offset = append(encode(conversationId, messages));
+        Long previous = offsets.put(conversationId, offset);
+        liveBytes += end - offset - (previous != null ? recordLength(previous) : 0);
+        compactIfNeeded();
+    }
+
+    /**
+     * Forget {@code conversationId}
+     */
+    synchronized void remove(String conversationId) throws IOException {
+        Long previous = offsets.remove(conversationId);
+        if (previous == null) {
+            return;
+        }
+        liveBytes -= recordLength(previous);
+        append(encode(conversationId, null));
+        compactIfNeeded();
+    }
+
+    /**
+     * Latest snapshot of {@code conversationId}, or null if it has none
+     */
+    synchronized List<Message> read(String conversationId) throws IOException {
+        Long offset = offsets.get(conversationId);
+        if (offset == null) {
+            return null;
+        }
+        ByteBuffer payload = readPayload(offset);
+        readString(payload);
+        return decodeMessages(payload);
+    }
+
+    synchronized boolean contains(String conversationId) {
+        return offsets.containsKey(conversationId);
+    }
+
+    synchronized int size() {
+        return offsets.size();
+    }
+
+    synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    private void replay() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (position + 8 <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || position + 8 + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + 8);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            String id = readString(payload);
+            int count = payload.getInt();
+            Long previous = count == TOMBSTONE ? offsets.remove(id) : offsets.put(id, position);
+            if (previous != null) {
+                liveBytes -= recordLength(previous);
+            }
+            if (count != TOMBSTONE) {
+                liveBytes += 8 + length;
+            }
+            position += 8 + length;
+        }
+        // Drop a partially written tail so new records append cleanly
+        if (size > position) {
+            channel.truncate(position);
+        }
+        end = position;
+    }
+
+    private long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        long offset = end;
+        while (record.hasRemaining()) {
+            channel.write(record, end + record.position());
+        }
+        end += 8 + payload.length;
+        return offset;
+    }
+
+    /**
+     * Rewrite the file with only live snapshots once it is over budget and mostly garbage
+     */
+    private void compactIfNeeded() throws IOException {
+        if (end <= maxBytes || liveBytes > end / 2) {
+            return;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Map<String, Long> moved = new HashMap<>();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                long length = recordLength(entry.getValue());
+                ByteBuffer record = ByteBuffer.allocate((int) length);
+                readFully(record, entry.getValue());
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record, position + record.position());
+                }
+                moved.put(entry.getKey(), position);
+                position += length;
+            }
+            out.force(false);
+            end = position;
+            liveBytes = position;
+        }
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        offsets.putAll(moved);
+    }
+
+    private long recordLength(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(header, offset);
+        return 8L + header.flip().getInt();
+    }
+
+    private ByteBuffer readPayload(long offset) throws IOException {
+        int length = (int) (recordLength(offset) - 8);
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset + 8);
+        return payload.flip();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+        }
+    }
+
+    private static byte[] encode(String conversationId, List<Message> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream data = new DataOutputStream(bytes);
+        writeString(data, conversationId);
+        if (messages == null) {
+            data.writeInt(TOMBSTONE);
+        } else {
+            data.writeInt(messages.size());
+            for (Message message : messages) {
+                data.writeByte(message.getMessageType().ordinal());
+                writeString(data, message.getContent() != null ? message.getContent() : "");
+            }
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<Message> decodeMessages(ByteBuffer payload) {
+        int count = payload.getInt();
+        List<Message> messages = new ArrayList<>(count);
+        MessageType[] types = MessageType.values();
+        for (int i = 0; i < count; i++) {
+            MessageType type = types[payload.get()];
+            String content = readString(payload);
+            switch (type) {
+                case USER -> messages.add(new UserMessage(content));
+                case ASSISTANT -> messages.add(new AssistantMessage(content));
+                case SYSTEM -> messages.add(new SystemMessage(content));
+                default -> {
+                    // Tool messages only make sense inside the exchange that produced them
+                }
+            }
+        }
+        return messages;
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(utf8.length);
+        data.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.springai.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedding model decorator that coalesces texts from concurrent callers into batched calls.
+ *
+ * Callers enqueue their texts and wait; a dispatcher thread drains the queue into a batch
+ * until it reaches {@code maxBatchSize} or {@code maxWait} has passed since the first text,
+ * sends it as one embed call and hands each vector back to its caller. At most
+ * {@code concurrency} batches are in flight; while they are, texts keep accumulating into
+ * the next batch. The queue is bounded, so a caller blocks for up to {@code enqueueTimeout}
+ * when it is full and is then rejected.
+ *
+ * Only {@link #embed(List)} is batched; single texts and {@link #call(EmbeddingRequest)},
+ * which carries per-request options, go straight to the delegate.
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long enqueueTimeoutNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Semaphore inFlight;
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public BatchingEmbeddingModel(EmbeddingModel delegate, int maxBatchSize, Duration maxWait,
+            int concurrency, int queueCapacity, Duration enqueueTimeout) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.inFlight = new Semaphore(concurrency);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "embedding-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    private record Pending(String text, CompletableFuture<float[]> result) {}
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    /**
+     * Single texts are search queries on the request path: skip the queue so they never pay the batching delay
+     */
+    @Override
+    public float[] embed(String text) {
+        return delegate.embed(text);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<CompletableFuture<float[]>> results = new ArrayList<>(texts.size());
+        try {
+            for (String text : texts) {
+                Pending pending = new Pending(text, new CompletableFuture<>());
+                if (!queue.offer(pending, enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw new RejectedExecutionException("Embedding queue is full (" + queue.size() + " texts waiting)");
+                }
+                results.add(pending.result());
+            }
+            if (!running) {
+                // Closed meanwhile: nothing dispatches these any more
+                failQueued();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the embedding queue", e);
+        }
+
+        List<float[]> vectors = new ArrayList<>(results.size());
+        try {
+            for (CompletableFuture<float[]> result : results) {
+                vectors.add(result.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return vectors;
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private void dispatchLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                inFlight.acquire();
+                // Top the batch up with whatever arrived while waiting for a free slot
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                List<Pending> ready = List.copyOf(batch);
+                batch.clear();
+                try {
+                    workers.execute(() -> embedBatch(ready));
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    failAll(ready, e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        failAll(batch, new RejectedExecutionException("Embedding batcher is shut down"));
+    }
+
+    private void embedBatch(List<Pending> batch) {
+        try {
+            List<String> texts = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                texts.add(pending.text());
+            }
+            List<float[]> vectors = delegate.embed(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(vectors.get(i));
+            }
+        } catch (Throwable e) {
+            // Whatever the delegate throws must complete the futures its callers are joining
+            failAll(batch, e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void failQueued() {
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        failAll(remaining, new RejectedExecutionException("Embedding batcher is shut down"));
+    }
+
+    private static void failAll(List<Pending> batch, Throwable error) {
+        for (Pending pending : batch) {
+            pending.result().completeExceptionally(error);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        try {
+            // Let a batch being handed off reach the workers before they stop taking new ones
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued();
+        workers.shutdown();
+    }
+}
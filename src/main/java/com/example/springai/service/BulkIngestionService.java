@@ -0,0 +1,616 @@
+package com.example.springai.service;
+
+import com.example.springai.vectorstore.MappedVectorStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Loads many documents at once as background jobs.
+ *
+ * Each job runs four pipelined stages connected by bounded queues:
+ * <ol>
+ *   <li>read: one thread walks the source (zip, directory or JSONL) and queues documents</li>
+ *   <li>chunk: {@code chunkWorkers} threads open and chunk documents into batches</li>
+ *   <li>embed: {@code embedWorkers} threads embed batches through the RAG embedding model</li>
+ *   <li>index: one thread writes embedded batches to the vector store</li>
+ * </ol>
+ * A full queue blocks the stage feeding it, so a fast reader never gets far ahead of the
+ * embedding model. Documents are upserted like single uploads: a document's previous revision
+ * is dropped once all of its chunks are indexed, and a document that fails part way is rolled
+ * back without stopping the job. Only errors in the source itself fail the whole job.
+ */
+public class BulkIngestionService implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final RagService ragService;
+    private final TextChunker chunker;
+    private final MappedVectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final PdfTextExtractor pdfExtractor;
+    private final ObjectMapper objectMapper;
+    private final Settings settings;
+
+    private final ExecutorService jobRunner;
+    private final Map<String, IngestionJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Pipeline sizing and limits
+     *
+     * @param allowedDirectories server directories (and their subdirectories) that may be ingested
+     */
+    public record Settings(int chunkWorkers, int embedWorkers, int queueCapacity, int batchSize,
+            int maxConcurrentJobs, int retainedJobs, int maxErrors, List<Path> allowedDirectories) {}
+
+    public BulkIngestionService(RagService ragService, TextChunker chunker, MappedVectorStore vectorStore,
+            EmbeddingModel embeddingModel, PdfTextExtractor pdfExtractor, ObjectMapper objectMapper,
+            Settings settings) {
+        this.ragService = ragService;
+        this.chunker = chunker;
+        this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.pdfExtractor = pdfExtractor;
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+        this.jobRunner = Executors.newFixedThreadPool(settings.maxConcurrentJobs(), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-ingestion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ingest the .txt, .md and .pdf entries of a zip file; the file is deleted when the job ends
+     */
+    public IngestionJob submitZip(Path zip, String name) {
+        return submit("zip:" + name, () -> new ZipSource(zip));
+    }
+
+    /**
+     * Ingest a JSONL file with one {@code {"title": ..., "content": ...}} object per line;
+     * the file is deleted when the job ends
+     */
+    public IngestionJob submitJsonl(Path jsonl, String name) {
+        return submit("jsonl:" + name, () -> new JsonlSource(jsonl));
+    }
+
+    /**
+     * Ingest the .txt, .md and .pdf files under a server directory, which must lie in one of the
+     * allowed directories. Titles are paths relative to it.
+     */
+    public IngestionJob submitDirectory(String path) throws IOException {
+        Path directory = Path.of(path).toRealPath();
+        boolean allowed = false;
+        for (Path root : settings.allowedDirectories()) {
+            if (Files.isDirectory(root) && directory.startsWith(root.toRealPath())) {
+                allowed = true;
+                break;
+            }
+        }
+        if (!allowed || !Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not an allowed directory: " + path);
+        }
+        return submit("directory:" + directory, () -> new DirectorySource(directory));
+    }
+
+    public Optional<IngestionJob> job(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Jobs still running and the most recent finished ones, oldest first
+     */
+    public List<IngestionJob> jobs() {
+        synchronized (jobs) {
+            return List.copyOf(jobs.values());
+        }
+    }
+
+    @Override
+    public void close() {
+        jobRunner.shutdownNow();
+    }
+
+    private IngestionJob submit(String description, SourceFactory factory) {
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), description, settings.maxErrors());
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+            // Forget the oldest finished jobs beyond the retention limit
+            Iterator<IngestionJob> oldest = jobs.values().iterator();
+            while (jobs.size() > settings.retainedJobs() && oldest.hasNext()) {
+                if (oldest.next().isFinished()) {
+                    oldest.remove();
+                }
+            }
+        }
+        jobRunner.execute(() -> {
+            try (Source source = factory.open()) {
+                run(job, source);
+            } catch (IOException | RuntimeException e) {
+                job.abort(e);
+                job.failed();
+            }
+        });
+        return job;
+    }
+
+    private void run(IngestionJob job, Source source) {
+        job.started();
+        BlockingQueue<SourceDocument> documents = new ArrayBlockingQueue<>(settings.queueCapacity());
+        BlockingQueue<Batch> chunked = new ArrayBlockingQueue<>(settings.queueCapacity());
+        BlockingQueue<Batch> embedded = new ArrayBlockingQueue<>(settings.queueCapacity());
+        Set<DocumentState> open = ConcurrentHashMap.newKeySet();
+
+        int threads = 1 + settings.chunkWorkers() + settings.embedWorkers() + 1;
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger chunkersLeft = new AtomicInteger(settings.chunkWorkers());
+        AtomicInteger embeddersLeft = new AtomicInteger(settings.embedWorkers());
+        ExecutorService stages = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-ingestion-" + job.id().substring(0, 8));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        stage(stages, job, done, () -> {
+            try {
+                source.read(job, document -> {
+                    job.documentRead();
+                    put(job, documents, document);
+                });
+            } finally {
+                for (int i = 0; i < settings.chunkWorkers(); i++) {
+                    put(job, documents, SourceDocument.END);
+                }
+            }
+        });
+        for (int i = 0; i < settings.chunkWorkers(); i++) {
+            stage(stages, job, done, () -> {
+                try {
+                    SourceDocument document;
+                    while ((document = take(job, documents, SourceDocument.END)) != SourceDocument.END) {
+                        chunk(job, document, chunked, open);
+                    }
+                } finally {
+                    if (chunkersLeft.decrementAndGet() == 0) {
+                        for (int e = 0; e < settings.embedWorkers(); e++) {
+                            put(job, chunked, Batch.END);
+                        }
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < settings.embedWorkers(); i++) {
+            stage(stages, job, done, () -> {
+                try {
+                    Batch batch;
+                    while ((batch = take(job, chunked, Batch.END)) != Batch.END) {
+                        embed(job, batch, embedded);
+                    }
+                } finally {
+                    if (embeddersLeft.decrementAndGet() == 0) {
+                        put(job, embedded, Batch.END);
+                    }
+                }
+            });
+        }
+        stage(stages, job, done, () -> {
+            Batch batch;
+            while ((batch = take(job, embedded, Batch.END)) != Batch.END) {
+                index(job, batch);
+            }
+        });
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort(e);
+        } finally {
+            stages.shutdownNow();
+        }
+        if (job.isAborted()) {
+            // Roll back documents caught half way
+            open.forEach(DocumentState::rollBack);
+            job.failed();
+        } else {
+            job.completed();
+        }
+    }
+
+    private void chunk(IngestionJob job, SourceDocument source, BlockingQueue<Batch> chunked,
+            Set<DocumentState> open) {
+        if (!lockTitle(job, source.title())) {
+            return;
+        }
+        DocumentState document = new DocumentState(job, source.title(), open);
+        List<Document> pending = new ArrayList<>(settings.batchSize());
+        int[] count = new int[1];
+        try {
+            source.content().feed(text -> {
+                pending.add(RagService.chunkDocument(document.title, document.revision, count[0]++, text));
+                if (pending.size() >= settings.batchSize()) {
+                    queueBatch(job, document, pending, chunked);
+                }
+            });
+            queueBatch(job, document, pending, chunked);
+        } catch (IOException | RuntimeException e) {
+            job.error(source.title(), e);
+            document.failed = true;
+        }
+        document.release();
+    }
+
+    private void queueBatch(IngestionJob job, DocumentState document, List<Document> pending,
+            BlockingQueue<Batch> chunked) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        job.chunksProduced(pending.size());
+        document.outstanding.incrementAndGet();
+        put(job, chunked, new Batch(document, List.copyOf(pending), null));
+        pending.clear();
+    }
+
+    private void embed(IngestionJob job, Batch batch, BlockingQueue<Batch> embedded) {
+        try {
+            List<float[]> embeddings = embeddingModel.embed(batch.documents().stream()
+                .map(Document::getContent)
+                .toList());
+            job.chunksEmbedded(batch.documents().size());
+            put(job, embedded, new Batch(batch.document(), batch.documents(), embeddings));
+        } catch (RuntimeException e) {
+            job.error(batch.document().title, e);
+            batch.document().failed = true;
+            batch.document().release();
+        }
+    }
+
+    private void index(IngestionJob job, Batch batch) {
+        try {
+            vectorStore.add(batch.documents(), batch.embeddings());
+            job.chunksIndexed(batch.documents().size());
+        } catch (RuntimeException e) {
+            job.error(batch.document().title, e);
+            batch.document().failed = true;
+        }
+        batch.document().release();
+    }
+
+    /**
+     * Wait until no other upsert of {@code title} is in progress and claim it; false once the job is aborted
+     */
+    private boolean lockTitle(IngestionJob job, String title) {
+        try {
+            while (!job.isAborted()) {
+                if (ragService.lockTitle(title, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort(e);
+        }
+        return false;
+    }
+
+    /**
+     * Run one stage thread; an unexpected error stops the whole job
+     */
+    private static void stage(ExecutorService stages, IngestionJob job, CountDownLatch done, StageBody body) {
+        stages.execute(() -> {
+            try {
+                body.run();
+            } catch (Throwable e) {
+                job.abort(e);
+            } finally {
+                done.countDown();
+            }
+        });
+    }
+
+    /**
+     * Block while {@code queue} is full, giving up once the job is aborted
+     */
+    private static <T> void put(IngestionJob job, BlockingQueue<T> queue, T item) {
+        try {
+            while (!job.isAborted() && !queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // Downstream is busy; keep waiting
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort(e);
+        }
+    }
+
+    /**
+     * Next item of {@code queue}, or {@code end} once the job is aborted
+     */
+    private static <T> T take(IngestionJob job, BlockingQueue<T> queue, T end) {
+        try {
+            while (!job.isAborted()) {
+                T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    return item;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort(e);
+        }
+        return end;
+    }
+
+    private void chunkText(InputStream in, Consumer<String> sink) throws IOException {
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            chunker.chunk(reader, sink);
+        }
+    }
+
+    private void chunkPdf(Path pdf, Consumer<String> sink) throws IOException {
+        TextChunker.Session session = chunker.open(sink);
+        pdfExtractor.extract(pdf, (page, text) -> {
+            session.append(text);
+            session.append("\n");
+        });
+        session.finish();
+    }
+
+    private static boolean isPdf(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    private static boolean isSupported(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".txt") || lower.endsWith(".md") || lower.endsWith(".pdf");
+    }
+
+    /**
+     * One document of a source: its title, and how to chunk its content (run by a chunk worker)
+     */
+    private record SourceDocument(String title, Content content) {
+        static final SourceDocument END = new SourceDocument(null, null);
+    }
+
+    /**
+     * Chunks of one document on their way through the embed and index stages
+     */
+    private record Batch(DocumentState document, List<Document> documents, List<float[]> embeddings) {
+        static final Batch END = new Batch(null, null, null);
+    }
+
+    @FunctionalInterface
+    private interface Content {
+        void feed(Consumer<String> sink) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface SourceFactory {
+        Source open() throws IOException;
+    }
+
+    private interface Source extends Closeable {
+        /**
+         * Hand every document to {@code documents}; problems with single entries go to the job's errors
+         */
+        void read(IngestionJob job, Consumer<SourceDocument> documents) throws IOException;
+    }
+
+    /**
+     * A document whose batches are in flight. The chunk worker holds one reference while
+     * chunking and each queued batch another; whoever drops the last one completes the upsert
+     * and gives back the claim on the title.
+     */
+    private final class DocumentState {
+
+        final IngestionJob job;
+        final String title;
+        final String revision = UUID.randomUUID().toString();
+        final AtomicInteger outstanding = new AtomicInteger(1);
+        final AtomicBoolean settled = new AtomicBoolean();
+        final Collection<DocumentState> open;
+        volatile boolean failed;
+
+        DocumentState(IngestionJob job, String title, Collection<DocumentState> open) {
+            this.job = job;
+            this.title = title;
+            this.open = open;
+            open.add(this);
+        }
+
+        void release() {
+            if (outstanding.decrementAndGet() != 0 || !settled.compareAndSet(false, true)) {
+                return;
+            }
+            open.remove(this);
+            try {
+                if (failed) {
+                    ragService.deleteRevision(revision);
+                    job.documentFailed();
+                } else {
+                    ragService.deleteOlderRevisions(title, revision);
+                    job.documentIndexed();
+                }
+            } finally {
+                ragService.unlockTitle(title);
+            }
+        }
+
+        /**
+         * Drop whatever was indexed of a document caught half way by an aborted job
+         */
+        void rollBack() {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                ragService.deleteRevision(revision);
+            } finally {
+                ragService.unlockTitle(title);
+            }
+        }
+    }
+
+    private final class DirectorySource implements Source {
+
+        private final Path directory;
+
+        DirectorySource(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public void read(IngestionJob job, Consumer<SourceDocument> documents) throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                Iterator<Path> iterator = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> isSupported(file.getFileName().toString()))
+                    .sorted()
+                    .iterator();
+                while (iterator.hasNext() && !job.isAborted()) {
+                    Path file = iterator.next();
+                    String title = directory.relativize(file).toString();
+                    documents.accept(new SourceDocument(title, isPdf(title)
+                        ? sink -> chunkPdf(file, sink)
+                        : sink -> chunkText(Files.newInputStream(file), sink)));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            // Nothing to clean up; the directory belongs to the server
+        }
+    }
+
+    private final class ZipSource implements Source {
+
+        private final Path file;
+        /** Opened by read(), so that a corrupt upload still reaches close() and is deleted */
+        private ZipFile zip;
+
+        ZipSource(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void read(IngestionJob job, Consumer<SourceDocument> documents) throws IOException {
+            zip = new ZipFile(file.toFile());
+            Iterator<? extends ZipEntry> entries = zip.stream()
+                .filter(entry -> !entry.isDirectory() && isSupported(entry.getName()))
+                .iterator();
+            while (entries.hasNext() && !job.isAborted()) {
+                ZipEntry entry = entries.next();
+                documents.accept(new SourceDocument(entry.getName(), isPdf(entry.getName())
+                    ? sink -> chunkZippedPdf(entry, sink)
+                    : sink -> chunkText(zip.getInputStream(entry), sink)));
+            }
+        }
+
+        /**
+         * PDFBox needs random access, so the entry is copied out to a temporary file first
+         */
+        private void chunkZippedPdf(ZipEntry entry, Consumer<String> sink) throws IOException {
+            Path pdf = Files.createTempFile("rag-bulk-", ".pdf");
+            try {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    Files.copy(in, pdf, StandardCopyOption.REPLACE_EXISTING);
+                }
+                chunkPdf(pdf, sink);
+            } finally {
+                Files.deleteIfExists(pdf);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (zip != null) {
+                    zip.close();
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private final class JsonlSource implements Source {
+
+        private final Path file;
+
+        JsonlSource(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void read(IngestionJob job, Consumer<SourceDocument> documents) throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                int number = 0;
+                while ((line = reader.readLine()) != null && !job.isAborted()) {
+                    number++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        JsonNode node = objectMapper.readTree(line);
+                        String title = node.path("title").asText("");
+                        String content = node.path("content").asText("");
+                        if (title.isEmpty() || content.isEmpty()) {
+                            throw new IllegalArgumentException("Expected non-empty \"title\" and \"content\"");
+                        }
+                        documents.accept(new SourceDocument(title, sink -> chunker.chunk(content, sink)));
+                    } catch (IOException | IllegalArgumentException e) {
+                        job.error("line " + number, e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.springai.service;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * Limits how many calls reach the underlying chat model at once.
+ *
+ * Every call first takes a slot from the {@link ChatScheduler}, which decides who goes next
+ * by priority, fairness key and deadline (see {@link ChatRequestContext}). Calls that cannot
+ * get a slot are rejected with {@link BulkheadFullException} or {@link DeadlineExceededException}.
+ * Waiting blocks the calling thread, which is cheap when request handlers run on virtual
+ * threads. A stream holds its slot from subscription until it completes, fails or is cancelled.
+ */
+public class BulkheadChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final ChatScheduler scheduler;
+
+    public BulkheadChatModel(ChatModel delegate, ChatScheduler scheduler) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        scheduler.acquire(ChatRequestContext.current());
+        try {
+            return delegate.call(prompt);
+        } finally {
+            scheduler.release();
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        // Captured now: the stream may be subscribed on another thread
+        ChatRequestContext context = ChatRequestContext.current();
+        return Flux.defer(() -> {
+            scheduler.acquire(context);
+            return delegate.stream(prompt).doFinally(signal -> scheduler.release());
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.springai.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed embedding cache in front of an {@link EmbeddingModel}.
+ *
+ * Vectors are keyed by a hash of the model name and the text, so re-indexed chunks and
+ * repeated questions are embedded once. Lookups go to a bounded off-heap LRU first and then
+ * to an optional on-disk tier; misses are embedded in one delegate call and written to both.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final String model;
+    private final OffHeapVectorCache memory;
+    private final DiskVectorCache disk;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param disk on-disk tier, or {@code null} to keep the cache in memory only
+     */
+    CachingEmbeddingModel(EmbeddingModel delegate, String model, long memoryBytes, DiskVectorCache disk) {
+        this.delegate = delegate;
+        this.model = model;
+        this.memory = new OffHeapVectorCache(memoryBytes);
+        this.disk = disk;
+    }
+
+    public static CachingEmbeddingModel inMemory(EmbeddingModel delegate, String model, long memoryBytes) {
+        return new CachingEmbeddingModel(delegate, model, memoryBytes, null);
+    }
+
+    public static CachingEmbeddingModel withDisk(EmbeddingModel delegate, String model, long memoryBytes,
+            Path diskFile, long diskBytes) throws IOException {
+        return new CachingEmbeddingModel(delegate, model, memoryBytes, DiskVectorCache.open(diskFile, diskBytes));
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        EmbeddingKey key = EmbeddingKey.of(model, text);
+        float[] cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        misses.incrementAndGet();
+        float[] vector = delegate.embed(text);
+        store(key, vector);
+        return vector;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getContent());
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        float[][] vectors = new float[texts.size()][];
+        EmbeddingKey[] keys = new EmbeddingKey[texts.size()];
+        // Identical texts within one call are embedded once
+        Map<EmbeddingKey, Integer> missing = new HashMap<>();
+        List<String> toEmbed = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = EmbeddingKey.of(model, texts.get(i));
+            vectors[i] = lookup(keys[i]);
+            if (vectors[i] == null && missing.putIfAbsent(keys[i], toEmbed.size()) == null) {
+                toEmbed.add(texts.get(i));
+            }
+        }
+
+        if (!toEmbed.isEmpty()) {
+            misses.addAndGet(toEmbed.size());
+            List<float[]> embedded = delegate.embed(toEmbed);
+            for (Map.Entry<EmbeddingKey, Integer> entry : missing.entrySet()) {
+                store(entry.getKey(), embedded.get(entry.getValue()));
+            }
+            for (int i = 0; i < vectors.length; i++) {
+                if (vectors[i] == null) {
+                    vectors[i] = embedded.get(missing.get(keys[i]));
+                }
+            }
+        }
+        return List.of(vectors);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private float[] lookup(EmbeddingKey key) {
+        float[] vector = memory.get(key);
+        if (vector != null) {
+            memoryHits.incrementAndGet();
+            return vector;
+        }
+        if (disk != null) {
+            vector = disk.get(key);
+            if (vector != null) {
+                diskHits.incrementAndGet();
+                memory.put(key, vector);
+                return vector;
+            }
+        }
+        return null;
+    }
+
+    private void store(EmbeddingKey key, float[] vector) {
+        memory.put(key, vector);
+        if (disk != null) {
+            disk.put(key, vector);
+        }
+    }
+
+    /**
+     * Lookups served from the off-heap tier
+     */
+    public long memoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * Lookups served from the on-disk tier
+     */
+    public long diskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Texts that had to be embedded by the delegate
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Share of lookups served from either tier, 0 before the first lookup
+     */
+    public double hitRatio() {
+        long hits = memoryHits() + diskHits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Vectors currently held off-heap
+     */
+    public int memoryEntries() {
+        return memory.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (disk != null) {
+            disk.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.springai.service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Scheduling attributes of the chat model calls made while handling one request:
+ * its priority class, the key it is queued fairly under, and an optional deadline.
+ *
+ * Bound to the handling thread by the web layer; calls made without one are treated as
+ * interactive, anonymous and without deadline.
+ */
+public record ChatRequestContext(Priority priority, String fairnessKey, long deadlineNanos) {
+
+    /**
+     * Scheduling classes, most urgent first
+     */
+    public enum Priority {
+        INTERACTIVE, BATCH, INGESTION;
+
+        /**
+         * Parse a header value such as {@code batch}, falling back to {@code defaultValue}
+         */
+        public static Priority parse(String value, Priority defaultValue) {
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+    private static final ChatRequestContext DEFAULT = new ChatRequestContext(Priority.INTERACTIVE, "anonymous",
+        NO_DEADLINE);
+    private static final ThreadLocal<ChatRequestContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Context of a request that must be served within {@code timeout} from now (null for no deadline)
+     */
+    public static ChatRequestContext of(Priority priority, String fairnessKey, Duration timeout) {
+        long deadline = timeout == null ? NO_DEADLINE : System.nanoTime() + timeout.toNanos();
+        return new ChatRequestContext(priority, fairnessKey, deadline);
+    }
+
+    public static ChatRequestContext current() {
+        ChatRequestContext context = CURRENT.get();
+        return context != null ? context : DEFAULT;
+    }
+
+    public static void set(ChatRequestContext context) {
+        CURRENT.set(context);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Same request, queued under another key (e.g. a conversation id)
+     */
+    public ChatRequestContext withFairnessKey(String key) {
+        return new ChatRequestContext(priority, key, deadlineNanos);
+    }
+
+    public boolean hasDeadline() {
+        return deadlineNanos != NO_DEADLINE;
+    }
+
+    /**
+     * Nanoseconds left until the deadline at {@code now}; only meaningful if {@link #hasDeadline()}
+     */
+    public long remainingNanos(long now) {
+        return deadlineNanos - now;
+    }
+}
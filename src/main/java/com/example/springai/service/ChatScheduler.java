@@ -0,0 +1,282 @@
+package com.example.springai.service;
+
+import com.example.springai.service.ChatRequestContext.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out a fixed number of chat model slots to waiting calls, fairly.
+ *
+ * When a slot frees up, the priority class is picked by smooth weighted round-robin over
+ * the classes that have waiters, so interactive calls go first without starving batch or
+ * ingestion work. Within a class, fairness keys (conversation or client) take turns, so one
+ * key's burst only delays that key. Calls whose deadline passes while queued are dropped
+ * instead of being run for a caller that has already given up.
+ */
+public class ChatScheduler {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final long maxWaitNanos;
+    private final int[] weights = new int[PRIORITIES.length];
+    private final int[] credits = new int[PRIORITIES.length];
+    private final ClassQueue[] queues = new ClassQueue[PRIORITIES.length];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final MeterRegistry meterRegistry;
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+
+    private int active;
+    private int waiting;
+
+    /**
+     * @param weights share of freed slots each class gets while several are waiting (missing = 1)
+     */
+    public ChatScheduler(int maxConcurrent, int maxWaiting, Duration maxWait, Map<Priority, Integer> weights,
+            MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.meterRegistry = meterRegistry;
+        for (Priority priority : PRIORITIES) {
+            int i = priority.ordinal();
+            this.weights[i] = Math.max(1, weights.getOrDefault(priority, 1));
+            this.queues[i] = new ClassQueue();
+            String tag = priority.name().toLowerCase();
+            Gauge.builder("chat.scheduler.queue.depth", this, scheduler -> scheduler.queueDepth(priority))
+                .tag("priority", tag).register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("chat.scheduler.wait")
+                .tag("priority", tag).publishPercentileHistogram().register(meterRegistry));
+        }
+    }
+
+    /**
+     * Block until the calling request gets a slot; pair with {@link #release()}
+     *
+     * @throws BulkheadFullException      if the queue is full or no slot frees up within the max wait
+     * @throws DeadlineExceededException  if the request's deadline passes first
+     */
+    public void acquire(ChatRequestContext context) {
+        long now = System.nanoTime();
+        long waitNanos = maxWaitNanos;
+        if (context.hasDeadline()) {
+            long remaining = context.remainingNanos(now);
+            if (remaining <= 0) {
+                throw dropped(context, "deadline", new DeadlineExceededException("Request deadline already passed"));
+            }
+            waitNanos = Math.min(waitNanos, remaining);
+        }
+
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (active < maxConcurrent && waiting == 0) {
+                active++;
+                waitTimers.get(context.priority()).record(0, TimeUnit.NANOSECONDS);
+                return;
+            }
+            if (waiting >= maxWaiting) {
+                throw dropped(context, "full",
+                    new BulkheadFullException("Chat model is busy: " + maxWaiting + " requests already waiting"));
+            }
+            waiter = new Waiter(context);
+            queues[context.priority().ordinal()].add(waiter);
+            waiting++;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean signalled;
+        try {
+            signalled = waiter.latch.await(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            signalled = false;
+        }
+        if (!signalled) {
+            lock.lock();
+            try {
+                if (waiter.state == State.WAITING) {
+                    waiter.state = State.CANCELLED;
+                    queues[context.priority().ordinal()].live--;
+                    waiting--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        // A slot may have been granted just as the wait ran out; keep it rather than waste it
+        switch (waiter.state) {
+            case GRANTED -> waitTimers.get(context.priority()).record(System.nanoTime() - now, TimeUnit.NANOSECONDS);
+            case DROPPED -> throw dropped(context, "deadline",
+                new DeadlineExceededException("Request deadline passed while queued"));
+            default -> throw context.hasDeadline() && context.remainingNanos(System.nanoTime()) <= 0
+                ? dropped(context, "deadline", new DeadlineExceededException("Request deadline passed while queued"))
+                : dropped(context, "timeout", new BulkheadFullException("Chat model is busy: no capacity within "
+                    + Duration.ofNanos(maxWaitNanos).toMillis() + " ms"));
+        }
+    }
+
+    /**
+     * Give back a slot and hand it to the next waiter
+     */
+    public void release() {
+        lock.lock();
+        try {
+            active--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls currently holding a slot
+     */
+    public int active() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls currently queued for a slot
+     */
+    public int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return queues[priority.ordinal()].live;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        long now = System.nanoTime();
+        while (active < maxConcurrent && waiting > 0) {
+            Waiter next = queues[pickClass()].poll();
+            if (next == null) {
+                return;
+            }
+            waiting--;
+            if (next.context.hasDeadline() && next.context.remainingNanos(now) <= 0) {
+                next.state = State.DROPPED;
+            } else {
+                next.state = State.GRANTED;
+                active++;
+            }
+            next.latch.countDown();
+        }
+    }
+
+    /**
+     * Smooth weighted round-robin over the classes with live waiters
+     */
+    private int pickClass() {
+        int total = 0;
+        int best = -1;
+        for (int i = 0; i < queues.length; i++) {
+            if (queues[i].live == 0) {
+                continue;
+            }
+            credits[i] += weights[i];
+            total += weights[i];
+            if (best < 0 || credits[i] > credits[best]) {
+                best = i;
+            }
+        }
+        credits[best] -= total;
+        return best;
+    }
+
+    private RuntimeException dropped(ChatRequestContext context, String reason, RuntimeException exception) {
+        Counter.builder("chat.scheduler.rejected")
+            .tags("priority", context.priority().name().toLowerCase(), "reason", reason)
+            .register(meterRegistry)
+            .increment();
+        return exception;
+    }
+
+    private enum State { WAITING, GRANTED, DROPPED, CANCELLED }
+
+    private static final class Waiter {
+
+        final ChatRequestContext context;
+        final CountDownLatch latch = new CountDownLatch(1);
+        State state = State.WAITING;
+
+        Waiter(ChatRequestContext context) {
+            this.context = context;
+        }
+    }
+
+    /**
+     * Waiters of one priority class, one FIFO per fairness key, keys served round-robin.
+     * Cancelled waiters stay queued and are skipped when reached.
+     */
+    private static final class ClassQueue {
+
+        final Map<String, ArrayDeque<Waiter>> byKey = new HashMap<>();
+        final ArrayDeque<String> rotation = new ArrayDeque<>();
+        int live;
+
+        void add(Waiter waiter) {
+            ArrayDeque<Waiter> queue = byKey.get(waiter.context.fairnessKey());
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                byKey.put(waiter.context.fairnessKey(), queue);
+                rotation.addLast(waiter.context.fairnessKey());
+            }
+            queue.addLast(waiter);
+            live++;
+        }
+
+        Waiter poll() {
+            while (!rotation.isEmpty()) {
+                String key = rotation.pollFirst();
+                ArrayDeque<Waiter> queue = byKey.get(key);
+                Waiter found = null;
+                while (found == null && !queue.isEmpty()) {
+                    Waiter candidate = queue.pollFirst();
+                    if (candidate.state == State.WAITING) {
+                        found = candidate;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    byKey.remove(key);
+                } else {
+                    rotation.addLast(key);
+                }
+                if (found != null) {
+                    live--;
+                    return found;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.springai.service;
+
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A prompt template parsed once into literal text and {@code {variable}} slots.
+ *
+ * Rendering is a single pass into a pre-sized builder, with no re-parsing and no
+ * intermediate strings. Braces that do not enclose a plain identifier are kept as text.
+ */
+public final class CompiledTemplate {
+
+    private final String source;
+    private final String[] literals;
+    private final int[] slots;
+    private final List<String> variables;
+    private final int literalLength;
+
+    private CompiledTemplate(String source, String[] literals, int[] slots, List<String> variables) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        this.variables = List.copyOf(variables);
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parse {@code template}, whose variables are written {@code {name}}
+     */
+    public static CompiledTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Map<String, Integer> variables = new LinkedHashMap<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < template.length()) {
+            int open = template.indexOf('{', i);
+            if (open < 0) {
+                break;
+            }
+            int close = template.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            String name = template.substring(open + 1, close);
+            if (!isIdentifier(name)) {
+                i = open + 1;
+                continue;
+            }
+            literals.add(template.substring(literalStart, open));
+            slots.add(variables.computeIfAbsent(name, key -> variables.size()));
+            literalStart = close + 1;
+            i = literalStart;
+        }
+        literals.add(template.substring(literalStart));
+        return new CompiledTemplate(template, literals.toArray(String[]::new),
+            slots.stream().mapToInt(Integer::intValue).toArray(), new ArrayList<>(variables.keySet()));
+    }
+
+    /**
+     * Variable names in order of first appearance
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Render with one value per variable, in the order of {@link #variables()}
+     */
+    public String render(Object... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException("Template expects " + variables.size() + " values " + variables
+                + " but got " + values.length);
+        }
+        String[] text = new String[values.length];
+        int length = literalLength;
+        for (int i = 0; i < values.length; i++) {
+            text[i] = String.valueOf(values[i]);
+        }
+        for (int slot : slots) {
+            length += text[slot].length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]).append(text[slots[i]]);
+        }
+        return out.append(literals[slots.length]).toString();
+    }
+
+    /**
+     * Render with values looked up by variable name
+     */
+    public String render(Map<String, ?> values) {
+        Object[] ordered = new Object[variables.size()];
+        for (int i = 0; i < ordered.length; i++) {
+            String name = variables.get(i);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("Missing value for template variable '" + name + "'");
+            }
+            ordered[i] = values.get(name);
+        }
+        return render(ordered);
+    }
+
+    /**
+     * Render into a user-message prompt, values in the order of {@link #variables()}
+     */
+    public Prompt prompt(Object... values) {
+        return new Prompt(render(values));
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.springai.service;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Assembles the context of a RAG prompt from ranked chunks within a token budget.
+ *
+ * Chunks are picked by maximal marginal relevance: each step takes the chunk with the best
+ * {@code lambda * relevance - (1 - lambda) * similarity to the chunks already picked}, so a
+ * second chunk saying the same thing loses to a slightly less relevant one that adds something.
+ * Relevance is the fused retrieval score; similarity is the Jaccard index of the chunks' word
+ * sets, which needs no extra embedding call. Chunks at least {@code duplicateSimilarity}
+ * similar to a picked one are dropped outright, and chunks that no longer fit the budget are
+ * skipped in favour of shorter ones further down.
+ *
+ * Picked chunks that are consecutive in the same document revision are then merged into one,
+ * with the text the chunker repeated between them kept once.
+ *
+ * Thread-safe; keeps running totals of the tokens packed and saved for metrics.
+ */
+public class ContextPacker {
+
+    /** Shortest repeated text between adjacent chunks worth looking for */
+    private static final int MIN_OVERLAP = 16;
+
+    private final TokenCounter tokenCounter;
+    private final int maxChunks;
+    private final int tokenBudget;
+    private final double lambda;
+    private final double duplicateSimilarity;
+
+    private final LongAdder packs = new LongAdder();
+    private final LongAdder packedTokens = new LongAdder();
+    private final LongAdder savedTokens = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * @param maxChunks           chunks picked at most (before merging)
+     * @param tokenBudget         tokens of context at most
+     * @param lambda              weight of relevance against diversity, from 0 (diversity only) to 1 (relevance only)
+     * @param duplicateSimilarity word-set similarity from which a chunk counts as a duplicate of a picked one
+     */
+    public ContextPacker(TokenCounter tokenCounter, int maxChunks, int tokenBudget, double lambda,
+            double duplicateSimilarity) {
+        this.tokenCounter = tokenCounter;
+        this.maxChunks = Math.max(1, maxChunks);
+        this.tokenBudget = tokenBudget;
+        this.lambda = lambda;
+        this.duplicateSimilarity = duplicateSimilarity;
+    }
+
+    /**
+     * The context packed from one query's chunks
+     *
+     * @param documents      chunks to put in the prompt, most relevant first; merged ones carry a
+     *                       {@code chunk} range such as {@code "3-4"}
+     * @param tokens         tokens of their text
+     * @param unpackedTokens tokens of the best {@code maxChunks} chunks as ranked, i.e. the
+     *                       context without packing
+     */
+    public record Packed(List<Document> documents, int tokens, int unpackedTokens) {
+
+        /**
+         * Tokens packing kept out of the prompt; negative if diversifying picked longer chunks
+         */
+        public int tokensSaved() {
+            return unpackedTokens - tokens;
+        }
+
+        /**
+         * The documents' text, separated by blank lines
+         */
+        public String text() {
+            return documents.stream().map(Document::getContent).collect(Collectors.joining("\n\n"));
+        }
+    }
+
+    /**
+     * Pack chunks ranked best first; their relevance is read from the {@code rrfScore} metadata
+     * entry, falling back to rank order
+     */
+    public Packed pack(List<Document> ranked) {
+        int count = ranked.size();
+        int[] tokens = new int[count];
+        double[] relevance = new double[count];
+        List<Set<String>> words = new ArrayList<>(count);
+        double best = 0;
+        int unpacked = 0;
+        for (int i = 0; i < count; i++) {
+            Document document = ranked.get(i);
+            tokens[i] = tokenCounter.count(document.getContent());
+            relevance[i] = document.getMetadata().get("rrfScore") instanceof Number score
+                ? score.doubleValue()
+                : 1.0 / (i + 1);
+            best = Math.max(best, relevance[i]);
+            words.add(words(document.getContent()));
+            if (i < maxChunks) {
+                unpacked += tokens[i];
+            }
+        }
+
+        List<Integer> picked = new ArrayList<>();
+        boolean[] done = new boolean[count];
+        // Highest similarity of each chunk to any picked one, updated as chunks are picked
+        double[] redundancy = new double[count];
+        int used = 0;
+        while (picked.size() < maxChunks) {
+            int next = -1;
+            double nextScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                if (redundancy[i] >= duplicateSimilarity) {
+                    done[i] = true;
+                    duplicates.increment();
+                    continue;
+                }
+                if (used + tokens[i] > tokenBudget) {
+                    continue;
+                }
+                double score = lambda * (best > 0 ? relevance[i] / best : 0) - (1 - lambda) * redundancy[i];
+                if (score > nextScore) {
+                    next = i;
+                    nextScore = score;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            done[next] = true;
+            picked.add(next);
+            used += tokens[next];
+            for (int i = 0; i < count; i++) {
+                if (!done[i]) {
+                    redundancy[i] = Math.max(redundancy[i], jaccard(words.get(i), words.get(next)));
+                }
+            }
+        }
+
+        List<Document> documents = merge(picked.stream().map(ranked::get).toList());
+        int packed = documents.size() == picked.size()
+            ? used
+            : documents.stream().mapToInt(document -> tokenCounter.count(document.getContent())).sum();
+        packs.increment();
+        packedTokens.add(packed);
+        savedTokens.add(unpacked - packed);
+        return new Packed(documents, packed, unpacked);
+    }
+
+    /**
+     * Queries packed so far
+     */
+    public long packs() {
+        return packs.sum();
+    }
+
+    /**
+     * Context tokens sent over all queries
+     */
+    public long packedTokens() {
+        return packedTokens.sum();
+    }
+
+    /**
+     * Context tokens saved over all queries
+     */
+    public long savedTokens() {
+        return savedTokens.sum();
+    }
+
+    /**
+     * Near-duplicate chunks dropped over all queries
+     */
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Merge runs of consecutive chunks of the same document revision, keeping the order in which
+     * each run's first chunk was picked
+     */
+    private static List<Document> merge(List<Document> picked) {
+        Map<String, List<Document>> byRevision = new LinkedHashMap<>();
+        List<Document> unmergeable = new ArrayList<>();
+        for (Document document : picked) {
+            Map<String, Object> metadata = document.getMetadata();
+            if (metadata.get("title") == null || chunkIndex(document) < 0) {
+                unmergeable.add(document);
+            } else {
+                byRevision.computeIfAbsent(metadata.get("title") + "\u0000" + metadata.get("revision"),
+                    key -> new ArrayList<>()).add(document);
+            }
+        }
+        if (byRevision.values().stream().allMatch(group -> group.size() == 1)) {
+            return picked;
+        }
+
+        // Each picked chunk maps to the document of its run; runs are emitted at their first chunk
+        Map<Document, Document> runOf = new HashMap<>();
+        for (List<Document> group : byRevision.values()) {
+            List<Document> sorted = new ArrayList<>(group);
+            sorted.sort(Comparator.comparingInt(ContextPacker::chunkIndex));
+            int start = 0;
+            for (int i = 1; i <= sorted.size(); i++) {
+                if (i == sorted.size() || chunkIndex(sorted.get(i)) != chunkIndex(sorted.get(i - 1)) + 1) {
+                    Document run = mergeRun(sorted.subList(start, i));
+                    for (Document member : sorted.subList(start, i)) {
+                        runOf.put(member, run);
+                    }
+                    start = i;
+                }
+            }
+        }
+        Set<Document> emitted = new HashSet<>();
+        List<Document> merged = new ArrayList<>(picked.size());
+        for (Document document : picked) {
+            Document run = runOf.getOrDefault(document, document);
+            if (emitted.add(run)) {
+                merged.add(run);
+            }
+        }
+        return merged;
+    }
+
+    private static Document mergeRun(List<Document> run) {
+        if (run.size() == 1) {
+            return run.get(0);
+        }
+        Document first = run.get(0);
+        StringBuilder text = new StringBuilder(first.getContent());
+        double score = 0;
+        for (int i = 0; i < run.size(); i++) {
+            Document document = run.get(i);
+            if (i > 0) {
+                String next = document.getContent();
+                int overlap = overlap(text, next);
+                text.append(overlap > 0 ? "" : "\n").append(next, overlap, next.length());
+            }
+            if (document.getMetadata().get("rrfScore") instanceof Number value) {
+                score = Math.max(score, value.doubleValue());
+            }
+        }
+        Map<String, Object> metadata = new HashMap<>(first.getMetadata());
+        metadata.put("chunk", chunkIndex(first) + "-" + chunkIndex(run.get(run.size() - 1)));
+        metadata.put("rrfScore", score);
+        return new Document(first.getId(), text.toString(), metadata);
+    }
+
+    /**
+     * Length of the longest prefix of {@code next} that {@code text} ends with, if at least
+     * {@code MIN_OVERLAP} long: the sentences the chunker repeated from the previous chunk
+     */
+    static int overlap(CharSequence text, String next) {
+        int longest = Math.min(text.length(), next.length());
+        if (longest < MIN_OVERLAP) {
+            return 0;
+        }
+        // Every candidate overlap starts in text with next's first MIN_OVERLAP characters
+        String head = next.substring(0, MIN_OVERLAP);
+        String tail = text.subSequence(text.length() - longest, text.length()).toString();
+        for (int from = tail.indexOf(head); from >= 0; from = tail.indexOf(head, from + 1)) {
+            int length = tail.length() - from;
+            if (next.regionMatches(0, tail, from, length)) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private static int chunkIndex(Document document) {
+        Object chunk = document.getMetadata().get("chunk");
+        if (chunk instanceof Number number) {
+            return number.intValue();
+        }
+        if (chunk instanceof String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int common = 0;
+        for (String word : smaller) {
+            if (larger.contains(word)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.springai.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only file of (key, vector) records with an in-memory offset index.
+ * When the file would grow past {@code maxBytes} it is started over.
+ */
+final class DiskVectorCache implements AutoCloseable {
+
+    private static final int RECORD_HEADER = Long.BYTES * 2 + Integer.BYTES;
+    /** More than any embedding model produces; larger values in a record mean it is not one */
+    private static final int MAX_DIMENSIONS = 1 << 16;
+
+    private final FileChannel channel;
+    private final long maxBytes;
+    private final Map<EmbeddingKey, Long> offsets = new ConcurrentHashMap<>();
+    private long end;
+    /** Incremented whenever the file is started over */
+    private volatile long generation;
+
+    private DiskVectorCache(FileChannel channel, long maxBytes) {
+        this.channel = channel;
+        this.maxBytes = maxBytes;
+    }
+
+    static DiskVectorCache open(Path file, long maxBytes) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DiskVectorCache cache = new DiskVectorCache(channel, maxBytes);
+        cache.scan();
+        return cache;
+    }
+
+    private void scan() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0;
+        while (position + RECORD_HEADER <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            EmbeddingKey key = new EmbeddingKey(header.getLong(), header.getLong());
+            int dimensions = header.getInt();
+            long next = position + RECORD_HEADER + (long) dimensions * Float.BYTES;
+            if (dimensions <= 0 || dimensions > MAX_DIMENSIONS || next > size) {
+                break;
+            }
+            offsets.put(key, position);
+            position = next;
+        }
+        // Drop a torn record at the tail
+        channel.truncate(position);
+        end = position;
+    }
+
+    /**
+     * The vector stored for {@code key}, or null. Runs concurrently with {@link #put}: a file
+     * started over since the offset was looked up is detected by the generation changing, and
+     * a record found at the offset is only returned if it carries the key asked for.
+     */
+    float[] get(EmbeddingKey key) {
+        long generation = this.generation;
+        Long offset = offsets.get(key);
+        if (offset == null) {
+            return null;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header, offset) < RECORD_HEADER) {
+                return null;
+            }
+            header.flip();
+            if (header.getLong() != key.high() || header.getLong() != key.low()) {
+                return null;
+            }
+            int dimensions = header.getInt();
+            if (dimensions <= 0 || dimensions > MAX_DIMENSIONS
+                    || offset + RECORD_HEADER + (long) dimensions * Float.BYTES > channel.size()) {
+                return null;
+            }
+            ByteBuffer data = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(data, offset + RECORD_HEADER) < data.capacity() || this.generation != generation) {
+                return null;
+            }
+            float[] vector = new float[dimensions];
+            data.flip().asFloatBuffer().get(vector);
+            return vector;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void put(EmbeddingKey key, float[] vector) {
+        if (offsets.containsKey(key)) {
+            return;
+        }
+        try {
+            int length = RECORD_HEADER + vector.length * Float.BYTES;
+            if (end + length > maxBytes) {
+                generation++;
+                offsets.clear();
+                channel.truncate(0);
+                end = 0;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            record.putLong(key.high()).putLong(key.low()).putInt(vector.length);
+            record.asFloatBuffer().put(vector);
+            record.position(length).flip();
+            while (record.hasRemaining()) {
+                channel.write(record, end + record.position());
+            }
+            offsets.put(key, end);
+            end += length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.springai.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a JSON object as its text streams in and reports each element of its top-level
+ * arrays as soon as the element is complete.
+ *
+ * Built on Jackson's non-blocking parser, so a token split across chunks simply waits for
+ * the next one. Text before the first {@code '{'} (such as a Markdown code fence) and
+ * anything after the root object closes are ignored. Not thread-safe: one instance per stream.
+ */
+public class IncrementalJsonParser {
+
+    /**
+     * One completed element of the top-level array {@code field}
+     */
+    public record Element(String field, int index, JsonNode value) {}
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean finished;
+    private int depth;
+    private String field;
+    private String arrayField;
+    private int index;
+    private TokenBuffer element;
+    private char pendingHighSurrogate;
+
+    public IncrementalJsonParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feed the next piece of text, returning the array elements it completed
+     */
+    public List<Element> feed(CharSequence text) {
+        if (finished || text.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder chunk = new StringBuilder(text.length() + 1);
+        if (pendingHighSurrogate != 0) {
+            chunk.append(pendingHighSurrogate);
+            pendingHighSurrogate = 0;
+        }
+        int from = 0;
+        if (!started) {
+            while (from < text.length() && text.charAt(from) != '{') {
+                from++;
+            }
+            if (from == text.length()) {
+                return List.of();
+            }
+            started = true;
+        }
+        chunk.append(text, from, text.length());
+        // Never split a surrogate pair across two UTF-8 encodings
+        if (Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))) {
+            pendingHighSurrogate = chunk.charAt(chunk.length() - 1);
+            chunk.setLength(chunk.length() - 1);
+        }
+
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        List<Element> completed = new ArrayList<>();
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (!finished && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+                onToken(token, completed);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed JSON in model output", e);
+        }
+        return completed;
+    }
+
+    /**
+     * Whether the root object has been closed
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private void onToken(JsonToken token, List<Element> completed) throws IOException {
+        if (element != null) {
+            // Inside an array element: buffer until it closes back at array level
+            element.copyCurrentEvent(parser);
+            depth += token.isStructStart() ? 1 : token.isStructEnd() ? -1 : 0;
+            if (depth == 2) {
+                emit(completed);
+            }
+            return;
+        }
+        if (depth == 2 && arrayField != null) {
+            if (token == JsonToken.END_ARRAY) {
+                depth = 1;
+                arrayField = null;
+                return;
+            }
+            element = new TokenBuffer(parser);
+            element.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else {
+                emit(completed);
+            }
+            return;
+        }
+        if (depth == 1 && token == JsonToken.FIELD_NAME) {
+            field = parser.currentName();
+        } else if (depth == 1 && token == JsonToken.START_ARRAY) {
+            arrayField = field;
+            index = 0;
+            depth++;
+        } else if (token.isStructStart()) {
+            depth++;
+        } else if (token.isStructEnd()) {
+            depth--;
+            finished = depth == 0;
+        }
+    }
+
+    private void emit(List<Element> completed) throws IOException {
+        try (JsonParser buffered = element.asParser(objectMapper)) {
+            completed.add(new Element(arrayField, index++, objectMapper.readTree(buffered)));
+        }
+        element = null;
+    }
+}
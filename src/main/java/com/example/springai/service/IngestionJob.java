@@ -0,0 +1,150 @@
+package com.example.springai.service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one bulk ingestion run, updated concurrently by its pipeline stages
+ */
+public class IngestionJob {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    /**
+     * A document (or source line) that could not be indexed
+     */
+    public record Error(String document, String message) {}
+
+    /**
+     * Point-in-time view of a job, as reported by the progress API
+     */
+    public record Progress(String id, String source, State state, Instant createdAt, double elapsedSeconds,
+            long documentsRead, long documentsIndexed, long documentsFailed,
+            long chunksProduced, long chunksEmbedded, long chunksIndexed,
+            double documentsPerSecond, double chunksPerSecond,
+            long errorCount, List<Error> errors, String failure) {}
+
+    private final String id;
+    private final String source;
+    private final int maxErrors;
+    private final Instant createdAt = Instant.now();
+
+    private final AtomicLong documentsRead = new AtomicLong();
+    private final AtomicLong documentsIndexed = new AtomicLong();
+    private final AtomicLong documentsFailed = new AtomicLong();
+    private final AtomicLong chunksProduced = new AtomicLong();
+    private final AtomicLong chunksEmbedded = new AtomicLong();
+    private final AtomicLong chunksIndexed = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final ArrayDeque<Error> errors = new ArrayDeque<>();
+
+    private volatile State state = State.QUEUED;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String failure;
+
+    IngestionJob(String id, String source, int maxErrors) {
+        this.id = id;
+        this.source = source;
+        this.maxErrors = Math.max(1, maxErrors);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    public Progress progress() {
+        long start = startNanos;
+        long end = state == State.RUNNING ? System.nanoTime() : endNanos;
+        double elapsed = start == 0 ? 0 : (end - start) / 1e9;
+        List<Error> recent;
+        synchronized (errors) {
+            recent = List.copyOf(errors);
+        }
+        return new Progress(id, source, state, createdAt, elapsed,
+            documentsRead.get(), documentsIndexed.get(), documentsFailed.get(),
+            chunksProduced.get(), chunksEmbedded.get(), chunksIndexed.get(),
+            rate(documentsIndexed.get(), elapsed), rate(chunksIndexed.get(), elapsed),
+            errorCount.get(), recent, failure);
+    }
+
+    void started() {
+        startNanos = System.nanoTime();
+        state = State.RUNNING;
+    }
+
+    void completed() {
+        endNanos = System.nanoTime();
+        state = State.COMPLETED;
+    }
+
+    /**
+     * Stop the whole job; stages notice through {@link #isAborted()}
+     */
+    void abort(Throwable cause) {
+        if (failure == null) {
+            failure = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        }
+    }
+
+    boolean isAborted() {
+        return failure != null;
+    }
+
+    void failed() {
+        endNanos = System.nanoTime();
+        state = State.FAILED;
+    }
+
+    void documentRead() {
+        documentsRead.incrementAndGet();
+    }
+
+    void documentIndexed() {
+        documentsIndexed.incrementAndGet();
+    }
+
+    void documentFailed() {
+        documentsFailed.incrementAndGet();
+    }
+
+    void chunksProduced(int count) {
+        chunksProduced.addAndGet(count);
+    }
+
+    void chunksEmbedded(int count) {
+        chunksEmbedded.addAndGet(count);
+    }
+
+    void chunksIndexed(int count) {
+        chunksIndexed.addAndGet(count);
+    }
+
+    /**
+     * Record an error; only the most recent {@code maxErrors} are kept
+     */
+    void error(String document, Throwable cause) {
+        errorCount.incrementAndGet();
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        synchronized (errors) {
+            if (errors.size() == maxErrors) {
+                errors.removeFirst();
+            }
+            errors.addLast(new Error(document, message));
+        }
+    }
+
+    private static double rate(long count, double seconds) {
+        return seconds > 0 ? count / seconds : 0;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.springai.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latency and token usage of every call to the wrapped chat model:
+ * <ul>
+ *   <li>{@code llm.call.duration} (histogram) by mode ({@code call} or {@code stream}) and outcome</li>
+ *   <li>{@code llm.stream.first-token} (histogram): time from subscription to the first streamed chunk</li>
+ *   <li>{@code llm.tokens} by type ({@code prompt} or {@code completion}), as reported by the model</li>
+ *   <li>{@code llm.tokens.per-second}: completion tokens over generation time (after the first token
+ *       for streams)</li>
+ * </ul>
+ * All are tagged with the model name. Sits inside the bulkhead, so queueing time is not counted
+ * here but in {@code chat.scheduler.wait}.
+ */
+public class MeteredChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final MeterRegistry meterRegistry;
+    private final String model;
+    private final Timer firstToken;
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary completionTokens;
+    private final DistributionSummary tokensPerSecond;
+
+    public MeteredChatModel(ChatModel delegate, MeterRegistry meterRegistry, String model) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.model = model;
+        this.firstToken = Timer.builder("llm.stream.first-token")
+            .tag("model", model).publishPercentileHistogram().register(meterRegistry);
+        this.promptTokens = DistributionSummary.builder("llm.tokens")
+            .tags("model", model, "type", "prompt").baseUnit("tokens").register(meterRegistry);
+        this.completionTokens = DistributionSummary.builder("llm.tokens")
+            .tags("model", model, "type", "completion").baseUnit("tokens").register(meterRegistry);
+        this.tokensPerSecond = DistributionSummary.builder("llm.tokens.per-second")
+            .tag("model", model).publishPercentileHistogram().register(meterRegistry);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            ChatResponse response = delegate.call(prompt);
+            outcome = "success";
+            long elapsed = System.nanoTime() - start;
+            Usage usage = response != null && response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+            if (usage != null) {
+                recordUsage(usage.getPromptTokens(), usage.getGenerationTokens(), elapsed);
+            }
+            return response;
+        } finally {
+            duration("call", outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong first = new AtomicLong();
+            AtomicLong chunks = new AtomicLong();
+            // Usage arrives with the final chunk, if the model reports it at all
+            AtomicLong prompted = new AtomicLong(-1);
+            AtomicLong generated = new AtomicLong(-1);
+            return delegate.stream(prompt)
+                .doOnNext(response -> {
+                    if (first.compareAndSet(0, System.nanoTime())) {
+                        firstToken.record(first.get() - start, TimeUnit.NANOSECONDS);
+                    }
+                    chunks.incrementAndGet();
+                    Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+                    if (usage != null) {
+                        if (usage.getPromptTokens() != null && usage.getPromptTokens() > 0) {
+                            prompted.set(usage.getPromptTokens());
+                        }
+                        if (usage.getGenerationTokens() != null && usage.getGenerationTokens() > 0) {
+                            generated.set(usage.getGenerationTokens());
+                        }
+                    }
+                })
+                .doFinally(signal -> {
+                    long end = System.nanoTime();
+                    String outcome = signal == SignalType.ON_COMPLETE ? "success"
+                        : signal == SignalType.CANCEL ? "cancelled" : "error";
+                    duration("stream", outcome).record(end - start, TimeUnit.NANOSECONDS);
+                    if (signal == SignalType.ON_COMPLETE && first.get() != 0) {
+                        // Without reported usage, each streamed chunk is about one token
+                        long completion = generated.get() >= 0 ? generated.get() : chunks.get();
+                        recordUsage(prompted.get() >= 0 ? prompted.get() : null, completion, end - first.get());
+                    }
+                });
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private void recordUsage(Long prompt, Long completion, long generationNanos) {
+        if (prompt != null) {
+            promptTokens.record(prompt);
+        }
+        if (completion != null) {
+            completionTokens.record(completion);
+            if (generationNanos > 0) {
+                tokensPerSecond.record(completion * 1e9 / generationNanos);
+            }
+        }
+    }
+
+    private Timer duration(String mode, String outcome) {
+        return Timer.builder("llm.call.duration")
+            .tags("model", model, "mode", mode, "outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
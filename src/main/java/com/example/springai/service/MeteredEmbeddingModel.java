@@ -0,0 +1,58 @@
+package com.example.springai.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every call that reaches the embedding model: {@code embedding.call.duration}
+ * (histogram) and {@code embedding.batch.size} (texts per call). Placed under the
+ * {@link BatchingEmbeddingModel}, so each sample is one coalesced batch.
+ */
+public class MeteredEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final Timer duration;
+    private final DistributionSummary batchSize;
+
+    public MeteredEmbeddingModel(EmbeddingModel delegate, MeterRegistry meterRegistry, String model) {
+        this.delegate = delegate;
+        this.duration = Timer.builder("embedding.call.duration")
+            .tag("model", model).publishPercentileHistogram().register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("embedding.batch.size")
+            .tag("model", model).baseUnit("texts").publishPercentileHistogram().register(meterRegistry);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        batchSize.record(request.getInstructions().size());
+        long start = System.nanoTime();
+        try {
+            return delegate.call(request);
+        } finally {
+            duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        batchSize.record(1);
+        long start = System.nanoTime();
+        try {
+            return delegate.embed(document);
+        } finally {
+            duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
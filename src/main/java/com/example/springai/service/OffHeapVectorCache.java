@@ -0,0 +1,68 @@
+package com.example.springai.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of vectors stored in a direct buffer. The heap only holds the keys and slot
+ * numbers; the slab is allocated on first use, once the vector dimension is known.
+ */
+final class OffHeapVectorCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<EmbeddingKey, Integer> slots = new LinkedHashMap<>(1024, 0.75f, true);
+    private FloatBuffer slab;
+    private int dimensions;
+    private int capacity;
+
+    OffHeapVectorCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized float[] get(EmbeddingKey key) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        slab.get(slot * dimensions, vector);
+        return vector;
+    }
+
+    synchronized void put(EmbeddingKey key, float[] vector) {
+        if (slab == null) {
+            allocate(vector.length);
+        }
+        if (capacity == 0 || vector.length != dimensions || slots.containsKey(key)) {
+            return;
+        }
+        int slot;
+        if (slots.size() < capacity) {
+            slot = slots.size();
+        } else {
+            Iterator<Map.Entry<EmbeddingKey, Integer>> eldest = slots.entrySet().iterator();
+            slot = eldest.next().getValue();
+            eldest.remove();
+        }
+        slab.put(slot * dimensions, vector);
+        slots.put(key, slot);
+    }
+
+    synchronized int size() {
+        return slots.size();
+    }
+
+    private void allocate(int dimensions) {
+        this.dimensions = dimensions;
+        // A direct buffer holds at most Integer.MAX_VALUE bytes, whatever memory-size asks for
+        this.capacity = (int) Math.min(Integer.MAX_VALUE / ((long) dimensions * Float.BYTES),
+            maxBytes / ((long) dimensions * Float.BYTES));
+        this.slab = ByteBuffer.allocateDirect(capacity * dimensions * Float.BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asFloatBuffer();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.springai.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts PDF page text with several PDFBox readers in parallel.
+ *
+ * Worker {@code w} of {@code n} opens its own copy of the document and strips pages
+ * {@code w, w + n, w + 2n, ...} into a small queue; pages are handed to the caller strictly
+ * in page order. Each queue holds at most two pages, so memory stays bounded however
+ * long the document is.
+ */
+public class PdfTextExtractor {
+
+    private static final int PAGES_AHEAD = 2;
+    private static final long POLL_MILLIS = 100;
+
+    private final int parallelism;
+
+    public PdfTextExtractor(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Feed the text of every page of {@code pdf} to {@code pageSink}, in order
+     */
+    public void extract(Path pdf, PageSink pageSink) throws IOException {
+        int pages;
+        try (PDDocument document = Loader.loadPDF(pdf.toFile())) {
+            pages = document.getNumberOfPages();
+        }
+        if (pages == 0) {
+            return;
+        }
+
+        int workers = Math.min(parallelism, pages);
+        List<BlockingQueue<PageText>> queues = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            queues.add(new ArrayBlockingQueue<>(PAGES_AHEAD));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-extract");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> futures = new ArrayList<>(workers);
+        try {
+            for (int w = 0; w < workers; w++) {
+                int worker = w;
+                futures.add(executor.submit(() -> stripPages(pdf, worker, workers, pages, queues.get(worker))));
+            }
+            for (int page = 1; page <= pages; page++) {
+                int worker = (page - 1) % workers;
+                PageText text = next(queues.get(worker), futures.get(worker));
+                if (text.error() instanceof IOException e) {
+                    throw e;
+                }
+                if (text.error() != null) {
+                    throw new IOException("Failed to extract page " + page + " of " + pdf, text.error());
+                }
+                pageSink.accept(page, text.text());
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting " + pdf, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to extract " + pdf, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The next page a worker queued; once the worker has ended with nothing left in its queue,
+     * its failure is rethrown rather than waiting for a page that will never come
+     */
+    private static PageText next(BlockingQueue<PageText> queue, Future<?> worker)
+            throws InterruptedException, ExecutionException, IOException {
+        while (true) {
+            PageText text = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (text != null) {
+                return text;
+            }
+            if (worker.isDone() && queue.isEmpty()) {
+                worker.get();
+                throw new IOException("PDF worker ended before extracting all of its pages");
+            }
+        }
+    }
+
+    private Void stripPages(Path pdf, int worker, int workers, int pages, BlockingQueue<PageText> queue)
+            throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+            for (int page = worker + 1; page <= pages; page += workers) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                queue.put(new PageText(stripper.getText(document), null));
+            }
+        } catch (InterruptedException e) {
+            // The consumer has stopped reading and shut the workers down
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            // Never block here: a consumer that has stopped reading would leave this thread stuck.
+            // If the queue is full, the failure reaches the consumer through this worker's future.
+            if (!queue.offer(new PageText(null, e))) {
+                throw new IOException("Failed to extract " + pdf, e);
+            }
+        }
+        return null;
+    }
+
+    private record PageText(String text, Throwable error) {}
+
+    /**
+     * Receives page text in page order (pages are numbered from 1)
+     */
+    @FunctionalInterface
+    public interface PageSink {
+        void accept(int page, String text) throws IOException;
+    }
+}
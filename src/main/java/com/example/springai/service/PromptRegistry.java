@@ -0,0 +1,64 @@
+package com.example.springai.service;
+
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prompt templates and structured output schemas, each compiled once.
+ *
+ * Components register their templates and output types when they are created, so the
+ * parsing and the reflective JSON schema generation happen at startup rather than on
+ * every request. Compiled templates and converters are immutable and shared by all threads.
+ */
+@Component
+public class PromptRegistry {
+
+    /**
+     * Converter for one record type together with its pre-rendered format instructions
+     */
+    public record OutputSchema<T>(BeanOutputConverter<T> converter, String format) {
+
+        public T convert(String text) {
+            return converter.convert(text);
+        }
+    }
+
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<Class<?>, OutputSchema<?>> outputs = new ConcurrentHashMap<>();
+
+    /**
+     * Compile and register {@code template} under {@code name}, or return the one already registered
+     */
+    public CompiledTemplate template(String name, String template) {
+        CompiledTemplate compiled = templates.computeIfAbsent(name, key -> CompiledTemplate.compile(template));
+        if (!compiled.source().equals(template)) {
+            throw new IllegalStateException("Prompt template '" + name + "' is already registered with other text");
+        }
+        return compiled;
+    }
+
+    /**
+     * Template registered under {@code name}
+     */
+    public CompiledTemplate template(String name) {
+        CompiledTemplate compiled = templates.get(name);
+        if (compiled == null) {
+            throw new IllegalArgumentException("No prompt template registered as '" + name + "'");
+        }
+        return compiled;
+    }
+
+    /**
+     * Converter and format instructions for {@code type}, generating the schema on first use
+     */
+    @SuppressWarnings("unchecked")
+    public <T> OutputSchema<T> output(Class<T> type) {
+        return (OutputSchema<T>) outputs.computeIfAbsent(type, key -> {
+            BeanOutputConverter<T> converter = new BeanOutputConverter<>(type);
+            return new OutputSchema<>(converter, converter.getFormat());
+        });
+    }
+}
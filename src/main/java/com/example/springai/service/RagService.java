@@ -1,14 +1,35 @@
 package com.example.springai.service;
 
+import com.example.springai.config.RagProperties;
+import com.example.springai.vectorstore.MappedVectorStore;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -17,109 +38,429 @@ import java.util.stream.Collectors;
 @Service
 public class RagService {
 
+    private static final String ANSWER_TEMPLATE = """
+        Answer the following question based on the provided context.
+        If the answer cannot be found in the context, say so.
+        
+        Context:
+        {context}
+        
+        Question: {question}
+        
+        Answer:
+        """;
+    private static final String NO_DOCUMENTS = "No documents have been indexed yet. Please upload documents first.";
+    private static final String NO_MATCHES = "No relevant information found in the knowledge base.";
+    private static final FilterExpressionBuilder FILTERS = new FilterExpressionBuilder();
+    private static final int TITLE_LOCK_STRIPES = 64;
+
     private final ChatModel chatModel;
-    private final VectorStore vectorStore;
-    private final List<Document> documents;
+    private final MappedVectorStore vectorStore;
+    private final CompiledTemplate answerTemplate;
+    private final TextChunker chunker;
+    private final ContextPacker contextPacker;
+    private final PdfTextExtractor pdfExtractor;
+    private final int indexBatchSize;
+    private final RagProperties.Retrieval retrieval;
+    private final MeterRegistry meterRegistry;
+    /** Upserts of one title run one at a time; semaphores because bulk ingestion releases on another thread */
+    private final Semaphore[] titleLocks = new Semaphore[TITLE_LOCK_STRIPES];
 
-    public RagService(ChatModel chatModel, EmbeddingModel embeddingModel) {
+    public RagService(ChatModel chatModel, MappedVectorStore vectorStore, TextChunker chunker,
+            ContextPacker contextPacker, RagProperties properties, PromptRegistry prompts, MeterRegistry meterRegistry) {
+        RagProperties.Ingestion ingestion = properties.getIngestion();
         this.chatModel = chatModel;
-        this.vectorStore = new SimpleVectorStore(embeddingModel);
-        this.documents = new ArrayList<>();
+        this.vectorStore = vectorStore;
+        this.answerTemplate = prompts.template("rag.answer", ANSWER_TEMPLATE);
+        this.chunker = chunker;
+        this.contextPacker = contextPacker;
+        this.pdfExtractor = new PdfTextExtractor(ingestion.getPdfParallelism());
+        this.indexBatchSize = ingestion.getIndexBatchSize();
+        this.retrieval = properties.getRetrieval();
+        this.meterRegistry = meterRegistry;
+        for (int i = 0; i < titleLocks.length; i++) {
+            titleLocks[i] = new Semaphore(1);
+        }
     }
 
     /**
-     * Index a document into the vector store
+     * Index a document into the vector store (appended to the on-disk segments).
+     * Large documents are chunked in parallel. Replaces any document with the same title.
+     *
+     * @return number of chunks indexed
      */
-    public void indexDocument(String title, String content) {
-        // Split content into chunks (simple implementation)
-        List<String> chunks = splitIntoChunks(content, 500);
-        
-        List<Document> docs = new ArrayList<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            Document doc = new Document(
-                title + "_chunk_" + i,
-                chunks.get(i),
-                java.util.Map.of(
-                    "title", title,
-                    "chunk", String.valueOf(i)
-                )
-            );
-            docs.add(doc);
+    public int indexDocument(String title, String content) {
+        try {
+            return upsert(title, indexer -> chunker.chunk(content, indexer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        
-        documents.addAll(docs);
-        vectorStore.add(docs);
     }
 
     /**
-     * Query documents using RAG
+     * Index text read incrementally from {@code reader}, replacing any document with the same title.
+     * Chunks are embedded and stored in small batches as they are produced, so memory
+     * stays bounded whatever the size of the input.
+     *
+     * @return number of chunks indexed
+     */
+    public int indexStream(String title, Reader reader) throws IOException {
+        return upsert(title, indexer -> chunker.chunk(reader, indexer));
+    }
+
+    /**
+     * Index a PDF, extracting its pages in parallel and chunking them in page order.
+     * Replaces any document with the same title.
+     *
+     * @return number of chunks indexed
+     */
+    public int indexPdf(String title, Path pdf) throws IOException {
+        return upsert(title, indexer -> {
+            TextChunker.Session session = chunker.open(indexer);
+            pdfExtractor.extract(pdf, (page, text) -> {
+                session.append(text);
+                session.append("\n");
+            });
+            session.finish();
+        });
+    }
+
+    /**
+     * Delete a document's chunks; searches stop returning them immediately
+     *
+     * @return number of chunks deleted
+     */
+    public int deleteDocument(String title) {
+        return vectorStore.delete(FILTERS.eq("title", title).build());
+    }
+
+    /**
+     * Delete single chunks by id
+     *
+     * @return whether any chunk was deleted
+     */
+    public boolean deleteChunks(List<String> ids) {
+        return vectorStore.delete(ids).orElse(false);
+    }
+
+    /**
+     * Query documents using RAG, with the configured retrieval weights
      */
     public String queryDocuments(String question) {
-        if (documents.isEmpty()) {
-            return "No documents have been indexed yet. Please upload documents first.";
+        return queryDocuments(question, defaultWeights());
+    }
+
+    /**
+     * Query documents using RAG, weighting the vector and BM25 rankings as given
+     */
+    public String queryDocuments(String question, Weights weights) {
+        return queryDocuments(question, weights, null);
+    }
+
+    /**
+     * Query documents using RAG over the chunks matching a metadata filter (all if null)
+     */
+    public String queryDocuments(String question, Weights weights, Filter.Expression filter) {
+        if (vectorStore.size() == 0) {
+            return NO_DOCUMENTS;
         }
 
-        // Search for relevant documents
-        List<Document> relevantDocs = vectorStore.similaritySearch(question);
+        // Search for relevant documents and fit them into the context budget
+        ContextPacker.Packed context = retrieveContext(question, weights, filter);
         
-        if (relevantDocs.isEmpty()) {
-            return "No relevant information found in the knowledge base.";
+        if (context.documents().isEmpty()) {
+            return NO_MATCHES;
         }
 
-        // Build context from relevant documents
-        String context = relevantDocs.stream()
+        return chatModel.call(prompt(question, context.documents()));
+    }
+
+    /**
+     * {@link #retrieveContext(String, Weights, Filter.Expression)} without blocking the caller:
+     * the vector search (which embeds the question) and the BM25 search run at the same time on
+     * the bounded elastic scheduler and are fused and packed once both are done.
+     */
+    public Mono<ContextPacker.Packed> retrieveContextAsync(String question, Weights weights,
+            Filter.Expression filter) {
+        int candidates = Math.max(retrieval.getCandidates(), retrieval.getTopK());
+        Mono<List<Document>> vector = weights.vector() > 0
+            ? Mono.fromCallable(() -> vectorSearch(question, candidates, filter))
+                .subscribeOn(Schedulers.boundedElastic())
+            : Mono.just(List.of());
+        Mono<List<Document>> lexical = weights.lexical() > 0
+            ? Mono.fromCallable(() -> lexicalSearch(question, candidates, filter))
+                .subscribeOn(Schedulers.boundedElastic())
+            : Mono.just(List.of());
+        return Mono.zip(vector, lexical,
+            (vectorHits, lexicalHits) -> contextPacker.pack(fuse(vectorHits, lexicalHits, weights)));
+    }
+
+    /**
+     * Answer tokens for {@code question} from the chat model's stream, given the chunks retrieved
+     * for it. Emits a single explanatory message instead when there is nothing to answer from.
+     */
+    public Flux<String> streamAnswer(String question, List<Document> documents) {
+        if (documents.isEmpty()) {
+            return Flux.just(vectorStore.size() == 0 ? NO_DOCUMENTS : NO_MATCHES);
+        }
+        return chatModel.stream(prompt(question, documents));
+    }
+
+    private String prompt(String question, List<Document> documents) {
+        String context = documents.stream()
             .map(Document::getContent)
             .collect(Collectors.joining("\n\n"));
+        return answerTemplate.render(context, question);
+    }
+
+    /**
+     * Best chunks for {@code question}: the vector and BM25 rankings merged by reciprocal-rank fusion.
+     * Each chunk scores the sum of {@code weight / (rrfK + rank)} over the rankings it appears in,
+     * reported in its {@code rrfScore} metadata entry. The fused ranking is then packed into the
+     * context budget by the {@link ContextPacker}.
+     */
+    public List<Document> retrieve(String question, Weights weights) {
+        return retrieve(question, weights, null);
+    }
 
-        // Create prompt with context
-        String prompt = String.format("""
-            Answer the following question based on the provided context.
-            If the answer cannot be found in the context, say so.
-            
-            Context:
-            %s
-            
-            Question: %s
-            
-            Answer:
-            """, context, question);
+    /**
+     * Best chunks for {@code question} among those matching a metadata filter (all if null).
+     * Both rankings are restricted to the matching chunks before they are ranked.
+     */
+    public List<Document> retrieve(String question, Weights weights, Filter.Expression filter) {
+        return retrieveContext(question, weights, filter).documents();
+    }
+
+    /**
+     * The packed context for {@code question}, with its token counts before and after packing
+     */
+    public ContextPacker.Packed retrieveContext(String question, Weights weights, Filter.Expression filter) {
+        int candidates = Math.max(retrieval.getCandidates(), retrieval.getTopK());
+        List<Document> vector = weights.vector() > 0 ? vectorSearch(question, candidates, filter) : List.of();
+        List<Document> lexical = weights.lexical() > 0 ? lexicalSearch(question, candidates, filter) : List.of();
+        return contextPacker.pack(fuse(vector, lexical, weights));
+    }
+
+    private List<Document> vectorSearch(String question, int candidates, Filter.Expression filter) {
+        SearchRequest request = SearchRequest.query(question).withTopK(candidates);
+        SearchRequest filtered = filter != null ? request.withFilterExpression(filter) : request;
+        return timedSearch("vector", () -> vectorStore.similaritySearch(filtered));
+    }
+
+    private List<Document> lexicalSearch(String question, int candidates, Filter.Expression filter) {
+        return timedSearch("lexical", () -> vectorStore.lexicalSearch(question, candidates, filter));
+    }
 
-        return chatModel.call(prompt);
+    /**
+     * Run a search, recording {@code rag.search.duration} (the vector one includes embedding the
+     * question) and {@code rag.search.results} by search type
+     */
+    private List<Document> timedSearch(String type, Supplier<List<Document>> search) {
+        long start = System.nanoTime();
+        List<Document> results = search.get();
+        Timer.builder("rag.search.duration").tag("type", type).publishPercentileHistogram()
+            .register(meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("rag.search.results").tag("type", type)
+            .register(meterRegistry).record(results.size());
+        return results;
+    }
+
+    /**
+     * Merge the two rankings by reciprocal-rank fusion, best first
+     */
+    private List<Document> fuse(List<Document> vector, List<Document> lexical, Weights weights) {
+        Map<String, Document> documents = new HashMap<>();
+        Map<String, double[]> scores = new HashMap<>();
+        fuse(vector, weights.vector(), documents, scores);
+        fuse(lexical, weights.lexical(), documents, scores);
+
+        return scores.entrySet().stream()
+            .sorted(Comparator.comparingDouble((Map.Entry<String, double[]> e) -> e.getValue()[0]).reversed())
+            .map(e -> {
+                Document document = documents.get(e.getKey());
+                document.getMetadata().put("rrfScore", e.getValue()[0]);
+                return document;
+            })
+            .toList();
+    }
+
+    /**
+     * Metadata filter from a filter expression in Spring AI's text syntax (e.g.
+     * {@code revision == 'abc' && chunk in ['0', '1']}) and/or a list of document titles,
+     * combined with AND; null when neither is given
+     *
+     * @throws IllegalArgumentException if the expression does not parse
+     */
+    public Filter.Expression filter(String expression, List<String> titles) {
+        FilterExpressionBuilder.Op filter = null;
+        if (expression != null && !expression.isBlank()) {
+            try {
+                filter = new FilterExpressionBuilder.Op(new FilterExpressionTextParser().parse(expression));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid filter expression: " + expression, e);
+            }
+        }
+        if (titles != null && !titles.isEmpty()) {
+            FilterExpressionBuilder.Op byTitle = FILTERS.in("title", new ArrayList<Object>(titles));
+            filter = filter == null ? byTitle : FILTERS.and(filter, byTitle);
+        }
+        return filter == null ? null : filter.build();
+    }
+
+    /**
+     * Weights from {@code rag.retrieval}
+     */
+    public Weights defaultWeights() {
+        return new Weights(retrieval.getVectorWeight(), retrieval.getLexicalWeight());
+    }
+
+    private void fuse(List<Document> ranking, double weight, Map<String, Document> documents,
+            Map<String, double[]> scores) {
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            Document document = ranking.get(rank);
+            documents.putIfAbsent(document.getId(), document);
+            scores.computeIfAbsent(document.getId(), id -> new double[1])[0]
+                += weight / (retrieval.getRrfK() + rank + 1);
+        }
     }
 
     /**
      * Clear all documents from the knowledge base
      */
     public void clearDocuments() {
-        documents.clear();
-        // Reinitialize vector store
-        // Note: SimpleVectorStore doesn't have a clear method, so we'd need to recreate it
-        // For now, just clear the documents list
+        vectorStore.clear();
     }
 
     /**
-     * Split text into chunks
+     * Index the chunks {@code source} produces as a new revision of {@code title}.
+     * The previous revision stays searchable until the new one is complete and is deleted then;
+     * a failed revision is deleted instead. Upserts of the same title wait for each other, so
+     * one never deletes the chunks of another still being written.
      */
-    private List<String> splitIntoChunks(String text, int chunkSize) {
-        List<String> chunks = new ArrayList<>();
-        String[] sentences = text.split("\\. ");
-        
-        StringBuilder currentChunk = new StringBuilder();
-        
-        for (String sentence : sentences) {
-            if (currentChunk.length() + sentence.length() > chunkSize) {
-                if (currentChunk.length() > 0) {
-                    chunks.add(currentChunk.toString().trim());
-                    currentChunk = new StringBuilder();
-                }
+    private int upsert(String title, ChunkSource source) throws IOException {
+        try {
+            lockTitle(title, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to index " + title, e);
+        }
+        try {
+            ChunkIndexer indexer = new ChunkIndexer(title);
+            try {
+                source.feed(indexer);
+                return indexer.finish();
+            } catch (IOException | RuntimeException e) {
+                indexer.abort();
+                throw e;
             }
-            currentChunk.append(sentence).append(". ");
+        } finally {
+            unlockTitle(title);
         }
-        
-        if (currentChunk.length() > 0) {
-            chunks.add(currentChunk.toString().trim());
+    }
+
+    /**
+     * Claim {@code title} for an upsert, waiting up to {@code timeout} for one in progress to end.
+     * Titles share a fixed set of stripes, so an unrelated title can occasionally wait too.
+     *
+     * @return false if the wait timed out
+     */
+    boolean lockTitle(String title, long timeout, TimeUnit unit) throws InterruptedException {
+        return titleLock(title).tryAcquire(timeout, unit);
+    }
+
+    /**
+     * Give back a claim taken with {@link #lockTitle}; any thread may do so
+     */
+    void unlockTitle(String title) {
+        titleLock(title).release();
+    }
+
+    private Semaphore titleLock(String title) {
+        return titleLocks[Math.floorMod(title.hashCode(), titleLocks.length)];
+    }
+
+    /**
+     * Chunk {@code index} of one revision of a document, as it is stored. Ids carry the revision
+     * so that chunks of the old and new revision never collide while both are stored.
+     */
+    static Document chunkDocument(String title, String revision, int index, String text) {
+        return new Document(
+            title + "_" + revision + "_chunk_" + index,
+            text,
+            Map.of(
+                "title", title,
+                "chunk", String.valueOf(index),
+                "revision", revision
+            )
+        );
+    }
+
+    /**
+     * Drop every revision of {@code title} but {@code revision}, once that one is complete
+     */
+    void deleteOlderRevisions(String title, String revision) {
+        vectorStore.delete(FILTERS.and(FILTERS.eq("title", title), FILTERS.ne("revision", revision)).build());
+    }
+
+    /**
+     * Drop a revision that failed part way
+     */
+    void deleteRevision(String revision) {
+        vectorStore.delete(FILTERS.eq("revision", revision).build());
+    }
+
+    @FunctionalInterface
+    private interface ChunkSource {
+        void feed(Consumer<String> indexer) throws IOException;
+    }
+
+    /**
+     * Relative weight of the vector and BM25 rankings in a query; 0 leaves a ranking out
+     */
+    public record Weights(double vector, double lexical) {}
+
+    /**
+     * Turns chunks into documents and writes them to the vector store every {@code indexBatchSize} chunks
+     */
+    private final class ChunkIndexer implements Consumer<String> {
+
+        private final String title;
+        private final String revision = UUID.randomUUID().toString();
+        private final List<Document> pending = new ArrayList<>(indexBatchSize);
+        private int count;
+
+        ChunkIndexer(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public void accept(String chunk) {
+            pending.add(chunkDocument(title, revision, count, chunk));
+            count++;
+            if (pending.size() >= indexBatchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Store the last chunks, then drop the title's older revisions
+         */
+        int finish() {
+            flush();
+            deleteOlderRevisions(title, revision);
+            return count;
+        }
+
+        void abort() {
+            pending.clear();
+            deleteRevision(revision);
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                vectorStore.add(List.copyOf(pending));
+                pending.clear();
+            }
         }
-        
-        return chunks;
     }
 }
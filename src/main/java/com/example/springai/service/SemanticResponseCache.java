@@ -0,0 +1,231 @@
+package com.example.springai.service;
+
+import com.example.springai.vectorstore.ArrayVectorValues;
+import com.example.springai.vectorstore.HnswVectorIndex;
+import com.example.springai.vectorstore.MappedVectorStore;
+import com.example.springai.vectorstore.VectorIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reuses earlier answers for questions that embed close to one already asked.
+ *
+ * Each endpoint gets its own small HNSW graph over in-memory vectors, so a hit costs one
+ * (usually cached) embedding plus a graph search instead of an LLM round trip. Answers
+ * expire after the endpoint's TTL and the oldest are evicted once an endpoint holds
+ * {@code maxEntries}. The graph cannot delete nodes, so evicted ordinals are only
+ * blanked out and the graph is rebuilt from the live entries whenever it fills up.
+ */
+public class SemanticResponseCache {
+
+    private static final int CANDIDATES = 8;
+    private static final int HNSW_M = 16;
+    private static final int HNSW_EF_CONSTRUCTION = 64;
+    private static final int HNSW_EF_SEARCH = 32;
+
+    /**
+     * How one endpoint uses the cache
+     */
+    public record Policy(double threshold, Duration ttl) {}
+
+    /**
+     * The answer to return and the cache metadata to add to the response
+     */
+    public record Answer(String text, Map<String, String> metadata) {}
+
+    private final EmbeddingModel embeddingModel;
+    private final Map<String, Policy> policies;
+    private final int maxEntries;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param policies   endpoints to cache; any other endpoint always calls the model
+     * @param maxEntries most answers kept per endpoint
+     */
+    public SemanticResponseCache(EmbeddingModel embeddingModel, Map<String, Policy> policies, int maxEntries,
+            MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.policies = Map.copyOf(policies);
+        this.maxEntries = maxEntries;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("chat.semantic-cache.hit.ratio", this, SemanticResponseCache::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * Answer {@code question} from the cache, or through {@code model} and remember the result
+     */
+    public Answer answer(String endpoint, String question, UnaryOperator<String> model) {
+        Policy policy = policies.get(endpoint);
+        if (policy == null) {
+            return new Answer(model.apply(question), Map.of());
+        }
+
+        float[] vector;
+        try {
+            vector = MappedVectorStore.normalize(embeddingModel.embed(question));
+        } catch (RuntimeException e) {
+            // The cache is only an optimization; never fail a request because embedding did
+            count(endpoint, "error");
+            return new Answer(model.apply(question), Map.of("cache", "bypass"));
+        }
+
+        long now = System.nanoTime();
+        Partition partition = partitions.get(endpoint);
+        if (partition != null) {
+            Hit hit = partition.lookup(vector, policy.threshold(), now);
+            if (hit != null) {
+                count(endpoint, "hit");
+                return new Answer(hit.entry().answer(), Map.of(
+                    "cache", "hit",
+                    "similarity", String.format(Locale.ROOT, "%.4f", hit.similarity()),
+                    "cachedQuestion", hit.entry().question(),
+                    "ageSeconds", String.valueOf(Duration.ofNanos(now - hit.entry().createdAt()).toSeconds())
+                ));
+            }
+        }
+        count(endpoint, "miss");
+
+        String answer = model.apply(question);
+        partitions.computeIfAbsent(endpoint, name -> new Partition())
+            .put(vector, new Entry(question, answer, now, now + policy.ttl().toNanos()), System.nanoTime());
+        return new Answer(answer, Map.of("cache", "miss"));
+    }
+
+    /**
+     * Share of lookups on cached endpoints answered from the cache, 0 before the first lookup
+     */
+    public double hitRatio() {
+        long total = lookups.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    /**
+     * Drop every cached answer
+     */
+    public void clear() {
+        partitions.clear();
+    }
+
+    private void count(String endpoint, String result) {
+        lookups.increment();
+        if (result.equals("hit")) {
+            hits.increment();
+        }
+        Counter.builder("chat.semantic-cache.lookups")
+            .tags("endpoint", endpoint, "result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private record Entry(String question, String answer, long createdAt, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    private record Hit(Entry entry, float similarity) {}
+
+    /**
+     * One graph and its entries; replaced wholesale when the partition is rebuilt
+     */
+    private static final class Graph {
+
+        final ArrayVectorValues values;
+        final VectorIndex index;
+        final AtomicReferenceArray<Entry> entries;
+
+        Graph(int capacity, int dimensions) {
+            values = new ArrayVectorValues(capacity, dimensions);
+            index = new HnswVectorIndex(values, null, HNSW_M, HNSW_EF_CONSTRUCTION, HNSW_EF_SEARCH);
+            entries = new AtomicReferenceArray<>(capacity);
+        }
+    }
+
+    /**
+     * Cached answers of one endpoint. Lookups read the current graph without locking;
+     * inserts, eviction and rebuilds are serialized.
+     */
+    private final class Partition {
+
+        private volatile Graph graph;
+        private final ArrayDeque<Integer> order = new ArrayDeque<>();
+
+        Hit lookup(float[] vector, double threshold, long now) {
+            Graph current = graph;
+            if (current == null || current.values.dimensions() != vector.length) {
+                return null;
+            }
+            VectorIndex.Hits hits = current.index.search(vector, CANDIDATES);
+            for (int i = 0; i < hits.size(); i++) {
+                if (hits.scores()[i] < threshold) {
+                    break;
+                }
+                Entry entry = current.entries.get(hits.ordinals()[i]);
+                if (entry != null && !entry.isExpired(now)) {
+                    return new Hit(entry, hits.scores()[i]);
+                }
+            }
+            return null;
+        }
+
+        synchronized void put(float[] vector, Entry entry, long now) {
+            Graph current = graph;
+            if (current == null || current.values.dimensions() != vector.length) {
+                // First answer, or the embedding model changed and old vectors are meaningless
+                current = new Graph(2 * maxEntries, vector.length);
+                order.clear();
+            }
+            // Answers share a TTL, so the oldest is also the first to expire
+            while (!order.isEmpty()) {
+                int oldest = order.peekFirst();
+                Entry cached = current.entries.get(oldest);
+                if (cached != null && !cached.isExpired(now) && order.size() < maxEntries) {
+                    break;
+                }
+                current.entries.set(oldest, null);
+                order.removeFirst();
+            }
+            if (current.values.isFull()) {
+                current = rebuild(current);
+            }
+            current.entries.set(current.values.size(), entry);
+            int ordinal = current.values.append(vector);
+            current.index.add(ordinal);
+            order.addLast(ordinal);
+            graph = current;
+        }
+
+        /**
+         * Copy the live entries into a fresh graph, oldest first
+         */
+        private Graph rebuild(Graph previous) {
+            Graph fresh = new Graph(2 * maxEntries, previous.values.dimensions());
+            float[] scratch = new float[previous.values.dimensions()];
+            int live = order.size();
+            for (int i = 0; i < live; i++) {
+                int ordinal = order.removeFirst();
+                previous.values.get(ordinal, scratch);
+                fresh.entries.set(fresh.values.size(), previous.entries.get(ordinal));
+                int copied = fresh.values.append(scratch);
+                fresh.index.add(copied);
+                order.addLast(copied);
+            }
+            return fresh;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.springai.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares one model call between concurrent identical requests and keeps the result for a while.
+ *
+ * Requests are keyed by endpoint and normalized parameters (trimmed, lower-cased, inner
+ * whitespace collapsed). The first caller for a key runs the loader; callers arriving while it
+ * runs wait for the same result. Completed results stay in a bounded LRU until their TTL runs
+ * out. Failures are handed to everyone waiting but never cached.
+ */
+public class SingleFlightCache {
+
+    private record Key(String endpoint, List<String> params) {}
+
+    private record Cached(Object value, long expiresAt) {}
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final MeterRegistry meterRegistry;
+    private final String metricPrefix;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Key, Cached> results;
+
+    /**
+     * @param ttl          how long a result is reused; zero only coalesces concurrent calls
+     * @param metricPrefix prefix of the {@code .calls} and {@code .calls.saved} counters
+     */
+    public SingleFlightCache(int maxEntries, Duration ttl, MeterRegistry meterRegistry, String metricPrefix) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.meterRegistry = meterRegistry;
+        this.metricPrefix = metricPrefix;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+                return size() > SingleFlightCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the cached or in-flight result for {@code endpoint} and {@code params}, or run {@code loader}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, Supplier<T> loader, Object... params) {
+        Key key = new Key(endpoint, normalize(params));
+        Object cached = lookup(key);
+        if (cached != null) {
+            saved(endpoint, "cache");
+            return (T) cached;
+        }
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            saved(endpoint, "coalesced");
+            return (T) await(leader);
+        }
+        try {
+            // A previous leader may have finished between the lookup and claiming the key
+            cached = lookup(key);
+            if (cached != null) {
+                saved(endpoint, "cache");
+                flight.complete(cached);
+                return (T) cached;
+            }
+            Counter.builder(metricPrefix + ".calls").tag("endpoint", endpoint).register(meterRegistry).increment();
+            T value = loader.get();
+            store(key, value);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Drop every cached result (calls in flight are unaffected)
+     */
+    public void clear() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    private Object lookup(Key key) {
+        if (ttlNanos <= 0) {
+            return null;
+        }
+        synchronized (results) {
+            Cached cached = results.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.expiresAt() >= 0) {
+                results.remove(key);
+                return null;
+            }
+            return cached.value();
+        }
+    }
+
+    private void store(Key key, Object value) {
+        if (ttlNanos <= 0 || value == null) {
+            return;
+        }
+        synchronized (results) {
+            results.put(key, new Cached(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    private void saved(String endpoint, String source) {
+        Counter.builder(metricPrefix + ".calls.saved")
+            .tags("endpoint", endpoint, "source", source)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static List<String> normalize(Object[] params) {
+        List<String> normalized = new ArrayList<>(params.length);
+        for (Object param : params) {
+            normalized.add(String.valueOf(param).trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT));
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.springai.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What users of the streaming endpoints experience, per endpoint: {@code chat.stream.first-token}
+ * (time from the request to the first answer token, retrieval included), {@code chat.stream.duration}
+ * and {@code chat.stream.tokens-per-second}. The model-side view is in {@link MeteredChatModel}.
+ */
+public class StreamMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public StreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Time {@code tokens} from subscription, each element counting as one token
+     */
+    public <T> Flux<T> timed(String endpoint, Flux<T> tokens) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong first = new AtomicLong();
+            AtomicLong count = new AtomicLong();
+            return tokens
+                .doOnNext(token -> {
+                    first.compareAndSet(0, System.nanoTime());
+                    count.incrementAndGet();
+                })
+                .doFinally(signal -> {
+                    if (signal == SignalType.ON_COMPLETE) {
+                        record(endpoint, start, first.get(), System.nanoTime(), count.get());
+                    }
+                });
+        });
+    }
+
+    /**
+     * Record one completed stream from {@link System#nanoTime()} readings; {@code firstToken}
+     * is 0 if no token was sent
+     */
+    public void record(String endpoint, long start, long firstToken, long end, long tokens) {
+        Timer.builder("chat.stream.duration").tag("endpoint", endpoint).publishPercentileHistogram()
+            .register(meterRegistry).record(end - start, TimeUnit.NANOSECONDS);
+        if (firstToken == 0) {
+            return;
+        }
+        Timer.builder("chat.stream.first-token").tag("endpoint", endpoint).publishPercentileHistogram()
+            .register(meterRegistry).record(firstToken - start, TimeUnit.NANOSECONDS);
+        if (end > firstToken) {
+            DistributionSummary.builder("chat.stream.tokens-per-second").tag("endpoint", endpoint)
+                .register(meterRegistry).record(tokens * 1e9 / (end - firstToken));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.springai.service;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Token-aware sentence chunker that consumes text incrementally.
+ *
+ * Sentences end at '.', '!' or '?' followed by whitespace, or at a blank line, and are packed
+ * into chunks of at most {@code chunkTokens} tokens (a single longer sentence becomes its own
+ * chunk). Each chunk starts with the trailing sentences of the previous one, up to
+ * {@code overlapTokens}, so text cut at a boundary is still seen whole by one of them.
+ *
+ * Text is held once, in a buffer that only spans the chunk being built. Sentences are kept
+ * as offsets into it and measured through {@link CharBuffer} views, so the only copy made
+ * is the String of each emitted chunk. A run of text without a sentence break is cut at
+ * {@code maxSentenceChars} so memory stays bounded on any input.
+ */
+public class StreamingChunker implements TextChunker {
+
+    /** Slice fed to a session at once, so an in-memory document never fills the buffer in full */
+    private static final int APPEND_SLICE = 8192;
+
+    private final TokenCounter tokenCounter;
+    private final int chunkTokens;
+    private final int overlapTokens;
+    private final int parallelMinChars;
+    private final int maxSentenceChars;
+
+    /**
+     * @param chunkTokens      largest chunk, in tokens as counted by {@code tokenCounter}
+     * @param overlapTokens    tokens of trailing sentences repeated at the start of the next chunk
+     * @param parallelMinChars in-memory documents at least twice this long are chunked in parallel
+     */
+    public StreamingChunker(TokenCounter tokenCounter, int chunkTokens, int overlapTokens, int parallelMinChars) {
+        if (overlapTokens >= chunkTokens) {
+            throw new IllegalArgumentException("Overlap (" + overlapTokens + ") must be smaller than the chunk size ("
+                + chunkTokens + ")");
+        }
+        this.tokenCounter = tokenCounter;
+        this.chunkTokens = chunkTokens;
+        this.overlapTokens = Math.max(overlapTokens, 0);
+        this.parallelMinChars = parallelMinChars;
+        // Generous even for dense text: several characters per token
+        this.maxSentenceChars = Math.max(chunkTokens * 8, 4096);
+    }
+
+    @Override
+    public Session open(Consumer<String> sink) {
+        return new Session(sink);
+    }
+
+    /**
+     * Chunk a document already in memory. Long documents are cut at sentence breaks into one
+     * section per CPU, chunked in parallel and handed to {@code sink} in order; chunks do not
+     * overlap across section boundaries.
+     */
+    @Override
+    public void chunk(CharSequence text, Consumer<String> sink) {
+        int sections = Math.min(Runtime.getRuntime().availableProcessors(),
+            text.length() / Math.max(parallelMinChars, 1));
+        if (sections < 2) {
+            TextChunker.super.chunk(text, sink);
+            return;
+        }
+        int[] bounds = new int[sections + 1];
+        for (int s = 1; s < sections; s++) {
+            int target = (int) ((long) text.length() * s / sections);
+            bounds[s] = sentenceBreakAfter(text, Math.max(bounds[s - 1], target));
+        }
+        bounds[sections] = text.length();
+
+        List<List<String>> chunks = IntStream.range(0, sections).parallel()
+            .mapToObj(s -> {
+                List<String> section = new ArrayList<>();
+                TextChunker.super.chunk(CharBuffer.wrap(text, bounds[s], bounds[s + 1]), section::add);
+                return section;
+            })
+            .toList();
+        chunks.forEach(section -> section.forEach(sink));
+    }
+
+    /**
+     * Offset just past the first sentence end at or after {@code from} (or the end of the text)
+     */
+    private static int sentenceBreakAfter(CharSequence text, int from) {
+        for (int i = Math.max(from, 1); i < text.length(); i++) {
+            if (isSentenceEnd(text.charAt(i - 1), text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return text.length();
+    }
+
+    private static boolean isSentenceEnd(char previous, char c) {
+        return (previous == '.' || previous == '!' || previous == '?') && Character.isWhitespace(c)
+            || previous == '\n' && c == '\n';
+    }
+
+    public final class Session implements TextChunker.Session {
+
+        private final Consumer<String> sink;
+        /** Text from the start of the chunk being built */
+        private final StringBuilder buffer = new StringBuilder(chunkTokens * 8);
+        /** End offset and token count of each complete sentence in the buffer */
+        private int[] ends = new int[32];
+        private int[] counts = new int[32];
+        private int sentences;
+        /** Sentences carried over from the previous chunk */
+        private int carried;
+        private int tokens;
+        private int sentenceStart;
+        private int scanned;
+
+        private Session(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void append(CharSequence text) {
+            for (int from = 0; from < text.length(); from += APPEND_SLICE) {
+                buffer.append(text, from, Math.min(text.length(), from + APPEND_SLICE));
+                scan();
+            }
+        }
+
+        /**
+         * Flush the trailing sentence and chunk
+         */
+        @Override
+        public void finish() {
+            if (sentenceStart < buffer.length()) {
+                addSentence(buffer.length());
+            }
+            if (sentences > carried) {
+                emit();
+            }
+            buffer.setLength(0);
+            sentences = 0;
+            carried = 0;
+            tokens = 0;
+            sentenceStart = 0;
+            scanned = 0;
+        }
+
+        private void scan() {
+            int i = Math.max(scanned, sentenceStart + 1);
+            while (i < buffer.length()) {
+                if (isSentenceEnd(buffer.charAt(i - 1), buffer.charAt(i))
+                        || i + 1 - sentenceStart >= maxSentenceChars) {
+                    // The buffer may have been shifted left by an emitted chunk
+                    i = addSentence(i + 1) + 1;
+                } else {
+                    i++;
+                }
+            }
+            scanned = buffer.length();
+        }
+
+        /**
+         * Close the sentence ending at {@code end}, emitting the chunk first if it does not fit
+         *
+         * @return the sentence's end offset after any shift of the buffer
+         */
+        private int addSentence(int end) {
+            int count = tokenCounter.count(CharBuffer.wrap(buffer, sentenceStart, end));
+            if (sentences > carried && tokens + count > chunkTokens) {
+                emit();
+                end -= carryOver(count);
+            }
+            if (sentences == ends.length) {
+                ends = Arrays.copyOf(ends, sentences * 2);
+                counts = Arrays.copyOf(counts, sentences * 2);
+            }
+            ends[sentences] = end;
+            counts[sentences] = count;
+            sentences++;
+            tokens += count;
+            sentenceStart = end;
+            return end;
+        }
+
+        private void emit() {
+            int start = 0;
+            int end = ends[sentences - 1];
+            while (start < end && Character.isWhitespace(buffer.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(buffer.charAt(end - 1))) {
+                end--;
+            }
+            if (start < end) {
+                sink.accept(buffer.substring(start, end));
+            }
+        }
+
+        /**
+         * Drop the emitted sentences from the buffer, keeping the trailing ones that fit the
+         * overlap and still leave room for the incoming sentence of {@code incoming} tokens
+         *
+         * @return number of characters the buffer was shifted left by
+         */
+        private int carryOver(int incoming) {
+            int keep = 0;
+            int kept = 0;
+            while (keep < sentences) {
+                int next = counts[sentences - 1 - keep];
+                if (kept + next > overlapTokens || kept + next + incoming > chunkTokens) {
+                    break;
+                }
+                kept += next;
+                keep++;
+            }
+            int first = sentences - keep;
+            int shiftedBy = first == 0 ? 0 : ends[first - 1];
+            buffer.delete(0, shiftedBy);
+            for (int i = 0; i < keep; i++) {
+                ends[i] = ends[first + i] - shiftedBy;
+                counts[i] = counts[first + i];
+            }
+            sentences = keep;
+            carried = keep;
+            tokens = kept;
+            sentenceStart -= shiftedBy;
+            return shiftedBy;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.springai.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into chunks for embedding.
+ * Text is fed through a {@link Session}, so documents can be chunked as they are read.
+ */
+public interface TextChunker {
+
+    /**
+     * Start a session fed piece by piece, e.g. one PDF page at a time
+     */
+    Session open(Consumer<String> sink);
+
+    /**
+     * Chunk everything {@code reader} yields, handing each chunk to {@code sink} as soon as it is complete
+     */
+    default void chunk(Reader reader, Consumer<String> sink) throws IOException {
+        Session session = open(sink);
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            session.append(CharBuffer.wrap(buffer, 0, read));
+        }
+        session.finish();
+    }
+
+    /**
+     * Chunk a document already in memory
+     */
+    default void chunk(CharSequence text, Consumer<String> sink) {
+        Session session = open(sink);
+        session.append(text);
+        session.finish();
+    }
+
+    interface Session {
+
+        void append(CharSequence text);
+
+        /**
+         * Flush whatever is still buffered as the last chunk
+         */
+        void finish();
+    }
+}
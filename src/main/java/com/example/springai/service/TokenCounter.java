@@ -0,0 +1,53 @@
+package com.example.springai.service;
+
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+/**
+ * Counts the tokens of a piece of text for chunking.
+ * Implementations take a {@link CharSequence} so callers can pass views instead of copies.
+ */
+@FunctionalInterface
+public interface TokenCounter {
+
+    int count(CharSequence text);
+
+    /**
+     * Allocation-free estimate close to BPE tokenizers on English prose: one token per short
+     * word, one more per six further letters, one per three digits and one per symbol
+     */
+    static TokenCounter approximate() {
+        return text -> {
+            int tokens = 0;
+            int letters = 0;
+            int digits = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isLetter(c)) {
+                    if (letters++ % 6 == 0) {
+                        tokens++;
+                    }
+                    digits = 0;
+                } else if (Character.isDigit(c)) {
+                    if (digits++ % 3 == 0) {
+                        tokens++;
+                    }
+                    letters = 0;
+                } else {
+                    if (!Character.isWhitespace(c)) {
+                        tokens++;
+                    }
+                    letters = 0;
+                    digits = 0;
+                }
+            }
+            return tokens;
+        };
+    }
+
+    /**
+     * Exact counts from a Spring AI estimator (copies each measured piece into a String)
+     */
+    static TokenCounter of(TokenCountEstimator estimator) {
+        return text -> estimator.estimate(text.toString());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.springai.vectorstore;
+
+/**
+ * Fixed-capacity, append-only vectors held in one heap array, for small in-memory indexes.
+ * A single writer appends; readers see every vector below the published size.
+ */
+public final class ArrayVectorValues implements VectorValues {
+
+    private static final SimilarityKernels KERNELS = SimilarityKernels.preferred();
+
+    private final int dimensions;
+    private final int capacity;
+    private final float[] data;
+    private volatile int size;
+
+    public ArrayVectorValues(int capacity, int dimensions) {
+        this.capacity = capacity;
+        this.dimensions = dimensions;
+        this.data = new float[Math.multiplyExact(capacity, dimensions)];
+    }
+
+    /**
+     * Store a (unit-length) vector, returning its ordinal
+     */
+    public int append(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Vector has " + vector.length + " dimensions, expected " + dimensions);
+        }
+        int ordinal = size;
+        if (ordinal == capacity) {
+            throw new IllegalStateException("Vector values are full (" + capacity + ")");
+        }
+        System.arraycopy(vector, 0, data, ordinal * dimensions, dimensions);
+        size = ordinal + 1;
+        return ordinal;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public float dot(int ordinal, float[] query) {
+        return KERNELS.dot(query, 0, data, ordinal * dimensions, dimensions);
+    }
+
+    @Override
+    public void dot(int ordinal, int count, float[] query, float[] scores) {
+        KERNELS.dotBatch(query, data, ordinal * dimensions, count, scores);
+    }
+
+    @Override
+    public void get(int ordinal, float[] target) {
+        System.arraycopy(data, ordinal * dimensions, target, 0, dimensions);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.springai.vectorstore;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory BM25 inverted index over the chunk texts of a {@link MappedVectorStore}.
+ *
+ * Each term maps to a posting list of (ordinal, term frequency) pairs held in growable
+ * int arrays, and chunk lengths are kept in one int array indexed by ordinal, so the index
+ * holds no boxed numbers. Queries are scored term at a time into a float accumulator.
+ *
+ * The index is rebuilt from the chunk side file when the store is opened; it is not persisted.
+ * Adds take a write lock, searches a read lock.
+ */
+final class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] lengths = new int[1024];
+    private int documents;
+    private int maxOrdinal = -1;
+    private long totalLength;
+
+    /**
+     * Index the text stored at {@code ordinal}
+     */
+    void add(int ordinal, String text) {
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = tokenize(text, term -> frequencies.computeIfAbsent(term, t -> new int[1])[0]++);
+
+        lock.writeLock().lock();
+        try {
+            if (ordinal >= lengths.length) {
+                lengths = Arrays.copyOf(lengths, Math.max(ordinal + 1, lengths.length * 2));
+            }
+            lengths[ordinal] = length;
+            maxOrdinal = Math.max(maxOrdinal, ordinal);
+            documents++;
+            totalLength += length;
+            frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, t -> new Postings()).add(ordinal, frequency[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Best {@code k} chunks for {@code query} by BM25 score, highest first
+     */
+    VectorIndex.Hits search(String query, int k) {
+        return search(query, k, null);
+    }
+
+    /**
+     * Best {@code k} chunks for {@code query} by BM25 score among those {@code accept} lets
+     * through (all if null), highest first
+     */
+    VectorIndex.Hits search(String query, int k, IntPredicate accept) {
+        Map<String, int[]> terms = new HashMap<>();
+        tokenize(query, term -> terms.computeIfAbsent(term, t -> new int[1])[0]++);
+
+        lock.readLock().lock();
+        try {
+            if (documents == 0 || terms.isEmpty()) {
+                return VectorIndex.Hits.EMPTY;
+            }
+            float averageLength = (float) totalLength / documents;
+            float[] scores = new float[maxOrdinal + 1];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+
+            for (Map.Entry<String, int[]> entry : terms.entrySet()) {
+                Postings list = postings.get(entry.getKey());
+                if (list == null) {
+                    continue;
+                }
+                // Repeated query terms weigh more, as in the usual BM25 query-frequency term
+                float idf = entry.getValue()[0]
+                    * (float) Math.log(1 + (documents - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.ordinals[i];
+                    if (accept != null && !accept.test(ordinal)) {
+                        continue;
+                    }
+                    float tf = list.frequencies[i];
+                    float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                    if (scores[ordinal] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = ordinal;
+                    }
+                    scores[ordinal] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+
+            TopK topK = new TopK(k);
+            for (int i = 0; i < touchedCount; i++) {
+                topK.offer(touched[i], scores[touched[i]]);
+            }
+            float[] best = new float[topK.size()];
+            int[] ordinals = topK.drainDescending(best);
+            return new VectorIndex.Hits(ordinals, best);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Split {@code text} into lower-cased runs of letters, digits and underscores,
+     * so identifiers such as {@code ERR_4021} stay one term
+     *
+     * @return number of terms emitted
+     */
+    static int tokenize(String text, Consumer<String> consumer) {
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && isWordChar(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+                count++;
+                start = -1;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Ordinals containing one term and how often it occurs in each, in insertion order
+     */
+    private static final class Postings {
+
+        int[] ordinals = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
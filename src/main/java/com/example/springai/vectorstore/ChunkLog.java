@@ -0,0 +1,239 @@
+package com.example.springai.vectorstore;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only side file holding the id, text and metadata of every stored chunk.
+ * Record n describes vector n in the segments. Each record is length-prefixed and
+ * checksummed so a torn write at the tail is detected and dropped on open.
+ *
+ * Metadata values keep their type (string, integer, long, float, double or boolean; shorts and
+ * bytes come back as integers, anything else as its string form) so that numeric filters still
+ * match after a restart. Records
+ * written before types were kept are marked by a clear {@link #TYPED} bit and read as strings.
+ */
+final class ChunkLog implements AutoCloseable {
+
+    /** Set in a record's metadata entry count when every value is preceded by a type tag */
+    private static final int TYPED = 0x8000;
+    private static final int MAX_ENTRIES = TYPED - 1;
+
+    private static final byte STRING = 0;
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+    private static final byte FLOAT = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+    /** Length of the file up to the last flushed record */
+    private long committed;
+
+    private ChunkLog(Path path, FileChannel channel, long committed) {
+        this.path = path;
+        this.channel = channel;
+        this.committed = committed;
+    }
+
+    /**
+     * A chunk as it is kept in the side file
+     */
+    record StoredChunk(String id, String content, Map<String, Object> metadata) {}
+
+    /**
+     * Open the log for appending, reading every complete record into {@code into}
+     */
+    static ChunkLog open(Path path, List<StoredChunk> into) throws IOException {
+        long validBytes = 0;
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    int length = readRecord(in, into);
+                    if (length < 0) {
+                        break;
+                    }
+                    validBytes += 8L + length;
+                }
+            }
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Drop a partially written tail so new records append cleanly
+        if (channel.size() > validBytes) {
+            channel.truncate(validBytes);
+        }
+        return new ChunkLog(path, channel, validBytes);
+    }
+
+    /**
+     * Append one record (buffered until {@link #flush()})
+     */
+    void append(StoredChunk chunk) throws IOException {
+        byte[] payload = encode(chunk);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        pending.writeInt(payload.length);
+        pending.writeInt((int) crc.getValue());
+        pending.write(payload);
+    }
+
+    /**
+     * Write the buffered records to the file
+     */
+    void flush() throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(pendingBytes.toByteArray());
+        while (records.hasRemaining()) {
+            channel.write(records, committed + records.position());
+        }
+        committed += records.capacity();
+        pendingBytes.reset();
+    }
+
+    /**
+     * Drop the records appended since the last successful {@link #flush()}, including any part of
+     * them a failed flush left in the file
+     */
+    void discard() throws IOException {
+        pendingBytes.reset();
+        if (channel.size() > committed) {
+            channel.truncate(committed);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Flush any buffered records and close the file
+     */
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+        }
+    }
+
+    /**
+     * Read one record into {@code into}, returning its payload length or -1 at a missing or torn tail
+     */
+    private static int readRecord(DataInputStream in, List<StoredChunk> into) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0) {
+                return -1;
+            }
+            byte[] payload = in.readNBytes(length);
+            if (payload.length < length) {
+                return -1;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                return -1;
+            }
+            into.add(decode(payload));
+            return length;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private static byte[] encode(StoredChunk chunk) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + chunk.content().length());
+        DataOutputStream data = new DataOutputStream(bytes);
+        writeString(data, chunk.id());
+        writeString(data, chunk.content());
+        if (chunk.metadata().size() > MAX_ENTRIES) {
+            throw new IOException("Chunk " + chunk.id() + " has " + chunk.metadata().size()
+                + " metadata entries, at most " + MAX_ENTRIES + " can be stored");
+        }
+        data.writeShort(TYPED | chunk.metadata().size());
+        for (Map.Entry<String, Object> entry : chunk.metadata().entrySet()) {
+            writeString(data, entry.getKey());
+            writeValue(data, entry.getValue());
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private static StoredChunk decode(byte[] payload) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        String id = readString(data);
+        String content = readString(data);
+        int header = data.readUnsignedShort();
+        boolean typed = (header & TYPED) != 0;
+        int entries = header & MAX_ENTRIES;
+        Map<String, Object> metadata = new LinkedHashMap<>(entries * 2);
+        for (int i = 0; i < entries; i++) {
+            String key = readString(data);
+            metadata.put(key, typed ? readValue(data) : readString(data));
+        }
+        return new StoredChunk(id, content, metadata);
+    }
+
+    private static void writeValue(DataOutputStream data, Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            data.writeByte(INTEGER);
+            data.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long number) {
+            data.writeByte(LONG);
+            data.writeLong(number);
+        } else if (value instanceof Float number) {
+            data.writeByte(FLOAT);
+            data.writeFloat(number);
+        } else if (value instanceof Double number) {
+            data.writeByte(DOUBLE);
+            data.writeDouble(number);
+        } else if (value instanceof Boolean flag) {
+            data.writeByte(BOOLEAN);
+            data.writeBoolean(flag);
+        } else {
+            data.writeByte(STRING);
+            writeString(data, String.valueOf(value));
+        }
+    }
+
+    private static Object readValue(DataInputStream data) throws IOException {
+        byte type = data.readByte();
+        return switch (type) {
+            case STRING -> readString(data);
+            case INTEGER -> data.readInt();
+            case LONG -> data.readLong();
+            case FLOAT -> data.readFloat();
+            case DOUBLE -> data.readDouble();
+            case BOOLEAN -> data.readBoolean();
+            default -> throw new IOException("Unknown metadata value type " + type);
+        };
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(utf8.length);
+        data.write(utf8);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        return new String(data.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.springai.vectorstore;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Brute-force index: scores every stored vector. Exact, and linear in the corpus size.
+ */
+public class ExactVectorIndex implements VectorIndex {
+
+    /** Vectors scored per batch call */
+    private static final int BLOCK = 256;
+
+    private final VectorValues values;
+
+    public ExactVectorIndex(VectorValues values) {
+        this.values = values;
+    }
+
+    @Override
+    public void add(int ordinal) {
+        // Every stored vector is scanned, nothing to maintain
+    }
+
+    @Override
+    public boolean contains(int ordinal) {
+        return ordinal < values.size();
+    }
+
+    @Override
+    public Hits search(float[] query, int k) {
+        int count = values.size();
+        if (count == 0) {
+            return Hits.EMPTY;
+        }
+        TopK topK = new TopK(k);
+        float[] scores = new float[Math.min(count, BLOCK)];
+        for (int start = 0; start < count; start += BLOCK) {
+            int block = Math.min(BLOCK, count - start);
+            values.dot(start, block, query, scores);
+            for (int i = 0; i < block; i++) {
+                topK.offer(start + i, scores[i]);
+            }
+        }
+        float[] best = new float[topK.size()];
+        int[] ordinals = topK.drainDescending(best);
+        return new Hits(ordinals, best);
+    }
+
+    @Override
+    public Hits search(float[] query, int k, IntPredicate accept) {
+        int count = values.size();
+        TopK topK = new TopK(k);
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            if (accept.test(ordinal)) {
+                topK.offer(ordinal, values.dot(ordinal, query));
+            }
+        }
+        float[] scores = new float[topK.size()];
+        int[] ordinals = topK.drainDescending(scores);
+        return new Hits(ordinals, scores);
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.springai.vectorstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph over the stored vectors.
+ *
+ * Inserts run concurrently: a new node is linked under the monitor of each neighbour it
+ * touches, and neighbour lists are replaced copy-on-write. Searches take no locks and only
+ * ever read immutable neighbour arrays. The graph is written next to the segments on
+ * {@link #save()} and reloaded on open, so a restart only inserts vectors added since.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    private static final int FILE_MAGIC = 0x484E5357; // "HNSW"
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private final VectorValues values;
+    private final Path file;
+    private final int m;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+
+    private final Object structureLock = new Object();
+    private final ReadWriteLock saveLock = new ReentrantReadWriteLock();
+    private final ThreadLocal<int[]> visitedMarks = ThreadLocal.withInitial(() -> new int[0]);
+    private final ThreadLocal<int[]> visitedStamp = ThreadLocal.withInitial(() -> new int[1]);
+    private volatile Node[] nodes = new Node[1024];
+    private volatile Entry entry;
+
+    /**
+     * @param file           where {@link #save()} writes the graph, or {@code null} to keep it in memory only
+     * @param m              max links per node on upper layers (twice that on layer 0)
+     * @param efConstruction candidate list size while inserting
+     * @param efSearch       candidate list size while searching (raised to k if smaller)
+     */
+    public HnswVectorIndex(VectorValues values, Path file, int m, int efConstruction, int efSearch) {
+        this.values = values;
+        this.file = file;
+        this.m = m;
+        this.maxConnections0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    /**
+     * Load the graph saved in {@code file} if it was built with the same {@code m},
+     * otherwise start empty
+     */
+    public static HnswVectorIndex open(VectorValues values, Path file, int m, int efConstruction, int efSearch)
+            throws IOException {
+        HnswVectorIndex index = new HnswVectorIndex(values, file, m, efConstruction, efSearch);
+        if (Files.exists(file)) {
+            index.load();
+        }
+        return index;
+    }
+
+    private record Entry(int ordinal, int level) {}
+
+    private static final class Node {
+
+        final AtomicReferenceArray<int[]> neighbors;
+
+        Node(int level) {
+            neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbors.set(i, NO_NEIGHBORS);
+            }
+        }
+
+        int level() {
+            return neighbors.length() - 1;
+        }
+
+        int[] neighbors(int level) {
+            return neighbors.get(level);
+        }
+    }
+
+    @Override
+    public void add(int ordinal) {
+        saveLock.readLock().lock();
+        try {
+            insert(ordinal);
+        } finally {
+            saveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(int ordinal) {
+        Node[] current = nodes;
+        return ordinal < current.length && current[ordinal] != null;
+    }
+
+    @Override
+    public Hits search(float[] query, int k) {
+        return search(query, k, null);
+    }
+
+    /**
+     * The walk still crosses rejected nodes, only the results are restricted; with a very
+     * selective filter it is cheaper to score the accepted ordinals directly
+     */
+    @Override
+    public Hits search(float[] query, int k, IntPredicate accept) {
+        Entry start = entry;
+        if (start == null || k <= 0) {
+            return Hits.EMPTY;
+        }
+        int current = start.ordinal();
+        float currentScore = values.dot(current, query);
+        for (int level = start.level(); level > 0; level--) {
+            int[] best = greedyClosest(query, current, currentScore, level);
+            current = best[0];
+            currentScore = Float.intBitsToFloat(best[1]);
+        }
+        TopK results = searchLayer(query, current, currentScore, Math.max(efSearch, k), 0, -1, accept);
+        float[] scores = new float[results.size()];
+        int[] ordinals = results.drainDescending(scores);
+        int n = Math.min(k, ordinals.length);
+        return new Hits(Arrays.copyOf(ordinals, n), Arrays.copyOf(scores, n));
+    }
+
+    private void insert(int ordinal) {
+        float[] vector = new float[values.dimensions()];
+        values.get(ordinal, vector);
+        int level = randomLevel();
+        Node node = new Node(level);
+
+        Entry start;
+        synchronized (structureLock) {
+            place(ordinal, node);
+            start = entry;
+            if (start == null) {
+                entry = new Entry(ordinal, level);
+                return;
+            }
+        }
+
+        int current = start.ordinal();
+        float currentScore = values.dot(current, vector);
+        for (int lc = start.level(); lc > level; lc--) {
+            int[] best = greedyClosest(vector, current, currentScore, lc);
+            current = best[0];
+            currentScore = Float.intBitsToFloat(best[1]);
+        }
+
+        for (int lc = Math.min(level, start.level()); lc >= 0; lc--) {
+            TopK candidates = searchLayer(vector, current, currentScore, efConstruction, lc, ordinal, null);
+            float[] scores = new float[candidates.size()];
+            int[] ordinals = candidates.drainDescending(scores);
+            if (ordinals.length == 0) {
+                continue;
+            }
+            int maxConnections = lc == 0 ? maxConnections0 : m;
+            int[] selected = selectNeighbors(ordinals, scores, maxConnections);
+            node.neighbors.set(lc, selected);
+            for (int neighbor : selected) {
+                link(neighbor, ordinal, vector, lc, maxConnections);
+            }
+            current = ordinals[0];
+            currentScore = scores[0];
+        }
+
+        if (level > start.level()) {
+            synchronized (structureLock) {
+                if (level > entry.level()) {
+                    entry = new Entry(ordinal, level);
+                }
+            }
+        }
+    }
+
+    /**
+     * Greedy walk on one layer; returns {ordinal, floatBits(score)} of the closest node found
+     */
+    private int[] greedyClosest(float[] query, int current, float currentScore, int level) {
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : node(current).neighbors(level)) {
+                float score = values.dot(neighbor, query);
+                if (score > currentScore) {
+                    current = neighbor;
+                    currentScore = score;
+                    improved = true;
+                }
+            }
+        }
+        return new int[] {current, Float.floatToRawIntBits(currentScore)};
+    }
+
+    /**
+     * Best-first search of one layer keeping the {@code ef} closest nodes ({@code accept} ones only, if given)
+     */
+    private TopK searchLayer(float[] query, int start, float startScore, int ef, int level, int exclude,
+            IntPredicate accept) {
+        int[] marks = visitedMarks(nodes.length);
+        int stamp = nextStamp(marks);
+
+        NeighborQueue candidates = new NeighborQueue(ef);
+        TopK results = new TopK(ef);
+        marks[start] = stamp;
+        candidates.push(start, startScore);
+        if (start != exclude && (accept == null || accept.test(start))) {
+            results.offer(start, startScore);
+        }
+
+        while (!candidates.isEmpty()) {
+            if (results.isFull() && candidates.topScore() < results.minScore()) {
+                break;
+            }
+            int current = candidates.pop();
+            for (int neighbor : node(current).neighbors(level)) {
+                if (neighbor >= marks.length) {
+                    // Linked after the marks array was sized; treat as unvisited only once
+                    marks = visitedMarks(neighbor + 1);
+                    marks[neighbor] = stamp;
+                } else if (marks[neighbor] == stamp) {
+                    continue;
+                } else {
+                    marks[neighbor] = stamp;
+                }
+                if (neighbor == exclude) {
+                    continue;
+                }
+                float score = values.dot(neighbor, query);
+                if (!results.isFull() || score > results.minScore()) {
+                    candidates.push(neighbor, score);
+                    if (accept == null || accept.test(neighbor)) {
+                        results.offer(neighbor, score);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Diversity heuristic from the HNSW paper: keep a candidate only if it is closer to the
+     * new node than to any neighbour already kept, then top up with the best of the rest
+     */
+    private int[] selectNeighbors(int[] ordinals, float[] scores, int maxConnections) {
+        if (ordinals.length <= maxConnections) {
+            return ordinals.clone();
+        }
+        int[] selected = new int[maxConnections];
+        int count = 0;
+        boolean[] rejected = new boolean[ordinals.length];
+        float[] candidate = new float[values.dimensions()];
+        for (int i = 0; i < ordinals.length && count < maxConnections; i++) {
+            values.get(ordinals[i], candidate);
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (values.dot(selected[j], candidate) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = ordinals[i];
+            } else {
+                rejected[i] = true;
+            }
+        }
+        for (int i = 0; i < ordinals.length && count < maxConnections; i++) {
+            if (rejected[i]) {
+                selected[count++] = ordinals[i];
+            }
+        }
+        return count == maxConnections ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Add a back-link from {@code neighbor} to the new node. A full list only takes the new
+     * node if no current neighbour is closer to it, in which case it evicts the weakest link;
+     * this keeps the insert cost linear in M rather than re-running the heuristic.
+     */
+    private void link(int neighbor, int ordinal, float[] vector, int level, int maxConnections) {
+        Node node = node(neighbor);
+        synchronized (node) {
+            int[] current = node.neighbors(level);
+            for (int existing : current) {
+                if (existing == ordinal) {
+                    return;
+                }
+            }
+            if (current.length < maxConnections) {
+                int[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = ordinal;
+                node.neighbors.set(level, updated);
+                return;
+            }
+
+            float score = values.dot(neighbor, vector);
+            float[] base = new float[values.dimensions()];
+            values.get(neighbor, base);
+            int weakest = -1;
+            float weakestScore = score;
+            for (int i = 0; i < current.length; i++) {
+                if (values.dot(current[i], vector) > score) {
+                    return;
+                }
+                float existingScore = values.dot(current[i], base);
+                if (existingScore < weakestScore) {
+                    weakest = i;
+                    weakestScore = existingScore;
+                }
+            }
+            if (weakest >= 0) {
+                int[] updated = current.clone();
+                updated[weakest] = ordinal;
+                node.neighbors.set(level, updated);
+            }
+        }
+    }
+
+    private Node node(int ordinal) {
+        return nodes[ordinal];
+    }
+
+    /**
+     * Store the node so it can be reached once linked (caller holds structureLock)
+     */
+    private void place(int ordinal, Node node) {
+        Node[] current = nodes;
+        if (ordinal >= current.length) {
+            current = Arrays.copyOf(current, Math.max(ordinal + 1, current.length * 2));
+            current[ordinal] = node;
+            nodes = current;
+        } else {
+            current[ordinal] = node;
+        }
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(uniform) * levelMultiplier);
+    }
+
+    private int[] visitedMarks(int capacity) {
+        int[] marks = visitedMarks.get();
+        if (marks.length < capacity) {
+            marks = Arrays.copyOf(marks, Math.max(capacity, marks.length * 2));
+            visitedMarks.set(marks);
+        }
+        return marks;
+    }
+
+    private int nextStamp(int[] marks) {
+        int[] stamp = visitedStamp.get();
+        if (++stamp[0] == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            stamp[0] = 1;
+        }
+        return stamp[0];
+    }
+
+    /**
+     * Write the graph to its file, waiting for in-flight inserts to finish
+     */
+    @Override
+    public void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        saveLock.writeLock().lock();
+        try {
+            Entry start = entry;
+            Node[] current = nodes;
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(m);
+                out.writeInt(start == null ? -1 : start.ordinal());
+                out.writeInt(start == null ? -1 : start.level());
+                int count = current.length;
+                while (count > 0 && current[count - 1] == null) {
+                    count--;
+                }
+                out.writeInt(count);
+                for (int ordinal = 0; ordinal < count; ordinal++) {
+                    Node node = current[ordinal];
+                    if (node == null) {
+                        out.writeInt(-1);
+                        continue;
+                    }
+                    out.writeInt(node.level());
+                    for (int level = 0; level <= node.level(); level++) {
+                        int[] neighbors = node.neighbors(level);
+                        out.writeInt(neighbors.length);
+                        for (int neighbor : neighbors) {
+                            out.writeInt(neighbor);
+                        }
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            saveLock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != m) {
+                // Built with different parameters: rebuild from the vectors instead
+                return;
+            }
+            int entryOrdinal = in.readInt();
+            int entryLevel = in.readInt();
+            int count = in.readInt();
+            // Nodes beyond the readable vectors were never committed to the store
+            int limit = Math.min(count, values.size());
+            Node[] loaded = new Node[Math.max(limit, 1024)];
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                int level = in.readInt();
+                if (level < 0) {
+                    continue;
+                }
+                Node node = new Node(level);
+                for (int l = 0; l <= level; l++) {
+                    int[] neighbors = new int[in.readInt()];
+                    for (int i = 0; i < neighbors.length; i++) {
+                        neighbors[i] = in.readInt();
+                    }
+                    node.neighbors.set(l, neighbors);
+                }
+                if (ordinal < limit) {
+                    loaded[ordinal] = node;
+                }
+            }
+            if (entryOrdinal < 0 || entryOrdinal >= limit || limit < count) {
+                // Graph refers to vectors that are gone; start over
+                return;
+            }
+            nodes = loaded;
+            entry = new Entry(entryOrdinal, entryLevel);
+        }
+    }
+}
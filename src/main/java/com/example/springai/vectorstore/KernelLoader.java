@@ -0,0 +1,29 @@
+package com.example.springai.vectorstore;
+
+/**
+ * Picks the {@link SimilarityKernels} implementation once per JVM. The SIMD class is only
+ * loaded reflectively, so the application still starts without the incubator module.
+ */
+final class KernelLoader {
+
+    static final SimilarityKernels SIMD = loadSimd();
+    static final SimilarityKernels PREFERRED =
+        SIMD != null && !"scalar".equals(System.getProperty("vector.kernels")) ? SIMD : ScalarKernels.INSTANCE;
+
+    private KernelLoader() {
+    }
+
+    private static SimilarityKernels loadSimd() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (SimilarityKernels) Class.forName(KernelLoader.class.getPackageName() + ".PanamaKernels")
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Module present but unusable on this platform: the scalar loops still work
+            return null;
+        }
+    }
+}
@@ -0,0 +1,778 @@
+package com.example.springai.vectorstore;
+
+import com.example.springai.vectorstore.ChunkLog.StoredChunk;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Persistent vector store backed by memory-mapped segment files.
+ *
+ * Vectors are normalized and written as float32 into fixed-size segments, so they live
+ * off-heap in the page cache and survive restarts. Chunk ids, text and metadata go to an
+ * append-only side file. Reopening the store maps the existing segments and replays the
+ * side file, with no re-embedding.
+ *
+ * Searches go through a pluggable {@link VectorIndex}. Index inserts happen after the
+ * write lock is released, so concurrent {@code add} calls build the index in parallel.
+ * A BM25 index over the chunk texts is kept alongside for {@link #lexicalSearch}.
+ *
+ * Metadata filters are evaluated against per-value bitmaps ({@link MetadataIndex}) before the
+ * search, so only matching chunks are scored: small matching sets are scanned directly, larger
+ * ones are passed to the index as an acceptance test. Deletes by filter use the same bitmaps.
+ *
+ * Deleted chunks are tombstoned and filtered out of every search straight away. Once they
+ * make up {@code compactionRatio} of the store, a background compactor copies the live chunks
+ * into a new {@link Generation} (its own directory, named by the {@code CURRENT} file), builds
+ * its indexes, and swaps it in; {@link #clear()} swaps in an empty one.
+ *
+ * Writes are serialized; searches run without locking against the published size of the
+ * current generation.
+ */
+public class MappedVectorStore implements VectorStore, AutoCloseable {
+
+    private static final String CHUNK_LOG = "chunks.log";
+    private static final String SEGMENT_FILE = "vectors-%05d.seg";
+    private static final String TOMBSTONES = "tombstones.bin";
+    private static final String CURRENT = "CURRENT";
+    private static final String GENERATION_DIRECTORY = "generation-";
+
+    private static final double DEFAULT_COMPACTION_RATIO = 0.2;
+    private static final int DEFAULT_COMPACTION_MIN_DELETED = 1000;
+    /** Filters matching at most this many chunks are scored by scanning them instead of via the index */
+    private static final int FILTER_SCAN_LIMIT = 10_000;
+
+    private final EmbeddingModel embeddingModel;
+    private final Path directory;
+    private final int segmentCapacity;
+    private final VectorIndex.Factory indexFactory;
+    private final double compactionRatio;
+    private final int compactionMinDeleted;
+
+    private final Object writeLock = new Object();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicLong generations = new AtomicLong();
+    private final ExecutorService compactor;
+    private volatile Generation current;
+    private boolean closed;
+
+    private MappedVectorStore(EmbeddingModel embeddingModel, Path directory, int segmentCapacity,
+            VectorIndex.Factory indexFactory, double compactionRatio, int compactionMinDeleted) {
+        this.embeddingModel = embeddingModel;
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        this.indexFactory = indexFactory;
+        this.compactionRatio = compactionRatio;
+        this.compactionMinDeleted = compactionMinDeleted;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vector-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open (or create) a store in {@code directory} searched by exact scan
+     */
+    public static MappedVectorStore open(EmbeddingModel embeddingModel, Path directory, int segmentCapacity)
+            throws IOException {
+        return open(embeddingModel, directory, segmentCapacity, (values, dir) -> new ExactVectorIndex(values));
+    }
+
+    /**
+     * Open (or create) a store in {@code directory} searched through the given index
+     */
+    public static MappedVectorStore open(EmbeddingModel embeddingModel, Path directory, int segmentCapacity,
+            VectorIndex.Factory indexFactory) throws IOException {
+        return open(embeddingModel, directory, segmentCapacity, indexFactory, DEFAULT_COMPACTION_RATIO,
+            DEFAULT_COMPACTION_MIN_DELETED);
+    }
+
+    /**
+     * Open (or create) a store in {@code directory} searched through the given index, compacted
+     * once at least {@code compactionMinDeleted} chunks and {@code compactionRatio} of all are deleted
+     */
+    public static MappedVectorStore open(EmbeddingModel embeddingModel, Path directory, int segmentCapacity,
+            VectorIndex.Factory indexFactory, double compactionRatio, int compactionMinDeleted) throws IOException {
+        MappedVectorStore store = new MappedVectorStore(embeddingModel, directory, segmentCapacity, indexFactory,
+            compactionRatio, compactionMinDeleted);
+        store.load();
+        return store;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        Path marker = directory.resolve(CURRENT);
+        long number = Files.exists(marker) ? Long.parseLong(Files.readString(marker).trim()) : 0;
+        // Leftovers of a compaction or clear interrupted by a crash
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(GENERATION_DIRECTORY) && !name.equals(GENERATION_DIRECTORY + number)) {
+                    deleteRecursively(file);
+                }
+            }
+        }
+        if (number != 0) {
+            deleteGeneration(0);
+        }
+        generations.set(number + 1);
+        current = openGeneration(number);
+    }
+
+    private Generation openGeneration(long number) throws IOException {
+        Path generationDirectory = number == 0 ? directory : directory.resolve(GENERATION_DIRECTORY + number);
+        Files.createDirectories(generationDirectory);
+        Generation generation = new Generation(number, generationDirectory);
+        generation.chunkLog = ChunkLog.open(generationDirectory.resolve(CHUNK_LOG), generation.chunks);
+        generation.tombstones = Tombstones.open(generationDirectory.resolve(TOMBSTONES));
+
+        Path first = generation.segmentPath(0);
+        if (Files.exists(first)) {
+            generation.dimensions = VectorSegment.readDimensions(first);
+            for (int i = 0; Files.exists(generation.segmentPath(i)); i++) {
+                generation.segments.add(VectorSegment.open(generation.segmentPath(i), generation.dimensions,
+                    segmentCapacity));
+            }
+        }
+
+        // A record is only appended after its vector is on disk, so the side file is authoritative
+        long mapped = (long) generation.segments.size() * segmentCapacity;
+        if (generation.chunks.size() > mapped) {
+            generation.close();
+            throw new IOException("Chunk log has " + generation.chunks.size() + " records but segments hold only "
+                + mapped + " vectors in " + generationDirectory);
+        }
+        generation.size = generation.chunks.size();
+        generation.index = indexFactory.open(generation, generationDirectory);
+        Tombstones tombstones = generation.tombstones;
+        for (int ordinal = 0; ordinal < generation.size; ordinal++) {
+            if (!tombstones.contains(ordinal)) {
+                StoredChunk chunk = generation.chunks.get(ordinal);
+                generation.lexical.add(ordinal, chunk.content());
+                generation.metadata.add(ordinal, chunk.metadata());
+            }
+        }
+
+        // Catch the index up with vectors it has not seen (all of them if it keeps no state)
+        VectorIndex index = generation.index;
+        IntStream.range(0, generation.size).parallel()
+            .filter(ordinal -> !tombstones.contains(ordinal) && !index.contains(ordinal))
+            .forEach(index::add);
+        return generation;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<String> texts = documents.stream().map(Document::getContent).toList();
+        add(documents, embeddingModel.embed(texts));
+    }
+
+    /**
+     * Add documents whose embeddings were computed beforehand, e.g. by a bulk ingestion pipeline.
+     * The embeddings must come from the store's embedding model.
+     */
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException(documents.size() + " documents but " + embeddings.size()
+                + " embeddings");
+        }
+        if (documents.isEmpty()) {
+            return;
+        }
+        Generation generation;
+        int base;
+        synchronized (writeLock) {
+            generation = current;
+            generation.checkWritable();
+            base = generation.size;
+            try {
+                for (int i = 0; i < documents.size(); i++) {
+                    float[] vector = normalize(embeddings.get(i));
+                    if (generation.dimensions == 0) {
+                        generation.dimensions = vector.length;
+                    } else if (vector.length != generation.dimensions) {
+                        throw new IllegalArgumentException("Embedding has " + vector.length
+                            + " dimensions, store expects " + generation.dimensions);
+                    }
+                    int ordinal = base + i;
+                    segmentFor(generation, ordinal).put(ordinal % segmentCapacity, vector);
+                }
+                for (int i = 0; i < documents.size(); i++) {
+                    Document document = documents.get(i);
+                    StoredChunk chunk = new StoredChunk(document.getId(), document.getContent(),
+                        new HashMap<>(document.getMetadata()));
+                    generation.metadata.add(base + i, chunk.metadata());
+                    generation.append(chunk);
+                }
+                // Metadata is indexed before publishing so filters and deletes by filter see every chunk
+                generation.publish(base);
+            } catch (IOException e) {
+                generation.rollBack(base, e);
+                throw new UncheckedIOException("Failed to append to vector store in " + directory, e);
+            } catch (RuntimeException e) {
+                generation.rollBack(base, e);
+                throw e;
+            }
+        }
+        // Should a compaction swap generations meanwhile, it indexes these chunks itself
+        for (int ordinal = base; ordinal < base + documents.size(); ordinal++) {
+            generation.index.add(ordinal);
+            generation.lexical.add(ordinal, documents.get(ordinal - base).getContent());
+        }
+    }
+
+    /**
+     * Delete the chunks with the given ids
+     *
+     * @return whether any chunk was deleted
+     */
+    @Override
+    public Optional<Boolean> delete(List<String> idList) {
+        Set<String> ids = new HashSet<>(idList);
+        return Optional.of(deleteMatching(chunk -> ids.contains(chunk.id())) > 0);
+    }
+
+    /**
+     * Delete every chunk whose metadata matches {@code filter}
+     *
+     * @return number of chunks deleted
+     */
+    public int delete(Predicate<Map<String, Object>> filter) {
+        return deleteMatching(chunk -> filter.test(chunk.metadata()));
+    }
+
+    /**
+     * Delete every chunk matching a metadata filter expression, found through the metadata bitmaps
+     * rather than by testing each chunk
+     *
+     * @return number of chunks deleted
+     * @throws IllegalArgumentException if the expression is not a supported metadata comparison
+     */
+    public int delete(Filter.Expression filter) {
+        int deleted = 0;
+        synchronized (writeLock) {
+            Generation generation = current;
+            try {
+                long[] matching = generation.accepted(filter);
+                for (int word = 0; word < matching.length; word++) {
+                    long bits = matching[word];
+                    while (bits != 0) {
+                        int ordinal = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        if (generation.tombstones.add(ordinal)) {
+                            deleted++;
+                        }
+                    }
+                }
+                generation.tombstones.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete from vector store in " + directory, e);
+            }
+        }
+        if (deleted > 0) {
+            maybeCompact();
+        }
+        return deleted;
+    }
+
+    private int deleteMatching(Predicate<StoredChunk> matcher) {
+        int deleted = 0;
+        synchronized (writeLock) {
+            Generation generation = current;
+            try {
+                for (int ordinal = 0; ordinal < generation.size; ordinal++) {
+                    if (!generation.tombstones.contains(ordinal) && matcher.test(generation.chunks.get(ordinal))
+                            && generation.tombstones.add(ordinal)) {
+                        deleted++;
+                    }
+                }
+                generation.tombstones.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete from vector store in " + directory, e);
+            }
+        }
+        if (deleted > 0) {
+            maybeCompact();
+        }
+        return deleted;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request's filter expression is not a supported
+     *                                  metadata comparison
+     */
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        Generation generation = current;
+        if (generation.live() == 0) {
+            return List.of();
+        }
+        long[] accepted = null;
+        if (request.getFilterExpression() != null) {
+            accepted = generation.accepted(request.getFilterExpression());
+            if (MetadataIndex.cardinality(accepted) == 0) {
+                // Nothing to rank, so skip embedding the query
+                return List.of();
+            }
+        }
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+
+        VectorIndex.Hits hits;
+        if (accepted == null) {
+            hits = generation.index.search(query, generation.overFetch(request.getTopK()));
+        } else if (MetadataIndex.cardinality(accepted) <= FILTER_SCAN_LIMIT) {
+            hits = scan(generation, accepted, query, request.getTopK());
+        } else {
+            // Tombstones are already cleared from the bitset, so no over-fetch is needed
+            long[] filter = accepted;
+            hits = generation.index.search(query, request.getTopK(),
+                ordinal -> MetadataIndex.contains(filter, ordinal));
+        }
+        List<Document> results = new ArrayList<>(request.getTopK());
+        for (int i = 0; i < hits.size() && results.size() < request.getTopK(); i++) {
+            if (hits.scores()[i] < request.getSimilarityThreshold()) {
+                break;
+            }
+            if (!generation.tombstones.contains(hits.ordinals()[i])) {
+                results.add(toDocument(generation, hits.ordinals()[i], hits.scores()[i]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Best {@code topK} chunks for {@code query} by BM25 term matching, highest first.
+     * The score is returned in the {@code score} metadata entry.
+     */
+    public List<Document> lexicalSearch(String query, int topK) {
+        return lexicalSearch(query, topK, null);
+    }
+
+    /**
+     * Best {@code topK} chunks for {@code query} by BM25 term matching among those matching the
+     * metadata {@code filter} (all if null), highest first
+     *
+     * @throws IllegalArgumentException if the expression is not a supported metadata comparison
+     */
+    public List<Document> lexicalSearch(String query, int topK, Filter.Expression filter) {
+        Generation generation = current;
+        VectorIndex.Hits hits;
+        if (filter == null) {
+            hits = generation.lexical.search(query, generation.overFetch(topK));
+        } else {
+            long[] accepted = generation.accepted(filter);
+            hits = generation.lexical.search(query, topK, ordinal -> MetadataIndex.contains(accepted, ordinal));
+        }
+        List<Document> results = new ArrayList<>(Math.min(hits.size(), topK));
+        for (int i = 0; i < hits.size() && results.size() < topK; i++) {
+            int ordinal = hits.ordinals()[i];
+            if (generation.tombstones.contains(ordinal)) {
+                continue;
+            }
+            StoredChunk chunk = generation.chunks.get(ordinal);
+            Map<String, Object> metadata = new HashMap<>(chunk.metadata());
+            metadata.put("score", hits.scores()[i]);
+            results.add(new Document(chunk.id(), chunk.content(), metadata));
+        }
+        return results;
+    }
+
+    /**
+     * Number of chunks currently stored, not counting deleted ones
+     */
+    public int size() {
+        return current.live();
+    }
+
+    /**
+     * Number of deleted chunks still waiting for compaction
+     */
+    public int deleted() {
+        return current.tombstones.count();
+    }
+
+    /**
+     * Remove every chunk and delete the files backing the store
+     */
+    public void clear() {
+        synchronized (writeLock) {
+            try {
+                swap(openGeneration(generations.getAndIncrement()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to clear vector store in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Copy the live chunks into a new generation, build its indexes and switch searches to it.
+     * Adds and deletes carry on meanwhile; those made after the copy started are replayed
+     * onto the new generation before the switch.
+     */
+    public void compact() throws IOException {
+        Generation source;
+        int snapshot;
+        synchronized (writeLock) {
+            source = current;
+            snapshot = source.size;
+        }
+        long number = generations.getAndIncrement();
+        Generation target = openGeneration(number);
+        try {
+            // The bulk of the work, without the write lock
+            int[] mapping = new int[snapshot];
+            copyLive(source, target, 0, snapshot, mapping);
+            VectorIndex index = target.index;
+            IntStream.range(0, target.size).parallel().forEach(index::add);
+            for (int ordinal = 0; ordinal < target.size; ordinal++) {
+                StoredChunk chunk = target.chunks.get(ordinal);
+                target.lexical.add(ordinal, chunk.content());
+                target.metadata.add(ordinal, chunk.metadata());
+            }
+
+            synchronized (writeLock) {
+                if (closed || current != source) {
+                    // Cleared or closed meanwhile
+                    target.close();
+                    deleteGeneration(number);
+                    return;
+                }
+                int base = target.size;
+                copyLive(source, target, snapshot, source.size, null);
+                for (int ordinal = base; ordinal < target.size; ordinal++) {
+                    StoredChunk chunk = target.chunks.get(ordinal);
+                    index.add(ordinal);
+                    target.lexical.add(ordinal, chunk.content());
+                    target.metadata.add(ordinal, chunk.metadata());
+                }
+                for (int ordinal = 0; ordinal < snapshot; ordinal++) {
+                    if (mapping[ordinal] >= 0 && source.tombstones.contains(ordinal)) {
+                        target.tombstones.add(mapping[ordinal]);
+                    }
+                }
+                target.tombstones.flush();
+                swap(target);
+            }
+        } catch (IOException | RuntimeException e) {
+            target.close();
+            deleteGeneration(number);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        synchronized (writeLock) {
+            closed = true;
+            current.index.save();
+            current.close();
+        }
+    }
+
+    private void maybeCompact() {
+        Generation generation = current;
+        int deleted = generation.tombstones.count();
+        if (deleted < compactionMinDeleted || deleted < compactionRatio * generation.size
+                || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    // Searches keep skipping the tombstones; the next delete tries again
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Append the live chunks among {@code source} ordinals [from, to) to {@code target},
+     * recording each one's new ordinal in {@code mapping} (-1 when skipped) if given
+     */
+    private void copyLive(Generation source, Generation target, int from, int to, int[] mapping)
+            throws IOException {
+        int base = target.size;
+        int ordinal = base;
+        float[] vector = new float[source.dimensions];
+        for (int old = from; old < to; old++) {
+            if (source.tombstones.contains(old)) {
+                if (mapping != null) {
+                    mapping[old] = -1;
+                }
+                continue;
+            }
+            target.dimensions = source.dimensions;
+            source.get(old, vector);
+            segmentFor(target, ordinal).put(ordinal % segmentCapacity, vector);
+            target.append(source.chunks.get(old));
+            if (mapping != null) {
+                mapping[old] = ordinal;
+            }
+            ordinal++;
+        }
+        if (ordinal > base) {
+            target.publish(base);
+        }
+    }
+
+    /**
+     * Make {@code next} the current generation and delete the one it replaces.
+     * Searches already running keep reading the old generation's mappings.
+     */
+    private void swap(Generation next) throws IOException {
+        Generation previous = current;
+        Path marker = directory.resolve(CURRENT);
+        Path pending = directory.resolve(CURRENT + ".tmp");
+        Files.writeString(pending, Long.toString(next.number));
+        Files.move(pending, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        current = next;
+        previous.close();
+        deleteGeneration(previous.number);
+    }
+
+    private void deleteGeneration(long number) throws IOException {
+        if (number != 0) {
+            deleteRecursively(directory.resolve(GENERATION_DIRECTORY + number));
+            return;
+        }
+        // Generation 0 lives directly in the store directory, next to the later ones
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && !file.getFileName().toString().startsWith(CURRENT)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Score the chunks set in {@code accepted} directly, for filters too selective to be worth
+     * walking an approximate index for
+     */
+    private static VectorIndex.Hits scan(Generation generation, long[] accepted, float[] query, int k) {
+        TopK topK = new TopK(k);
+        for (int word = 0; word < accepted.length; word++) {
+            long bits = accepted[word];
+            while (bits != 0) {
+                int ordinal = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                topK.offer(ordinal, generation.dot(ordinal, query));
+            }
+        }
+        float[] scores = new float[topK.size()];
+        int[] ordinals = topK.drainDescending(scores);
+        return new VectorIndex.Hits(ordinals, scores);
+    }
+
+    private Document toDocument(Generation generation, int ordinal, float similarity) {
+        StoredChunk chunk = generation.chunks.get(ordinal);
+        Map<String, Object> metadata = new HashMap<>(chunk.metadata());
+        metadata.put("distance", 1.0f - similarity);
+        return new Document(chunk.id(), chunk.content(), metadata);
+    }
+
+    private VectorSegment segmentFor(Generation generation, int ordinal) throws IOException {
+        int index = ordinal / segmentCapacity;
+        List<VectorSegment> segments = generation.segments;
+        while (segments.size() <= index) {
+            segments.add(VectorSegment.open(generation.segmentPath(segments.size()), generation.dimensions,
+                segmentCapacity));
+        }
+        return segments.get(index);
+    }
+
+    /**
+     * Scale to unit length so a dot product equals cosine similarity
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = SimilarityKernels.preferred().dot(vector, vector);
+        if (norm == 0) {
+            return vector.clone();
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    /**
+     * The files and in-memory views making up the store's contents at one point in time.
+     * Only the writer mutates it; readers rely on the volatile size for visibility.
+     */
+    private final class Generation implements VectorValues {
+
+        final long number;
+        final Path directory;
+        final List<VectorSegment> segments = new CopyOnWriteArrayList<>();
+        final List<StoredChunk> chunks = new ArrayList<>();
+        final Bm25Index lexical = new Bm25Index();
+        final MetadataIndex metadata = new MetadataIndex();
+        ChunkLog chunkLog;
+        Tombstones tombstones;
+        VectorIndex index;
+        int dimensions;
+        volatile int size;
+        /** Why writes are refused, after a failed batch could not be rolled back */
+        Exception broken;
+
+        Generation(long number, Path directory) {
+            this.number = number;
+            this.directory = directory;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int dimensions() {
+            return dimensions;
+        }
+
+        @Override
+        public float dot(int ordinal, float[] query) {
+            return segments.get(ordinal / segmentCapacity).dot(ordinal % segmentCapacity, query);
+        }
+
+        @Override
+        public void dot(int ordinal, int count, float[] query, float[] scores) {
+            if (ordinal / segmentCapacity != (ordinal + count - 1) / segmentCapacity) {
+                // Straddles two segments: score one at a time
+                VectorValues.super.dot(ordinal, count, query, scores);
+                return;
+            }
+            segments.get(ordinal / segmentCapacity).dot(ordinal % segmentCapacity, count, query, scores);
+        }
+
+        @Override
+        public void get(int ordinal, float[] target) {
+            segments.get(ordinal / segmentCapacity).get(ordinal % segmentCapacity, target);
+        }
+
+        int live() {
+            return size - tombstones.count();
+        }
+
+        /**
+         * Hits to ask an index for so that {@code k} remain once deleted chunks are skipped;
+         * compaction keeps the excess to a fraction of the store
+         */
+        int overFetch(int k) {
+            return (int) Math.min(size, (long) k + tombstones.count());
+        }
+
+        /**
+         * Live chunks of the published ones matching {@code filter}, as a dense bitset
+         */
+        long[] accepted(Filter.Expression filter) {
+            long[] bits = metadata.evaluate(filter, size);
+            tombstones.removeFrom(bits);
+            return bits;
+        }
+
+        /**
+         * Buffer the side file record of the next vector (already written to its segment)
+         */
+        void append(StoredChunk chunk) throws IOException {
+            chunkLog.append(chunk);
+            chunks.add(chunk);
+        }
+
+        /**
+         * Make the chunks appended since ordinal {@code base} durable and then visible to searches
+         */
+        void publish(int base) throws IOException {
+            for (int i = base / segmentCapacity; i < segments.size(); i++) {
+                segments.get(i).force();
+            }
+            chunkLog.flush();
+            size = chunks.size();
+        }
+
+        /**
+         * Undo a batch that failed before {@link #publish}, so that the next one starts at ordinal
+         * {@code base} again with chunks, metadata and the side file all matching the vectors.
+         * Vectors already written past {@code base} are simply overwritten by the next batch.
+         */
+        void rollBack(int base, Exception cause) {
+            chunks.subList(base, chunks.size()).clear();
+            metadata.truncate(base);
+            try {
+                chunkLog.discard();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+                broken = e;
+            }
+        }
+
+        void checkWritable() {
+            if (broken != null) {
+                throw new IllegalStateException("Vector store in " + MappedVectorStore.this.directory
+                    + " could not undo a failed write and must be reopened", broken);
+            }
+        }
+
+        Path segmentPath(int index) {
+            return directory.resolve(String.format(SEGMENT_FILE, index));
+        }
+
+        void close() throws IOException {
+            chunkLog.close();
+            tombstones.close();
+            for (VectorSegment segment : segments) {
+                segment.close();
+            }
+        }
+    }
+}
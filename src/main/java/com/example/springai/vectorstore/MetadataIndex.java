@@ -0,0 +1,223 @@
+package com.example.springai.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Inverted index from metadata values to the chunks carrying them, one {@link OrdinalBitmap}
+ * per (key, value) pair, used to evaluate filter expressions into a set of ordinals before
+ * a search instead of testing the top hits afterwards.
+ *
+ * String, number and boolean values are indexed; numbers compare by value whatever their type.
+ * Whole numbers are kept as longs, so ids and sizes beyond 2^53 still compare exactly, and
+ * {@code 7} equals {@code 7.0}. Ranges only compare numbers with numbers and strings with
+ * strings (lexically).
+ *
+ * {@code !=} and {@code nin} are the complements of {@code ==} and {@code in}: like
+ * {@code not}, they also match chunks without the key. That is what replacing a document's
+ * older revisions relies on ({@code title == t && revision != r} must catch chunks stored
+ * before they had a revision). Ranges never match a chunk without the key.
+ *
+ * Like {@link Bm25Index}, it is rebuilt from the chunk side file when the store is opened.
+ * Adds take a write lock, evaluations a read lock.
+ */
+final class MetadataIndex {
+
+    private final Map<String, Map<Object, OrdinalBitmap>> keys = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Index the metadata stored at {@code ordinal}
+     */
+    void add(int ordinal, Map<String, Object> metadata) {
+        lock.writeLock().lock();
+        try {
+            metadata.forEach((key, value) -> {
+                Object normalized = normalize(value);
+                if (normalized != null) {
+                    keys.computeIfAbsent(key, k -> new HashMap<>())
+                        .computeIfAbsent(normalized, v -> new OrdinalBitmap())
+                        .add(ordinal);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forget the metadata of every ordinal from {@code size} on, e.g. of a batch that failed to be stored
+     */
+    void truncate(int size) {
+        lock.writeLock().lock();
+        try {
+            keys.values().forEach(values -> values.values().forEach(bitmap -> bitmap.truncate(size)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinals below {@code size} matching {@code expression}, as a dense bitset
+     *
+     * @throws IllegalArgumentException if the expression is not a comparison of a key with a value
+     *                                  or a combination of such comparisons
+     */
+    long[] evaluate(Filter.Expression expression, int size) {
+        lock.readLock().lock();
+        try {
+            return evaluate((Filter.Operand) expression, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] evaluate(Filter.Operand operand, int size) {
+        if (operand instanceof Filter.Group group) {
+            return evaluate(group.content(), size);
+        }
+        if (!(operand instanceof Filter.Expression expression)) {
+            throw new IllegalArgumentException("Expected a filter expression but got " + operand);
+        }
+        return switch (expression.type()) {
+            case AND -> and(evaluate(expression.left(), size), evaluate(expression.right(), size));
+            case OR -> or(evaluate(expression.left(), size), evaluate(expression.right(), size));
+            case NOT -> not(evaluate(expression.left(), size), size);
+            case EQ -> matching(expression, size, target(expression)::equals);
+            case NE -> not(matching(expression, size, target(expression)::equals), size);
+            case IN -> matching(expression, size, targets(expression)::contains);
+            case NIN -> not(matching(expression, size, targets(expression)::contains), size);
+            case GT -> matching(expression, size, range(target(expression), order -> order > 0));
+            case GTE -> matching(expression, size, range(target(expression), order -> order >= 0));
+            case LT -> matching(expression, size, range(target(expression), order -> order < 0));
+            case LTE -> matching(expression, size, range(target(expression), order -> order <= 0));
+        };
+    }
+
+    /**
+     * Union of the bitmaps of every value of the expression's key accepted by {@code test}
+     */
+    private long[] matching(Filter.Expression expression, int size, Predicate<Object> test) {
+        if (!(expression.left() instanceof Filter.Key key)) {
+            throw new IllegalArgumentException("Expected a metadata key on the left of " + expression.type());
+        }
+        long[] words = new long[words(size)];
+        Map<Object, OrdinalBitmap> values = keys.get(key.key());
+        if (values != null) {
+            values.forEach((value, bitmap) -> {
+                if (test.test(value)) {
+                    bitmap.orInto(words);
+                }
+            });
+        }
+        clearFrom(words, size);
+        return words;
+    }
+
+    private static Object target(Filter.Expression expression) {
+        if (!(expression.right() instanceof Filter.Value value) || normalize(value.value()) == null) {
+            throw new IllegalArgumentException("Expected a string, number or boolean value for "
+                + expression.type());
+        }
+        return normalize(value.value());
+    }
+
+    private static List<Object> targets(Filter.Expression expression) {
+        if (!(expression.right() instanceof Filter.Value value) || !(value.value() instanceof Collection<?> list)) {
+            throw new IllegalArgumentException("Expected a list of values for " + expression.type());
+        }
+        return list.stream().map(MetadataIndex::normalize).toList();
+    }
+
+    /**
+     * Values comparable with {@code target} (numbers, or strings in lexical order) whose order
+     * relative to it passes {@code test}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate<Object> range(Object target, IntPredicate test) {
+        if (target instanceof Number bound) {
+            return value -> value instanceof Number number && test.test(compare(number, bound));
+        }
+        return value -> value.getClass() == target.getClass() && value instanceof Comparable comparable
+            && test.test(comparable.compareTo(target));
+    }
+
+    private static int compare(Number a, Number b) {
+        if (a instanceof Long x && b instanceof Long y) {
+            return Long.compare(x, y);
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+
+    /**
+     * The form values are indexed and compared in (whole numbers as longs, other numbers as
+     * doubles); null for types that are not indexed
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number number) {
+            double real = number.doubleValue();
+            boolean whole = real == Math.rint(real) && real >= -0x1p63 && real < 0x1p63;
+            return whole ? (Object) (long) real : real;
+        }
+        if (value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        return null;
+    }
+
+    static int words(int size) {
+        return (size + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    static boolean contains(long[] bitset, int ordinal) {
+        int word = ordinal >>> 6;
+        return word < bitset.length && (bitset[word] & (1L << ordinal)) != 0;
+    }
+
+    static int cardinality(long[] bitset) {
+        int count = 0;
+        for (long word : bitset) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static long[] and(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] &= b[i];
+        }
+        return a;
+    }
+
+    private static long[] or(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] |= b[i];
+        }
+        return a;
+    }
+
+    private static long[] not(long[] a, int size) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] = ~a[i];
+        }
+        clearFrom(a, size);
+        return a;
+    }
+
+    private static void clearFrom(long[] words, int size) {
+        if (size % Long.SIZE != 0 && words.length > 0) {
+            words[words.length - 1] &= (1L << size) - 1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.springai.vectorstore;
+
+import java.util.Arrays;
+
+/**
+ * Unbounded max-heap of (ordinal, score) pairs in primitive arrays,
+ * used as the candidate frontier of a graph search.
+ */
+final class NeighborQueue {
+
+    private int[] ordinals;
+    private float[] scores;
+    private int size;
+
+    NeighborQueue(int initialCapacity) {
+        this.ordinals = new int[Math.max(initialCapacity, 4)];
+        this.scores = new float[ordinals.length];
+    }
+
+    void push(int ordinal, float score) {
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] >= score) {
+                break;
+            }
+            ordinals[index] = ordinals[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        ordinals[index] = ordinal;
+        scores[index] = score;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    float topScore() {
+        return scores[0];
+    }
+
+    /**
+     * Remove and return the ordinal with the highest score
+     */
+    int pop() {
+        int top = ordinals[0];
+        size--;
+        int lastOrdinal = ordinals[size];
+        float lastScore = scores[size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] > scores[child]) {
+                child++;
+            }
+            if (scores[child] <= lastScore) {
+                break;
+            }
+            ordinals[index] = ordinals[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        ordinals[index] = lastOrdinal;
+        scores[index] = lastScore;
+        return top;
+    }
+}
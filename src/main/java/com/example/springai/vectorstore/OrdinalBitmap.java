@@ -0,0 +1,147 @@
+package com.example.springai.vectorstore;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of ordinals in the Roaring layout: ordinals are grouped into blocks of 65536
+ * by their high 16 bits, and each block stores its low 16 bits either as a sorted {@code char}
+ * array (2 bytes per ordinal, while the block holds at most 4096) or as a 1024-word bitset
+ * (8 KiB, once it holds more). Rare metadata values cost a few bytes per chunk, common ones
+ * at most one bit per chunk.
+ *
+ * Not thread-safe; {@link MetadataIndex} guards it.
+ */
+final class OrdinalBitmap {
+
+    private static final int BLOCK_BITS = 16;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int WORDS = BLOCK_SIZE / Long.SIZE;
+    /** Past this many entries a bitset is smaller than the sorted array */
+    private static final int ARRAY_LIMIT = 4096;
+
+    /** Per block: null, a char[] of sorted low bits, or a long[WORDS] bitset */
+    private Object[] blocks = new Object[1];
+    private int[] counts = new int[1];
+    private int cardinality;
+
+    void add(int ordinal) {
+        int block = ordinal >>> BLOCK_BITS;
+        char low = (char) ordinal;
+        if (block >= blocks.length) {
+            blocks = Arrays.copyOf(blocks, Math.max(block + 1, blocks.length * 2));
+            counts = Arrays.copyOf(counts, blocks.length);
+        }
+        Object container = blocks[block];
+        if (container instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                bits[low >>> 6] |= mask;
+                counts[block]++;
+                cardinality++;
+            }
+            return;
+        }
+        char[] values = container == null ? new char[4] : (char[]) container;
+        int count = counts[block];
+        // Ordinals arrive in ascending order almost always, so check the end first
+        int position = count > 0 && values[count - 1] < low ? count : Arrays.binarySearch(values, 0, count, low);
+        if (position >= 0 && position < count) {
+            return;
+        }
+        position = position < 0 ? -position - 1 : position;
+        if (count == ARRAY_LIMIT) {
+            long[] bits = new long[WORDS];
+            for (int i = 0; i < count; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            bits[low >>> 6] |= 1L << low;
+            blocks[block] = bits;
+        } else {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(count * 2, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, position, values, position + 1, count - position);
+            values[position] = low;
+            blocks[block] = values;
+        }
+        counts[block]++;
+        cardinality++;
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Remove every member from {@code size} on
+     */
+    void truncate(int size) {
+        int block = size >>> BLOCK_BITS;
+        for (int b = block + 1; b < blocks.length; b++) {
+            cardinality -= counts[b];
+            counts[b] = 0;
+            blocks[b] = null;
+        }
+        if (block >= blocks.length || blocks[block] == null) {
+            return;
+        }
+        char low = (char) size;
+        int kept;
+        if (blocks[block] instanceof long[] bits) {
+            int word = low >>> 6;
+            bits[word] &= (1L << low) - 1;
+            Arrays.fill(bits, word + 1, WORDS, 0);
+            kept = 0;
+            for (long bitsOfWord : bits) {
+                kept += Long.bitCount(bitsOfWord);
+            }
+        } else {
+            int position = Arrays.binarySearch((char[]) blocks[block], 0, counts[block], low);
+            kept = position < 0 ? -position - 1 : position;
+        }
+        cardinality -= counts[block] - kept;
+        counts[block] = kept;
+    }
+
+    /**
+     * Set the bits of every member below {@code words.length * 64} in a dense bitset
+     */
+    void orInto(long[] words) {
+        for (int block = 0; block < blocks.length; block++) {
+            int base = block << BLOCK_BITS;
+            int firstWord = base >>> 6;
+            if (blocks[block] == null || firstWord >= words.length) {
+                continue;
+            }
+            if (blocks[block] instanceof long[] bits) {
+                int length = Math.min(WORDS, words.length - firstWord);
+                for (int i = 0; i < length; i++) {
+                    words[firstWord + i] |= bits[i];
+                }
+            } else {
+                char[] values = (char[]) blocks[block];
+                for (int i = 0; i < counts[block]; i++) {
+                    int ordinal = base + values[i];
+                    if (ordinal >>> 6 < words.length) {
+                        words[ordinal >>> 6] |= 1L << ordinal;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Heap bytes held by the containers
+     */
+    long memoryBytes() {
+        long bytes = (long) blocks.length * (Long.BYTES + Integer.BYTES);
+        for (Object container : blocks) {
+            if (container instanceof long[] bits) {
+                bytes += (long) bits.length * Long.BYTES;
+            } else if (container instanceof char[] values) {
+                bytes += (long) values.length * Character.BYTES;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.springai.vectorstore;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SIMD kernels on the {@code jdk.incubator.vector} API, at the widest lane count the CPU offers.
+ * Only loaded by {@link KernelLoader} when the module is present.
+ *
+ * Batch scoring works on four vectors at a time so every slice of the query is loaded once
+ * per four products instead of once per product.
+ */
+final class PanamaKernels implements SimilarityKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    PanamaKernels() {
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            acc = FloatVector.fromArray(SPECIES, a, aOffset + i)
+                .fma(FloatVector.fromArray(SPECIES, b, bOffset + i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] query, ByteBuffer vectors, int byteOffset) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(query.length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            acc = FloatVector.fromArray(SPECIES, query, i)
+                .fma(FloatVector.fromByteBuffer(SPECIES, vectors, byteOffset + i * Float.BYTES, ORDER), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            sum += query[i] * vectors.getFloat(byteOffset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    @Override
+    public float cosine(float[] a, float[] b) {
+        FloatVector dot = FloatVector.zero(SPECIES);
+        FloatVector normA = FloatVector.zero(SPECIES);
+        FloatVector normB = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(a.length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            dot = va.fma(vb, dot);
+            normA = va.fma(va, normA);
+            normB = vb.fma(vb, normB);
+        }
+        float d = dot.reduceLanes(VectorOperators.ADD);
+        float na = normA.reduceLanes(VectorOperators.ADD);
+        float nb = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            d += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return na == 0 || nb == 0 ? 0 : (float) (d / Math.sqrt((double) na * nb));
+    }
+
+    @Override
+    public float l2Squared(float[] a, float[] b) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(a.length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, i).sub(FloatVector.fromArray(SPECIES, b, i));
+            acc = diff.fma(diff, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float l2Squared(float[] query, ByteBuffer vectors, int byteOffset) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(query.length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, query, i)
+                .sub(FloatVector.fromByteBuffer(SPECIES, vectors, byteOffset + i * Float.BYTES, ORDER));
+            acc = diff.fma(diff, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            float diff = query[i] - vectors.getFloat(byteOffset + i * Float.BYTES);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public void dotBatch(float[] query, float[] vectors, int offset, int count, float[] scores) {
+        int dimensions = query.length;
+        int bound = SPECIES.loopBound(dimensions);
+        int v = 0;
+        for (; v + 4 <= count; v += 4) {
+            int o0 = offset + v * dimensions;
+            int o1 = o0 + dimensions;
+            int o2 = o1 + dimensions;
+            int o3 = o2 + dimensions;
+            FloatVector acc0 = FloatVector.zero(SPECIES);
+            FloatVector acc1 = FloatVector.zero(SPECIES);
+            FloatVector acc2 = FloatVector.zero(SPECIES);
+            FloatVector acc3 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += LANES) {
+                FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                acc0 = q.fma(FloatVector.fromArray(SPECIES, vectors, o0 + i), acc0);
+                acc1 = q.fma(FloatVector.fromArray(SPECIES, vectors, o1 + i), acc1);
+                acc2 = q.fma(FloatVector.fromArray(SPECIES, vectors, o2 + i), acc2);
+                acc3 = q.fma(FloatVector.fromArray(SPECIES, vectors, o3 + i), acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            for (; i < dimensions; i++) {
+                s0 += query[i] * vectors[o0 + i];
+                s1 += query[i] * vectors[o1 + i];
+                s2 += query[i] * vectors[o2 + i];
+                s3 += query[i] * vectors[o3 + i];
+            }
+            scores[v] = s0;
+            scores[v + 1] = s1;
+            scores[v + 2] = s2;
+            scores[v + 3] = s3;
+        }
+        for (; v < count; v++) {
+            scores[v] = dot(query, 0, vectors, offset + v * dimensions, dimensions);
+        }
+    }
+
+    @Override
+    public void dotBatch(float[] query, ByteBuffer vectors, int byteOffset, int count, float[] scores) {
+        int dimensions = query.length;
+        int stride = dimensions * Float.BYTES;
+        int bound = SPECIES.loopBound(dimensions);
+        int v = 0;
+        for (; v + 4 <= count; v += 4) {
+            int o0 = byteOffset + v * stride;
+            int o1 = o0 + stride;
+            int o2 = o1 + stride;
+            int o3 = o2 + stride;
+            FloatVector acc0 = FloatVector.zero(SPECIES);
+            FloatVector acc1 = FloatVector.zero(SPECIES);
+            FloatVector acc2 = FloatVector.zero(SPECIES);
+            FloatVector acc3 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += LANES) {
+                FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+                int b = i * Float.BYTES;
+                acc0 = q.fma(FloatVector.fromByteBuffer(SPECIES, vectors, o0 + b, ORDER), acc0);
+                acc1 = q.fma(FloatVector.fromByteBuffer(SPECIES, vectors, o1 + b, ORDER), acc1);
+                acc2 = q.fma(FloatVector.fromByteBuffer(SPECIES, vectors, o2 + b, ORDER), acc2);
+                acc3 = q.fma(FloatVector.fromByteBuffer(SPECIES, vectors, o3 + b, ORDER), acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            for (; i < dimensions; i++) {
+                int b = i * Float.BYTES;
+                s0 += query[i] * vectors.getFloat(o0 + b);
+                s1 += query[i] * vectors.getFloat(o1 + b);
+                s2 += query[i] * vectors.getFloat(o2 + b);
+                s3 += query[i] * vectors.getFloat(o3 + b);
+            }
+            scores[v] = s0;
+            scores[v + 1] = s1;
+            scores[v + 2] = s2;
+            scores[v + 3] = s3;
+        }
+        for (; v < count; v++) {
+            scores[v] = dot(query, vectors, byteOffset + v * stride);
+        }
+    }
+}
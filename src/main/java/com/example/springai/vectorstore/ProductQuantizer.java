@@ -0,0 +1,202 @@
+package com.example.springai.vectorstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Product quantization: the dimensions are split into {@code subspaces} contiguous ranges,
+ * each with its own codebook of 256 centroids learned by k-means, and a vector is stored as
+ * the index of its nearest centroid in every range, one byte per subspace.
+ *
+ * A query is scored by first computing its dot product with every centroid (one small table per
+ * subspace); scoring a code is then a sum of {@code subspaces} table lookups.
+ */
+final class ProductQuantizer implements Quantizer {
+
+    static final int KIND = 2;
+
+    private static final int CENTROIDS = 256;
+    private static final int ITERATIONS = 10;
+
+    private final int dimensions;
+    private final int subspaces;
+    private final int trainingSize;
+    private final int[] starts;
+    /** Per subspace, CENTROIDS centroids of (starts[s + 1] - starts[s]) floats each */
+    private final float[][] centroids;
+    private volatile boolean trained;
+
+    /**
+     * @param trainingSize vectors sampled to learn the codebooks
+     */
+    ProductQuantizer(int dimensions, int subspaces, int trainingSize) {
+        this.dimensions = dimensions;
+        this.subspaces = Math.min(subspaces, dimensions);
+        this.trainingSize = trainingSize;
+        this.starts = new int[this.subspaces + 1];
+        for (int s = 0; s <= this.subspaces; s++) {
+            starts[s] = (int) ((long) s * dimensions / this.subspaces);
+        }
+        this.centroids = new float[this.subspaces][];
+    }
+
+    @Override
+    public int kind() {
+        return KIND;
+    }
+
+    @Override
+    public int codeBytes() {
+        return subspaces;
+    }
+
+    @Override
+    public boolean isTrained() {
+        return trained;
+    }
+
+    @Override
+    public void train(VectorValues values) {
+        int count = values.size();
+        int samples = Math.min(count, trainingSize);
+        // Evenly spaced ordinals, so the sample spans everything stored so far
+        float[][] sample = new float[samples][dimensions];
+        for (int i = 0; i < samples; i++) {
+            values.get((int) ((long) i * count / samples), sample[i]);
+        }
+        IntStream.range(0, subspaces).parallel().forEach(s -> centroids[s] = kMeans(sample, s));
+        trained = true;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes, int offset) {
+        for (int s = 0; s < subspaces; s++) {
+            codes[offset + s] = (byte) nearest(centroids[s], vector, starts[s], starts[s + 1] - starts[s]);
+        }
+    }
+
+    @Override
+    public Scorer scorer(float[] query) {
+        float[] table = new float[subspaces * CENTROIDS];
+        for (int s = 0; s < subspaces; s++) {
+            int start = starts[s];
+            int width = starts[s + 1] - start;
+            float[] codebook = centroids[s];
+            for (int c = 0; c < CENTROIDS; c++) {
+                float sum = 0;
+                for (int i = 0; i < width; i++) {
+                    sum += query[start + i] * codebook[c * width + i];
+                }
+                table[s * CENTROIDS + c] = sum;
+            }
+        }
+        return (codes, offset) -> {
+            float sum = 0;
+            for (int s = 0; s < subspaces; s++) {
+                sum += table[s * CENTROIDS + (codes[offset + s] & 0xFF)];
+            }
+            return sum;
+        };
+    }
+
+    @Override
+    public long overheadBytes() {
+        return (long) CENTROIDS * dimensions * Float.BYTES;
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(dimensions);
+        out.writeInt(subspaces);
+        out.writeBoolean(trained);
+        if (trained) {
+            for (float[] codebook : centroids) {
+                for (float value : codebook) {
+                    out.writeFloat(value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean read(DataInputStream in) throws IOException {
+        if (in.readInt() != dimensions || in.readInt() != subspaces) {
+            return false;
+        }
+        if (in.readBoolean()) {
+            for (int s = 0; s < subspaces; s++) {
+                float[] codebook = new float[CENTROIDS * (starts[s + 1] - starts[s])];
+                for (int i = 0; i < codebook.length; i++) {
+                    codebook[i] = in.readFloat();
+                }
+                centroids[s] = codebook;
+            }
+            trained = true;
+        }
+        return true;
+    }
+
+    /**
+     * Lloyd's k-means over one subspace of the sample, seeded with random sample points
+     */
+    private float[] kMeans(float[][] sample, int subspace) {
+        int start = starts[subspace];
+        int width = starts[subspace + 1] - start;
+        float[] codebook = new float[CENTROIDS * width];
+        Random random = new Random(31L * subspace + 7);
+        for (int c = 0; c < CENTROIDS; c++) {
+            float[] seed = sample[random.nextInt(sample.length)];
+            System.arraycopy(seed, start, codebook, c * width, width);
+        }
+
+        float[] sums = new float[CENTROIDS * width];
+        int[] counts = new int[CENTROIDS];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            for (int p = 0; p < sample.length; p++) {
+                int c = nearest(codebook, sample[p], start, width);
+                counts[c]++;
+                for (int i = 0; i < width; i++) {
+                    sums[c * width + i] += sample[p][start + i];
+                }
+            }
+            for (int c = 0; c < CENTROIDS; c++) {
+                if (counts[c] == 0) {
+                    // Empty cluster: restart it on a random point
+                    System.arraycopy(sample[random.nextInt(sample.length)], start, codebook, c * width, width);
+                    continue;
+                }
+                for (int i = 0; i < width; i++) {
+                    codebook[c * width + i] = sums[c * width + i] / counts[c];
+                }
+            }
+        }
+        return codebook;
+    }
+
+    /**
+     * Centroid of {@code codebook} closest (squared Euclidean) to {@code vector[start, start + width)}
+     */
+    private static int nearest(float[] codebook, float[] vector, int start, int width) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < CENTROIDS; c++) {
+            float distance = 0;
+            int base = c * width;
+            for (int i = 0; i < width; i++) {
+                float diff = vector[start + i] - codebook[base + i];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.springai.vectorstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Flat index over compressed copies of the stored vectors, kept on the heap.
+ *
+ * A search scores every code against the query, keeps the best {@code k * rescoreFactor}
+ * candidates and rescores only those against the full-precision vectors in the memory-mapped
+ * segments, so the float32 vectors are read for a handful of ordinals per query instead of all.
+ * Codes are written next to the segments on {@link #save()} and reloaded on open.
+ *
+ * Quantizers that learn codebooks (product quantization) train once {@code trainingSize}
+ * vectors are stored; until then, and until the vectors stored before training are encoded,
+ * searches scan the full-precision vectors like {@link ExactVectorIndex}.
+ */
+public class QuantizedVectorIndex implements VectorIndex {
+
+    private static final int FILE_MAGIC = 0x51564543; // "QVEC"
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int BLOCK = 256;
+
+    private final VectorValues values;
+    private final Path file;
+    private final IntFunction<Quantizer> quantizerFactory;
+    private final int kind;
+    private final int trainingSize;
+    private final int rescoreFactor;
+
+    private final Object structureLock = new Object();
+    private final ReadWriteLock saveLock = new ReentrantReadWriteLock();
+    private final ThreadLocal<float[]> vectors = new ThreadLocal<>();
+    private volatile Quantizer quantizer;
+    /**
+     * Set once the quantizer is trained and every ordinal stored before training is encoded;
+     * until then searches scan the full-precision vectors, as a code scan would miss the rest
+     */
+    private volatile boolean ready;
+    private volatile Page[] pages = new Page[0];
+
+    /**
+     * Codes of {@code PAGE_SIZE} consecutive ordinals, and which of them have been written
+     */
+    private static final class Page {
+
+        final byte[] codes;
+        final AtomicLongArray present = new AtomicLongArray(PAGE_SIZE / Long.SIZE);
+
+        Page(int codeBytes) {
+            codes = new byte[PAGE_SIZE * codeBytes];
+        }
+
+        boolean contains(int slot) {
+            return (present.get(slot >>> 6) & (1L << slot)) != 0;
+        }
+
+        void mark(int slot) {
+            int word = slot >>> 6;
+            long bit = 1L << slot;
+            long bits;
+            do {
+                bits = present.get(word);
+            } while ((bits & bit) == 0 && !present.compareAndSet(word, bits, bits | bit));
+        }
+    }
+
+    private QuantizedVectorIndex(VectorValues values, Path file, IntFunction<Quantizer> quantizerFactory, int kind,
+            int trainingSize, int rescoreFactor) {
+        this.values = values;
+        this.file = file;
+        this.quantizerFactory = quantizerFactory;
+        this.kind = kind;
+        this.trainingSize = trainingSize;
+        this.rescoreFactor = Math.max(1, rescoreFactor);
+    }
+
+    /**
+     * int8 scalar quantization: a quarter of the float32 size, with near-exact ranking
+     *
+     * @param file          where {@link #save()} writes the codes, or {@code null} to keep them in memory only
+     * @param rescoreFactor candidates rescored at full precision per result
+     */
+    public static QuantizedVectorIndex openScalar(VectorValues values, Path file, int rescoreFactor)
+            throws IOException {
+        return open(new QuantizedVectorIndex(values, file, ScalarQuantizer::new, ScalarQuantizer.KIND, 0,
+            rescoreFactor));
+    }
+
+    /**
+     * Product quantization: one byte per subspace, e.g. 96 bytes for a 768-dimension vector
+     * split into 96 subspaces (32x smaller), at the cost of a coarser first ranking
+     *
+     * @param file          where {@link #save()} writes the codes, or {@code null} to keep them in memory only
+     * @param subspaces     bytes per code
+     * @param trainingSize  vectors stored before the codebooks are learned (and sampled to learn them)
+     * @param rescoreFactor candidates rescored at full precision per result
+     */
+    public static QuantizedVectorIndex openProduct(VectorValues values, Path file, int subspaces, int trainingSize,
+            int rescoreFactor) throws IOException {
+        return open(new QuantizedVectorIndex(values, file,
+            dimensions -> new ProductQuantizer(dimensions, subspaces, trainingSize), ProductQuantizer.KIND,
+            trainingSize, rescoreFactor));
+    }
+
+    private static QuantizedVectorIndex open(QuantizedVectorIndex index) throws IOException {
+        if (index.file != null && Files.exists(index.file)) {
+            index.load();
+        }
+        return index;
+    }
+
+    @Override
+    public void add(int ordinal) {
+        saveLock.readLock().lock();
+        try {
+            Quantizer current = quantizer;
+            if (!ready) {
+                synchronized (structureLock) {
+                    current = trained();
+                }
+                if (current == null) {
+                    // Not trained yet: searches scan the vectors in full until it is
+                    return;
+                }
+            }
+            encode(current, ordinal);
+        } finally {
+            saveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(int ordinal) {
+        Page[] current = pages;
+        int page = ordinal >>> PAGE_SHIFT;
+        return page < current.length && current[page] != null && current[page].contains(ordinal & (PAGE_SIZE - 1));
+    }
+
+    @Override
+    public Hits search(float[] query, int k) {
+        return search(query, k, null);
+    }
+
+    @Override
+    public Hits search(float[] query, int k, IntPredicate accept) {
+        if (!ready) {
+            return exactSearch(query, k, accept);
+        }
+        Quantizer current = quantizer;
+        TopK candidates = new TopK(k * rescoreFactor);
+        Quantizer.Scorer scorer = current.scorer(query);
+        int codeBytes = current.codeBytes();
+        Page[] snapshot = pages;
+        for (int p = 0; p < snapshot.length; p++) {
+            Page page = snapshot[p];
+            if (page == null) {
+                continue;
+            }
+            for (int word = 0; word < PAGE_SIZE / Long.SIZE; word++) {
+                long bits = page.present.get(word);
+                while (bits != 0) {
+                    int slot = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int ordinal = (p << PAGE_SHIFT) + slot;
+                    if (accept == null || accept.test(ordinal)) {
+                        candidates.offer(ordinal, scorer.score(page.codes, slot * codeBytes));
+                    }
+                }
+            }
+        }
+        if (candidates.size() == 0) {
+            return Hits.EMPTY;
+        }
+
+        // Rescore at full precision, in ordinal order so segment pages are read sequentially
+        int[] ordinals = candidates.drainDescending(null);
+        Arrays.sort(ordinals);
+        TopK topK = new TopK(k);
+        for (int ordinal : ordinals) {
+            topK.offer(ordinal, values.dot(ordinal, query));
+        }
+        float[] scores = new float[topK.size()];
+        int[] best = topK.drainDescending(scores);
+        return new Hits(best, scores);
+    }
+
+    /**
+     * Heap bytes held by the codes and codebooks
+     */
+    public long memoryBytes() {
+        Quantizer current = quantizer;
+        if (current == null) {
+            return 0;
+        }
+        long bytes = current.overheadBytes();
+        for (Page page : pages) {
+            if (page != null) {
+                bytes += page.codes.length + (long) page.present.length() * Long.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Write the codes to their file, waiting for in-flight adds to finish
+     */
+    @Override
+    public void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        saveLock.writeLock().lock();
+        try {
+            Quantizer current = quantizer;
+            if (current == null) {
+                return;
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(current.kind());
+                current.write(out);
+                int codeBytes = current.codeBytes();
+                Page[] snapshot = pages;
+                for (int p = 0; p < snapshot.length; p++) {
+                    Page page = snapshot[p];
+                    if (page == null) {
+                        continue;
+                    }
+                    for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                        if (page.contains(slot)) {
+                            out.writeInt((p << PAGE_SHIFT) + slot);
+                            out.write(page.codes, slot * codeBytes, codeBytes);
+                        }
+                    }
+                }
+                out.writeInt(-1);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            saveLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The quantizer, creating and training it if the stored vectors allow; null until then.
+     * Callers hold {@code structureLock}.
+     */
+    private Quantizer trained() {
+        Quantizer current = quantizer;
+        if (ready) {
+            return current;
+        }
+        if (current == null) {
+            if (values.dimensions() == 0) {
+                return null;
+            }
+            current = quantizerFactory.apply(values.dimensions());
+            quantizer = current;
+        }
+        int count = values.size();
+        if (!current.isTrained()) {
+            if (count < trainingSize) {
+                return null;
+            }
+            current.train(values);
+        }
+        // Encode everything stored so far, including ordinals whose add() came before training;
+        // adds of later ordinals wait on structureLock and encode their own
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            encode(current, ordinal);
+        }
+        ready = true;
+        return current;
+    }
+
+    private void encode(Quantizer current, int ordinal) {
+        float[] vector = vectors.get();
+        if (vector == null || vector.length != values.dimensions()) {
+            vector = new float[values.dimensions()];
+            vectors.set(vector);
+        }
+        values.get(ordinal, vector);
+        Page page = page(ordinal >>> PAGE_SHIFT, current.codeBytes());
+        int slot = ordinal & (PAGE_SIZE - 1);
+        current.encode(vector, page.codes, slot * current.codeBytes());
+        page.mark(slot);
+    }
+
+    private Page page(int number, int codeBytes) {
+        Page[] current = pages;
+        if (number < current.length && current[number] != null) {
+            return current[number];
+        }
+        synchronized (structureLock) {
+            current = pages;
+            if (number >= current.length) {
+                current = Arrays.copyOf(current, Math.max(number + 1, current.length * 2));
+            }
+            if (current[number] == null) {
+                current[number] = new Page(codeBytes);
+            }
+            pages = current;
+            return current[number];
+        }
+    }
+
+    private Hits exactSearch(float[] query, int k, IntPredicate accept) {
+        int count = values.size();
+        if (count == 0) {
+            return Hits.EMPTY;
+        }
+        TopK topK = new TopK(k);
+        if (accept != null) {
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                if (accept.test(ordinal)) {
+                    topK.offer(ordinal, values.dot(ordinal, query));
+                }
+            }
+            float[] scores = new float[topK.size()];
+            int[] ordinals = topK.drainDescending(scores);
+            return new Hits(ordinals, scores);
+        }
+        float[] scores = new float[Math.min(count, BLOCK)];
+        for (int start = 0; start < count; start += BLOCK) {
+            int block = Math.min(BLOCK, count - start);
+            values.dot(start, block, query, scores);
+            for (int i = 0; i < block; i++) {
+                topK.offer(start + i, scores[i]);
+            }
+        }
+        float[] best = new float[topK.size()];
+        int[] ordinals = topK.drainDescending(best);
+        return new Hits(ordinals, best);
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != kind || values.dimensions() == 0) {
+                return;
+            }
+            Quantizer loaded = quantizerFactory.apply(values.dimensions());
+            if (!loaded.read(in)) {
+                // Built with different parameters: re-encode from the vectors instead
+                return;
+            }
+            quantizer = loaded;
+            int codeBytes = loaded.codeBytes();
+            int limit = values.size();
+            byte[] code = new byte[codeBytes];
+            for (int ordinal = in.readInt(); ordinal >= 0; ordinal = in.readInt()) {
+                in.readFully(code);
+                // Codes beyond the readable vectors were never committed to the store
+                if (ordinal < limit) {
+                    Page page = page(ordinal >>> PAGE_SHIFT, codeBytes);
+                    int slot = ordinal & (PAGE_SIZE - 1);
+                    System.arraycopy(code, 0, page.codes, slot * codeBytes, codeBytes);
+                    page.mark(slot);
+                }
+            }
+            // Vectors without a code are encoded by the adds that catch the index up on open
+            ready = loaded.isTrained();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.springai.vectorstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Compresses vectors into fixed-size byte codes that can be scored against a float query
+ * without decoding. Used by {@link QuantizedVectorIndex}.
+ */
+interface Quantizer {
+
+    /**
+     * Tag written to the index file, so a file built by another quantizer is ignored
+     */
+    int kind();
+
+    /**
+     * Bytes per encoded vector
+     */
+    int codeBytes();
+
+    /**
+     * Whether {@link #encode} can be called; quantizers that learn from the data start untrained
+     */
+    boolean isTrained();
+
+    /**
+     * Learn the codebooks from the stored vectors
+     */
+    void train(VectorValues values);
+
+    /**
+     * Write the code for {@code vector} into {@code codes} at {@code offset}
+     */
+    void encode(float[] vector, byte[] codes, int offset);
+
+    /**
+     * Prepare to score codes against one query
+     */
+    Scorer scorer(float[] query);
+
+    /**
+     * Heap bytes used besides the codes themselves (codebooks)
+     */
+    long overheadBytes();
+
+    /**
+     * Persist the learned state
+     */
+    void write(DataOutputStream out) throws IOException;
+
+    /**
+     * Restore state written by {@link #write}
+     *
+     * @return false if it was written with different parameters and should be discarded
+     */
+    boolean read(DataInputStream in) throws IOException;
+
+    /**
+     * Approximate dot product between the prepared query and an encoded vector
+     */
+    @FunctionalInterface
+    interface Scorer {
+        float score(byte[] codes, int offset);
+    }
+}
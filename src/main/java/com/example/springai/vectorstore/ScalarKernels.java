@@ -0,0 +1,85 @@
+package com.example.springai.vectorstore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plain loops, used when the vector module is not available
+ */
+final class ScalarKernels implements SimilarityKernels {
+
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] query, ByteBuffer vectors, int byteOffset) {
+        float sum = 0;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * vectors.getFloat(byteOffset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    @Override
+    public float cosine(float[] a, float[] b) {
+        float dot = 0;
+        float normA = 0;
+        float normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : (float) (dot / Math.sqrt((double) normA * normB));
+    }
+
+    @Override
+    public float l2Squared(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            float diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float l2Squared(float[] query, ByteBuffer vectors, int byteOffset) {
+        float sum = 0;
+        for (int i = 0; i < query.length; i++) {
+            float diff = query[i] - vectors.getFloat(byteOffset + i * Float.BYTES);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public void dotBatch(float[] query, float[] vectors, int offset, int count, float[] scores) {
+        for (int v = 0; v < count; v++) {
+            scores[v] = dot(query, 0, vectors, offset + v * query.length, query.length);
+        }
+    }
+
+    @Override
+    public void dotBatch(float[] query, ByteBuffer vectors, int byteOffset, int count, float[] scores) {
+        int stride = query.length * Float.BYTES;
+        for (int v = 0; v < count; v++) {
+            scores[v] = dot(query, vectors, byteOffset + v * stride);
+        }
+    }
+}
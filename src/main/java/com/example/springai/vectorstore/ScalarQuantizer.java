@@ -0,0 +1,97 @@
+package com.example.springai.vectorstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * int8 scalar quantization with one scale per vector: each component is stored as
+ * {@code round(x / scale)} with {@code scale = max|x| / 127}. A code is the 4-byte scale followed
+ * by one byte per dimension, about a quarter of the float32 vector. Needs no training.
+ */
+final class ScalarQuantizer implements Quantizer {
+
+    static final int KIND = 1;
+
+    private final int dimensions;
+
+    ScalarQuantizer(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int kind() {
+        return KIND;
+    }
+
+    @Override
+    public int codeBytes() {
+        return Float.BYTES + dimensions;
+    }
+
+    @Override
+    public boolean isTrained() {
+        return true;
+    }
+
+    @Override
+    public void train(VectorValues values) {
+        // Scales are per vector, nothing to learn
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes, int offset) {
+        float max = 0;
+        for (int i = 0; i < dimensions; i++) {
+            max = Math.max(max, Math.abs(vector[i]));
+        }
+        float scale = max == 0 ? 1 : max / 127f;
+        int bits = Float.floatToRawIntBits(scale);
+        codes[offset] = (byte) bits;
+        codes[offset + 1] = (byte) (bits >>> 8);
+        codes[offset + 2] = (byte) (bits >>> 16);
+        codes[offset + 3] = (byte) (bits >>> 24);
+        for (int i = 0; i < dimensions; i++) {
+            codes[offset + Float.BYTES + i] = (byte) Math.round(vector[i] / scale);
+        }
+    }
+
+    /**
+     * The query is quantized the same way, so a code is scored with an integer dot product
+     * (cheaper than float, and the rescoring pass corrects the rounding)
+     */
+    @Override
+    public Scorer scorer(float[] query) {
+        byte[] quantized = new byte[codeBytes()];
+        encode(query, quantized, 0);
+        float queryScale = scale(quantized, 0);
+        return (codes, offset) -> {
+            int base = offset + Float.BYTES;
+            int sum = 0;
+            for (int i = 0; i < dimensions; i++) {
+                sum += quantized[Float.BYTES + i] * codes[base + i];
+            }
+            return sum * queryScale * scale(codes, offset);
+        };
+    }
+
+    private static float scale(byte[] codes, int offset) {
+        return Float.intBitsToFloat((codes[offset] & 0xFF) | (codes[offset + 1] & 0xFF) << 8
+            | (codes[offset + 2] & 0xFF) << 16 | (codes[offset + 3] & 0xFF) << 24);
+    }
+
+    @Override
+    public long overheadBytes() {
+        return 0;
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(dimensions);
+    }
+
+    @Override
+    public boolean read(DataInputStream in) throws IOException {
+        return in.readInt() == dimensions;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.springai.vectorstore;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Similarity arithmetic over float32 vectors, on the heap ({@code float[]}) or off it
+ * (a little-endian {@link ByteBuffer}, such as a memory-mapped segment).
+ *
+ * {@link #preferred()} uses the {@code jdk.incubator.vector} API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and plain loops otherwise; set
+ * {@code -Dvector.kernels=scalar} to force the loops.
+ */
+public interface SimilarityKernels {
+
+    /**
+     * The SIMD kernels when available, the scalar ones otherwise
+     */
+    static SimilarityKernels preferred() {
+        return KernelLoader.PREFERRED;
+    }
+
+    static SimilarityKernels scalar() {
+        return ScalarKernels.INSTANCE;
+    }
+
+    /**
+     * The SIMD kernels, if the vector module is present
+     */
+    static Optional<SimilarityKernels> simd() {
+        return Optional.ofNullable(KernelLoader.SIMD);
+    }
+
+    /**
+     * Short name for logs and benchmarks ("scalar", or "simd" with the vector width)
+     */
+    String name();
+
+    default float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, a.length);
+    }
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Dot product between {@code query} and the {@code query.length} floats at {@code byteOffset}
+     */
+    float dot(float[] query, ByteBuffer vectors, int byteOffset);
+
+    float cosine(float[] a, float[] b);
+
+    /**
+     * Squared Euclidean distance
+     */
+    float l2Squared(float[] a, float[] b);
+
+    /**
+     * Squared Euclidean distance between {@code query} and the {@code query.length} floats at {@code byteOffset}
+     */
+    float l2Squared(float[] query, ByteBuffer vectors, int byteOffset);
+
+    /**
+     * Dot products of {@code query} with {@code count} consecutive vectors of {@code query.length} floats
+     * starting at {@code vectors[offset]}, into {@code scores[0, count)}
+     */
+    void dotBatch(float[] query, float[] vectors, int offset, int count, float[] scores);
+
+    /**
+     * Dot products of {@code query} with {@code count} consecutive vectors starting at {@code byteOffset},
+     * into {@code scores[0, count)}
+     */
+    void dotBatch(float[] query, ByteBuffer vectors, int byteOffset, int count, float[] scores);
+}
@@ -0,0 +1,121 @@
+package com.example.springai.vectorstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ordinals of deleted chunks: a bitset searched without locking, backed by an append-only
+ * file of 4-byte ordinals so deletes survive restarts until the next compaction drops them.
+ * Only the store's writer calls {@link #add(int)}.
+ */
+final class Tombstones implements AutoCloseable {
+
+    private volatile AtomicLongArray words = new AtomicLongArray(16);
+    private volatile int count;
+    private DataOutputStream out;
+
+    private Tombstones() {
+    }
+
+    /**
+     * Open the file for appending, loading every complete ordinal in it
+     */
+    static Tombstones open(Path path) throws IOException {
+        Tombstones tombstones = new Tombstones();
+        long validBytes = 0;
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    tombstones.set(in.readInt());
+                    validBytes += Integer.BYTES;
+                }
+            } catch (EOFException e) {
+                // End of file, possibly inside a torn final write
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                if (channel.size() > validBytes) {
+                    channel.truncate(validBytes);
+                }
+            }
+        }
+        tombstones.out = new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        return tombstones;
+    }
+
+    /**
+     * Mark {@code ordinal} deleted (buffered until {@link #flush()})
+     *
+     * @return false if it already was
+     */
+    boolean add(int ordinal) throws IOException {
+        if (!set(ordinal)) {
+            return false;
+        }
+        out.writeInt(ordinal);
+        return true;
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    boolean contains(int ordinal) {
+        AtomicLongArray current = words;
+        int word = ordinal >>> 6;
+        return word < current.length() && (current.get(word) & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Clear the bits of deleted ordinals in a dense bitset of ordinals
+     */
+    void removeFrom(long[] bitset) {
+        AtomicLongArray current = words;
+        int length = Math.min(bitset.length, current.length());
+        for (int i = 0; i < length; i++) {
+            bitset[i] &= ~current.get(i);
+        }
+    }
+
+    /**
+     * Number of deleted ordinals
+     */
+    int count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private boolean set(int ordinal) {
+        int word = ordinal >>> 6;
+        AtomicLongArray current = words;
+        if (word >= current.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            words = grown;
+            current = grown;
+        }
+        long bits = current.get(word);
+        long mask = 1L << ordinal;
+        if ((bits & mask) != 0) {
+            return false;
+        }
+        current.set(word, bits | mask);
+        count++;
+        return true;
+    }
+}
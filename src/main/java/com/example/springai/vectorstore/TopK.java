@@ -0,0 +1,105 @@
+package com.example.springai.vectorstore;
+
+/**
+ * Bounded min-heap of (ordinal, score) pairs kept in primitive arrays,
+ * used to collect the k best matches of a scan without boxing.
+ */
+final class TopK {
+
+    private final int[] ordinals;
+    private final float[] scores;
+    private int size;
+
+    TopK(int k) {
+        this.ordinals = new int[Math.max(k, 1)];
+        this.scores = new float[Math.max(k, 1)];
+    }
+
+    /**
+     * Offer a candidate, keeping it only if it beats the current worst entry
+     */
+    void offer(int ordinal, float score) {
+        if (size < ordinals.length) {
+            ordinals[size] = ordinal;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            ordinals[0] = ordinal;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == ordinals.length;
+    }
+
+    /**
+     * Lowest score currently kept
+     */
+    float minScore() {
+        return scores[0];
+    }
+
+    /**
+     * Ordinals sorted by descending score; {@code scoresOut} receives the matching scores
+     */
+    int[] drainDescending(float[] scoresOut) {
+        int n = size;
+        int[] result = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            result[i] = ordinals[0];
+            if (scoresOut != null) {
+                scoresOut[i] = scores[0];
+            }
+            size--;
+            ordinals[0] = ordinals[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int ordinal = ordinals[a];
+        ordinals[a] = ordinals[b];
+        ordinals[b] = ordinal;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
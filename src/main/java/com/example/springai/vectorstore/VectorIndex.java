@@ -0,0 +1,59 @@
+package com.example.springai.vectorstore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.IntPredicate;
+
+/**
+ * Search structure over the vectors of a {@link MappedVectorStore}.
+ * The store writes vectors first and then calls {@link #add(int)}; implementations
+ * must allow {@code add} and {@link #search(float[], int)} to run concurrently.
+ */
+public interface VectorIndex {
+
+    /**
+     * Make the vector already stored at {@code ordinal} searchable
+     */
+    void add(int ordinal);
+
+    /**
+     * Whether {@code ordinal} has already been added
+     */
+    boolean contains(int ordinal);
+
+    /**
+     * Best {@code k} matches for a unit-length query, highest similarity first
+     */
+    Hits search(float[] query, int k);
+
+    /**
+     * Best {@code k} matches among the ordinals {@code accept} lets through
+     */
+    Hits search(float[] query, int k, IntPredicate accept);
+
+    /**
+     * Persist the index next to the store, if it keeps any state of its own
+     */
+    default void save() throws IOException {
+    }
+
+    /**
+     * Ordinals and their similarities, in descending similarity order
+     */
+    record Hits(int[] ordinals, float[] scores) {
+
+        static final Hits EMPTY = new Hits(new int[0], new float[0]);
+
+        public int size() {
+            return ordinals.length;
+        }
+    }
+
+    /**
+     * Creates (or loads) the index for a store directory
+     */
+    @FunctionalInterface
+    interface Factory {
+        VectorIndex open(VectorValues values, Path directory) throws IOException;
+    }
+}
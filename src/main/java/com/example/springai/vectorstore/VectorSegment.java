@@ -0,0 +1,151 @@
+package com.example.springai.vectorstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One fixed-capacity, memory-mapped file of float32 vectors.
+ * The file is sized up front and mapped once, so reads go straight to the page cache
+ * without copying anything onto the heap.
+ */
+final class VectorSegment implements AutoCloseable {
+
+    private static final SimilarityKernels KERNELS = SimilarityKernels.preferred();
+    private static final int MAGIC = 0x56454353; // "VECS"
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer data;
+    private final FloatBuffer floats;
+    private final int dimensions;
+    private final int capacity;
+
+    private VectorSegment(Path path, FileChannel channel, MappedByteBuffer buffer, int dimensions, int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.dimensions = dimensions;
+        this.capacity = capacity;
+        this.data = buffer.duplicate()
+            .position(HEADER_BYTES)
+            .slice()
+            .order(ByteOrder.LITTLE_ENDIAN);
+        this.floats = data.asFloatBuffer();
+    }
+
+    /**
+     * Create a new segment file, or open it if it already exists with the same layout
+     */
+    static VectorSegment open(Path path, int dimensions, int capacity) throws IOException {
+        boolean exists = Files.exists(path) && Files.size(path) >= HEADER_BYTES;
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (exists) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not a vector segment: " + path);
+                }
+                dimensions = header.getInt();
+                capacity = header.getInt();
+            }
+            long size = HEADER_BYTES + (long) capacity * dimensions * Float.BYTES;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segment too large to map (" + size + " bytes), lower the segment capacity");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (!exists) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, dimensions);
+                buffer.putInt(12, capacity);
+            }
+            return new VectorSegment(path, channel, buffer, dimensions, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the dimension count stored in an existing segment header
+     */
+    static int readDimensions(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            return header.getInt(8);
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Write a vector into the given slot (single writer only)
+     */
+    void put(int slot, float[] vector) {
+        int base = slot * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            floats.put(base + i, vector[i]);
+        }
+    }
+
+    /**
+     * Copy the vector in the given slot into {@code target}
+     */
+    void get(int slot, float[] target) {
+        int base = slot * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            target[i] = floats.get(base + i);
+        }
+    }
+
+    /**
+     * Dot product between {@code query} and the vector in the given slot, read in place
+     */
+    float dot(int slot, float[] query) {
+        return KERNELS.dot(query, data, slot * dimensions * Float.BYTES);
+    }
+
+    /**
+     * Dot products between {@code query} and the vectors in {@code count} consecutive slots
+     */
+    void dot(int slot, int count, float[] query, float[] scores) {
+        KERNELS.dotBatch(query, data, slot * dimensions * Float.BYTES, count, scores);
+    }
+
+    /**
+     * Flush dirty pages to disk
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.springai.vectorstore;
+
+/**
+ * Random access to the stored (unit-length) vectors, addressed by ordinal
+ */
+public interface VectorValues {
+
+    /**
+     * Number of vectors currently readable
+     */
+    int size();
+
+    int dimensions();
+
+    /**
+     * Dot product between {@code query} and the stored vector, which is its cosine similarity
+     */
+    float dot(int ordinal, float[] query);
+
+    /**
+     * Dot products of {@code query} with the {@code count} vectors from {@code ordinal} on,
+     * into {@code scores[0, count)}
+     */
+    default void dot(int ordinal, int count, float[] query, float[] scores) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = dot(ordinal + i, query);
+        }
+    }
+
+    /**
+     * Copy the stored vector into {@code target}
+     */
+    void get(int ordinal, float[] target);
+}
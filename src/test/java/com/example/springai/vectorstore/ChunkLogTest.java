@@ -0,0 +1,75 @@
+package com.example.springai.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChunkLogTest {
+
+    @Test
+    void metadataKeepsItsTypesAcrossReopen(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("chunks.log");
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("title", "report");
+        metadata.put("page", 7);
+        metadata.put("bytes", 5_000_000_000L);
+        metadata.put("score", 0.25f);
+        metadata.put("year", 2024.5);
+        metadata.put("draft", true);
+        metadata.put("tags", List.of("a", "b"));
+        try (ChunkLog log = ChunkLog.open(file, new ArrayList<>())) {
+            log.append(new ChunkLog.StoredChunk("id-1", "text", metadata));
+        }
+
+        List<ChunkLog.StoredChunk> chunks = new ArrayList<>();
+        ChunkLog.open(file, chunks).close();
+
+        Map<String, Object> expected = new LinkedHashMap<>(metadata);
+        expected.put("tags", "[a, b]");
+        assertEquals(List.of(new ChunkLog.StoredChunk("id-1", "text", expected)), chunks);
+    }
+
+    @Test
+    void recordsWithoutTypesAreReadAsStrings(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("chunks.log");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(bytes);
+            for (String value : new String[] {"id-1", "text"}) {
+                writeString(payload, value);
+            }
+            payload.writeShort(1);
+            writeString(payload, "page");
+            writeString(payload, "7");
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt(bytes.size());
+            out.writeInt((int) crc.getValue());
+            out.write(bytes.toByteArray());
+        }
+
+        List<ChunkLog.StoredChunk> chunks = new ArrayList<>();
+        ChunkLog.open(file, chunks).close();
+
+        assertEquals(List.of(new ChunkLog.StoredChunk("id-1", "text", Map.of("page", "7"))), chunks);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.springai.vectorstore;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recall@10 of the HNSW graph against the exact scan over the same seeded vectors, with the
+ * graph parameters application.yml ships with. Like real embeddings, the vectors mostly vary
+ * along a few directions ({@code LATENT}) plus some noise in all of them; full-rank random
+ * vectors are a much harder case no embedding model produces.
+ */
+class HnswVectorIndexTest {
+
+    private static final int VECTORS = 5000;
+    private static final int DIMENSIONS = 128;
+    private static final int LATENT = 16;
+    private static final float NOISE = 0.1f;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    private static final int M = 16;
+    private static final int EF_CONSTRUCTION = 100;
+    private static final int EF_SEARCH = 64;
+
+    private static final double MIN_RECALL = 0.95;
+
+    private static ArrayVectorValues values;
+    private static ExactVectorIndex exact;
+    private static HnswVectorIndex hnsw;
+    private static float[][] queries;
+
+    @BeforeAll
+    static void buildIndexes() {
+        Random random = new Random(42);
+        float[][] basis = new float[LATENT][];
+        for (int j = 0; j < LATENT; j++) {
+            basis[j] = gaussian(random, 1.0f, null);
+        }
+        values = new ArrayVectorValues(VECTORS, DIMENSIONS);
+        exact = new ExactVectorIndex(values);
+        hnsw = new HnswVectorIndex(values, null, M, EF_CONSTRUCTION, EF_SEARCH);
+        for (int i = 0; i < VECTORS; i++) {
+            float[] vector = gaussian(random, NOISE, null);
+            for (float[] direction : basis) {
+                float weight = (float) random.nextGaussian();
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    vector[d] += weight * direction[d];
+                }
+            }
+            int ordinal = values.append(normalize(vector));
+            exact.add(ordinal);
+            hnsw.add(ordinal);
+        }
+        queries = new float[QUERIES][];
+        float[] stored = new float[DIMENSIONS];
+        for (int q = 0; q < QUERIES; q++) {
+            values.get(random.nextInt(VECTORS), stored);
+            queries[q] = normalize(gaussian(random, 0.05f, stored.clone()));
+        }
+    }
+
+    @Test
+    void recallAtKMatchesExactSearch() {
+        double recall = recall(hnsw, ordinal -> true);
+        assertTrue(recall >= MIN_RECALL, () -> "recall@" + K + " " + recall + " below " + MIN_RECALL);
+    }
+
+    @Test
+    void filteredRecallAtKMatchesExactSearch() {
+        double recall = recall(hnsw, ordinal -> ordinal % 3 == 0);
+        assertTrue(recall >= MIN_RECALL, () -> "filtered recall@" + K + " " + recall + " below " + MIN_RECALL);
+    }
+
+    @Test
+    void savedGraphAnswersLikeTheOriginal(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("hnsw.graph");
+        HnswVectorIndex saved = new HnswVectorIndex(values, file, M, EF_CONSTRUCTION, EF_SEARCH);
+        for (int i = 0; i < VECTORS; i++) {
+            saved.add(i);
+        }
+        saved.save();
+
+        HnswVectorIndex loaded = HnswVectorIndex.open(values, file, M, EF_CONSTRUCTION, EF_SEARCH);
+        for (float[] query : queries) {
+            assertArrayEquals(saved.search(query, K).ordinals(), loaded.search(query, K).ordinals());
+        }
+    }
+
+    private static double recall(VectorIndex index, IntPredicate accept) {
+        int found = 0;
+        for (float[] query : queries) {
+            int[] truth = exact.search(query, K, accept).ordinals();
+            int[] approximate = index.search(query, K, accept).ordinals();
+            for (int ordinal : approximate) {
+                for (int expected : truth) {
+                    if (ordinal == expected) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+        }
+        return (double) found / (QUERIES * K);
+    }
+
+    private static float[] gaussian(Random random, float sigma, float[] mean) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (mean == null ? 0 : mean[i]) + (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.springai.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Adds, deletes, compaction and reopening of the store, checked through what searches return.
+ * The segment capacity is small so that chunks span several segment files.
+ */
+class MappedVectorStoreTest {
+
+    private static final int SEGMENT_CAPACITY = 4;
+    private static final int DIMENSIONS = 256;
+    private static final int MAX_RESULTS = 20;
+    private static final FilterExpressionBuilder FILTERS = new FilterExpressionBuilder();
+    private static final List<String> QUERIES = List.of("alpha", "beta gamma", "delta", "epsilon zeta", "eta");
+
+    private final EmbeddingModel embeddingModel = new WordEmbeddingModel();
+
+    @Test
+    void upsertReplacesTheOldRevision(@TempDir Path directory) throws IOException {
+        try (MappedVectorStore store = MappedVectorStore.open(embeddingModel, directory, SEGMENT_CAPACITY)) {
+            store.add(revision("guide", "r1", "alpha beta", "gamma delta", "epsilon"));
+            store.add(revision("notes", "n1", "alpha zeta"));
+            store.add(revision("guide", "r2", "alpha eta", "gamma theta"));
+            // What RagService does once the new revision is complete
+            store.delete(FILTERS.and(FILTERS.eq("title", "guide"), FILTERS.ne("revision", "r2")).build());
+
+            assertEquals(3, store.size());
+            assertEquals(List.of("guide_r2_chunk_0", "notes_n1_chunk_0"), sorted(ids(search(store, "alpha", null))));
+            assertEquals(List.of(), search(store, "gamma", FILTERS.eq("revision", "r1").build()));
+            assertEquals(List.of("guide_r2_chunk_1"), ids(search(store, "gamma", FILTERS.eq("title", "guide").build())));
+        }
+    }
+
+    @Test
+    void deletesByIdAndByFilter(@TempDir Path directory) throws IOException {
+        try (MappedVectorStore store = MappedVectorStore.open(embeddingModel, directory, SEGMENT_CAPACITY)) {
+            store.add(revision("guide", "r1", "alpha", "alpha beta", "alpha gamma"));
+            store.add(revision("notes", "n1", "alpha delta", "alpha epsilon"));
+
+            assertEquals(Optional.of(true), store.delete(List.of("guide_r1_chunk_1", "unknown")));
+            assertEquals(Optional.of(false), store.delete(List.of("guide_r1_chunk_1")));
+            assertEquals(2, store.delete(FILTERS.eq("title", "notes").build()));
+            assertEquals(0, store.delete(FILTERS.eq("title", "notes").build()));
+
+            assertEquals(2, store.size());
+            assertEquals(3, store.deleted());
+            assertEquals(List.of("guide_r1_chunk_0", "guide_r1_chunk_2"), sorted(ids(search(store, "alpha", null))));
+            assertEquals(List.of(), store.lexicalSearch("delta", 10));
+        }
+    }
+
+    @Test
+    void compactionKeepsTheSurvivingChunks(@TempDir Path directory) throws IOException {
+        try (MappedVectorStore store = MappedVectorStore.open(embeddingModel, directory, SEGMENT_CAPACITY)) {
+            store.add(corpus());
+            store.delete(FILTERS.in("chunk", 0, 3, 6, 9).build());
+            Map<String, List<List<Object>>> before = searches(store);
+
+            store.compact();
+
+            assertEquals(0, store.deleted());
+            assertEquals(8, store.size());
+            assertEquals(before, searches(store));
+            assertEquals(List.of(), search(store, "alpha", FILTERS.eq("chunk", 3).build()));
+        }
+    }
+
+    @Test
+    void reopenedStoreAnswersLikeTheOriginal(@TempDir Path directory) throws IOException {
+        Map<String, List<List<Object>>> before;
+        try (MappedVectorStore store = MappedVectorStore.open(embeddingModel, directory, SEGMENT_CAPACITY)) {
+            store.add(corpus());
+            store.delete(List.of("guide_r1_chunk_1", "notes_n1_chunk_2"));
+            store.compact();
+            store.delete(FILTERS.eq("chunk", 4).build());
+            before = searches(store);
+        }
+
+        try (MappedVectorStore store = MappedVectorStore.open(embeddingModel, directory, SEGMENT_CAPACITY)) {
+            assertEquals(before, searches(store));
+            assertEquals(1, store.deleted());
+        }
+    }
+
+    /**
+     * Twelve chunks over two documents, numbered by a {@code chunk} metadata entry
+     */
+    private static List<Document> corpus() {
+        String[] words = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta"};
+        List<Document> documents = new ArrayList<>();
+        for (int chunk = 0; chunk < 12; chunk++) {
+            String title = chunk < 6 ? "guide" : "notes";
+            String text = words[chunk % words.length] + " " + words[(chunk * 3 + 1) % words.length];
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("title", title);
+            metadata.put("chunk", chunk);
+            metadata.put("length", (long) text.length());
+            documents.add(new Document(title + "_r1_chunk_" + chunk, text, metadata));
+        }
+        return documents;
+    }
+
+    /**
+     * Chunks of one revision of a document, with the ids and metadata RagService gives them
+     */
+    private static List<Document> revision(String title, String revision, String... texts) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            documents.add(new Document(title + "_" + revision + "_chunk_" + i, texts[i],
+                Map.of("title", title, "revision", revision, "chunk", String.valueOf(i))));
+        }
+        return documents;
+    }
+
+    /**
+     * Id, text and metadata (with the distance) of what every query in {@code QUERIES} finds,
+     * unfiltered and within one document. Sorted by id, as chunks with equal scores come in
+     * no particular order.
+     */
+    private static Map<String, List<List<Object>>> searches(MappedVectorStore store) {
+        Map<String, List<List<Object>>> results = new HashMap<>();
+        for (String query : QUERIES) {
+            results.put(query, contents(search(store, query, null)));
+            results.put(query + " in notes", contents(search(store, query, FILTERS.eq("title", "notes").build())));
+        }
+        return results;
+    }
+
+    private static List<List<Object>> contents(List<Document> documents) {
+        return documents.stream()
+            .sorted(Comparator.comparing(Document::getId))
+            .map(document -> List.<Object>of(document.getId(), document.getContent(), document.getMetadata()))
+            .toList();
+    }
+
+    /**
+     * Every chunk sharing a word with {@code query}, best first
+     */
+    private static List<Document> search(MappedVectorStore store, String query, Filter.Expression filter) {
+        SearchRequest request = SearchRequest.query(query).withTopK(MAX_RESULTS).withSimilarityThreshold(0.1);
+        if (filter != null) {
+            request = request.withFilterExpression(filter);
+        }
+        return store.similaritySearch(request);
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+
+    private static List<String> sorted(List<String> values) {
+        return values.stream().sorted().toList();
+    }
+
+    /**
+     * Embeds text as the counts of its words hashed into {@code DIMENSIONS} buckets, so texts
+     * sharing words are similar and every text always gets the same vector
+     */
+    private static class WordEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<String> texts = request.getInstructions();
+            List<Embedding> embeddings = new ArrayList<>(texts.size());
+            for (int i = 0; i < texts.size(); i++) {
+                embeddings.add(new Embedding(embed(texts.get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(String text) {
+            float[] vector = new float[DIMENSIONS];
+            for (String word : text.toLowerCase().split("\\W+")) {
+                if (!word.isEmpty()) {
+                    vector[Math.floorMod(word.hashCode(), DIMENSIONS)] += 1;
+                }
+            }
+            return vector;
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getContent());
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.springai.vectorstore;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Filter expressions as users write them, parsed by {@link FilterExpressionTextParser} and
+ * evaluated against four chunks, the last of which has none of the filtered keys.
+ */
+class MetadataIndexTest {
+
+    private static final int SIZE = 4;
+    private static final FilterExpressionTextParser PARSER = new FilterExpressionTextParser();
+
+    private static MetadataIndex index;
+
+    @BeforeAll
+    static void indexChunks() {
+        index = new MetadataIndex();
+        index.add(0, Map.of("genre", "drama", "year", 2020, "rating", 4.5, "bytes", 9_007_199_254_740_992L,
+            "draft", false));
+        index.add(1, Map.of("genre", "comedy", "year", 2021, "rating", 3.0, "bytes", 9_007_199_254_740_993L));
+        index.add(2, Map.of("genre", "drama", "year", 2019L, "draft", true));
+        index.add(3, Map.of("title", "untagged"));
+    }
+
+    @Test
+    void equality() {
+        assertEquals(List.of(0, 2), matches("genre == 'drama'"));
+        assertEquals(List.of(2), matches("draft == true"));
+        // Numbers compare by value whatever their type
+        assertEquals(List.of(2), matches("year == 2019"));
+        assertEquals(List.of(1), matches("rating == 3"));
+    }
+
+    @Test
+    void inequalityAlsoMatchesChunksWithoutTheKey() {
+        assertEquals(List.of(1, 3), matches("genre != 'drama'"));
+        assertEquals(List.of(0, 1, 3), matches("year != 2019"));
+    }
+
+    @Test
+    void membership() {
+        assertEquals(List.of(0, 1, 2), matches("genre in ['drama', 'comedy']"));
+        assertEquals(List.of(0, 1), matches("year in [2020, 2021.0]"));
+        assertEquals(List.of(1, 3), matches("genre nin ['drama', 'western']"));
+    }
+
+    @Test
+    void ranges() {
+        assertEquals(List.of(0, 1), matches("year >= 2020"));
+        assertEquals(List.of(0), matches("year > 2019 && year < 2021"));
+        assertEquals(List.of(1), matches("rating <= 3"));
+        assertEquals(List.of(0, 1), matches("rating > 2.5"));
+        assertEquals(List.of(1), matches("genre < 'd'"));
+        // Strings and numbers are not ordered against each other
+        assertEquals(List.of(), matches("genre > 1"));
+    }
+
+    @Test
+    void longsBeyondDoublePrecisionStayDistinct() {
+        assertEquals(List.of(1), matches("bytes == 9007199254740993L"));
+        assertEquals(List.of(1), matches("bytes > 9007199254740992L"));
+        assertEquals(List.of(0), matches("bytes in [9007199254740992L]"));
+    }
+
+    @Test
+    void combinations() {
+        assertEquals(List.of(0, 1), matches("genre == 'drama' && year >= 2020 || genre == 'comedy'"));
+        assertEquals(List.of(0, 2), matches("genre == 'drama' && (year == 2019 || draft == false)"));
+        assertEquals(List.of(1, 3), matches("not(genre == 'drama')"));
+        assertEquals(List.of(1, 2, 3), matches("not(genre == 'drama' && draft == false)"));
+    }
+
+    @Test
+    void missingKey() {
+        assertEquals(List.of(), matches("missing == 'x'"));
+        assertEquals(List.of(), matches("missing > 0"));
+        assertEquals(List.of(), matches("missing in ['x']"));
+        assertEquals(List.of(0, 1, 2, 3), matches("missing != 'x'"));
+        assertEquals(List.of(0, 1, 2, 3), matches("missing nin ['x']"));
+        assertEquals(List.of(0, 1, 2), matches("year < 3000"));
+    }
+
+    @Test
+    void onlyOrdinalsBelowSizeMatch() {
+        assertEquals(List.of(1), ordinals(index.evaluate(PARSER.parse("genre != 'drama'"), 2), SIZE));
+    }
+
+    private static List<Integer> matches(String filter) {
+        return ordinals(index.evaluate(PARSER.parse(filter), SIZE), SIZE);
+    }
+
+    private static List<Integer> ordinals(long[] bitset, int size) {
+        List<Integer> ordinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (MetadataIndex.contains(bitset, ordinal)) {
+                ordinals.add(ordinal);
+            }
+        }
+        return ordinals;
+    }
+}